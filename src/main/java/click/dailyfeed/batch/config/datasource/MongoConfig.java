@@ -4,15 +4,20 @@ import click.dailyfeed.batch.config.converter.BigDecimalToDecimal128Converter;
 import click.dailyfeed.batch.config.converter.Decimal128ToBigDecimalConverter;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.SessionSynchronization;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
@@ -25,6 +30,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @Profile("!test")
@@ -57,11 +63,18 @@ public class MongoConfig {
         }
     }
 
+    /**
+     * MongoDB 복구 스텝의 chunk 트랜잭션용 (member_activities 저장과 dead letter 완료 처리를 하나의 세션으로 커밋)
+     * 배치 메타데이터와 JPA 는 TransactionManagerConfig 의 transactionManager(JPA) 를 사용합니다.
+     * 트랜잭션 안의 쓰기는 개별 write concern 이 무시되므로, 완료 처리가 포함된 커밋은 항상 majority 로 확정합니다.
+     */
     @Bean
-    public MongoTransactionManager transactionManager(
+    public MongoTransactionManager mongoTransactionManager(
             MongoDatabaseFactory dbFactory
     ){
-        return new MongoTransactionManager(dbFactory);
+        return new MongoTransactionManager(dbFactory, TransactionOptions.builder()
+                .writeConcern(WriteConcern.MAJORITY)
+                .build());
     }
 
     @Bean
@@ -71,6 +84,11 @@ public class MongoConfig {
         return new SimpleMongoClientDatabaseFactory(mongoClient, database);
     }
 
+    /**
+     * 기본 템플릿 (primary 읽기/쓰기)
+     * 저장, 완료 처리, 선점, 중복 확인 등 방금 쓴 값을 읽어야 하는 작업은 모두 이 템플릿을 사용합니다.
+     */
+    @Primary
     @Bean(name = "mongoTemplate")
     public MongoTemplate mongoTemplate(
             MongoDatabaseFactory dailyfeedMongoDatabaseFactory,
@@ -79,6 +97,24 @@ public class MongoConfig {
         return new MongoTemplate(dailyfeedMongoDatabaseFactory, mongoConverter);
     }
 
+    /**
+     * 복구 reader 의 keyset 스캔 전용 템플릿 (secondaryPreferred + maxStaleness)
+     * 대량 스캔 읽기를 secondary 로 보내 primary 의 서비스 쓰기 부하와 경합하지 않도록 합니다.
+     * maxStalenessSeconds 는 MongoDB 제약상 90초 이상이어야 합니다. (secondary 가 없거나 모두 지연되면 primary 에서 읽음)
+     */
+    @Bean(name = "secondaryMongoTemplate")
+    public MongoTemplate secondaryMongoTemplate(
+            MongoDatabaseFactory dailyfeedMongoDatabaseFactory,
+            MongoConverter mongoConverter,
+            @Value("${batch.mongo-read.max-staleness-seconds:90}") long maxStalenessSeconds
+    ){
+        MongoTemplate mongoTemplate = new MongoTemplate(dailyfeedMongoDatabaseFactory, mongoConverter);
+        mongoTemplate.setReadPreference(ReadPreference.secondaryPreferred(maxStalenessSeconds, TimeUnit.SECONDS));
+        // 트랜잭션 안의 읽기는 primary 만 허용되므로 chunk 트랜잭션에 참여하지 않음
+        mongoTemplate.setSessionSynchronization(SessionSynchronization.NEVER);
+        return mongoTemplate;
+    }
+
     @Bean
     public MongoCustomConversions mongoCustomConversions(){
         return new MongoCustomConversions(
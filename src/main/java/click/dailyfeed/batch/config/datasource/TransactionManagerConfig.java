@@ -0,0 +1,45 @@
+package click.dailyfeed.batch.config.datasource;
+
+import click.dailyfeed.batch.config.job.support.ChunkTransactionMode;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 트랜잭션 매니저 구성
+ * - transactionManager (JPA, Primary): Spring Batch 메타데이터(JobRepository), member 등 JPA 스텝
+ * - mongoChunkTransactionManager: MongoDB 만 쓰는 복구 스텝의 chunk 트랜잭션
+ *   batch.mongo-restore.transaction-mode 로 선택합니다. (mongo(기본값) | jdbc)
+ */
+@Slf4j
+@Configuration
+@Profile("!test")
+public class TransactionManagerConfig {
+
+    /**
+     * MongoTransactionManager 가 등록되면 JPA 자동 설정의 transactionManager 가 생성되지 않으므로 직접 등록합니다.
+     */
+    @Bean
+    @Primary
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean
+    public PlatformTransactionManager mongoChunkTransactionManager(
+            MongoTransactionManager mongoTransactionManager,
+            @Qualifier("transactionManager") PlatformTransactionManager transactionManager,
+            @Value("${batch.mongo-restore.transaction-mode:mongo}") String transactionMode) {
+        ChunkTransactionMode mode = ChunkTransactionMode.from(transactionMode);
+        log.info("MongoDB restore steps use {} chunk transactions", mode);
+        return mode == ChunkTransactionMode.MONGO ? mongoTransactionManager : transactionManager;
+    }
+}
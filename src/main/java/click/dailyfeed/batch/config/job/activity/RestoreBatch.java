@@ -0,0 +1,45 @@
+package click.dailyfeed.batch.config.job.activity;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 복구 배치의 chunk 아이템
+ * - sources: 원본 메시지/문서 (롤백 또는 완료 처리 대상)
+ * - targets: 변환된 저장 대상 문서
+ * - failures: 변환에 실패한 원본과 실패 사유 (재시도 횟수 기록/격리 대상)
+ *
+ * 원본이 아이템과 함께 writer 까지 전달되므로 ThreadLocal 없이도
+ * 멀티스레드/파티션 스텝에서 각 chunk 가 자신의 원본만 참조합니다.
+ */
+@Getter
+public class RestoreBatch<S, T> {
+    private final List<S> sources;
+    private final List<T> targets;
+    private final Map<S, String> failures;
+
+    private RestoreBatch(List<S> sources, List<T> targets, Map<S, String> failures) {
+        this.sources = sources;
+        this.targets = targets;
+        this.failures = failures;
+    }
+
+    public static <S, T> RestoreBatch<S, T> of(List<S> sources, List<T> targets) {
+        return of(sources, targets, Map.of());
+    }
+
+    public static <S, T> RestoreBatch<S, T> of(List<S> sources, List<T> targets, Map<S, String> failures) {
+        return new RestoreBatch<>(
+                List.copyOf(sources),
+                List.copyOf(targets),
+                Collections.unmodifiableMap(new LinkedHashMap<>(failures)));
+    }
+
+    public boolean isEmpty() {
+        return targets.isEmpty() && failures.isEmpty();
+    }
+}
@@ -0,0 +1,170 @@
+package click.dailyfeed.batch.config.job.activity;
+
+import click.dailyfeed.batch.config.job.support.WriteProfile;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * dead letter 원본(S)에서 변환한 member_activities 를 저장하고 원본을 완료 처리하는 공통 writer
+ * 1. 변환 실패 원본의 retry_count, next_attempt_at 기록 (최대 시도 횟수를 넘기면 dead_letter_quarantine 으로 이동)
+ * 2. Redis 원장에 이미 복구된 것으로 기록된 messageKey 제외
+ * 3. member_activities 저장 (기본: bulk upsert, insertOnly: uk_message_key 기반 insert-only)
+ * 4. 저장에 실패한 messageKey 의 원본은 재시도 대상으로 기록하고, 나머지만 완료 처리
+ *
+ * 선점(claim) 모드이면 완료와 함께 선점을 해제하고, 변환/저장에 실패한 문서는 다른 노드가 다시 선점할 수 있도록 선점만 해제합니다.
+ *
+ * 항목별 저장 실패 처리(4)는 저장이 트랜잭션 밖에서 반영되는 경우(transaction-mode=jdbc, insert-only)에만 적용됩니다.
+ * MongoDB 트랜잭션 안에서 upsert 한 항목이 실패하면 트랜잭션이 이미 중단된 상태이므로, upsertAll 이 원장/실패 기록에 닿기 전에 예외를 던져 chunk 전체가 롤백됩니다.
+ */
+@Slf4j
+public class RestoreBatchWriter<S> implements ItemWriter<RestoreBatch<S, MemberActivityDocument>> {
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
+    private final RestoreLedgerService restoreLedgerService;
+    private final Class<S> sourceType;
+    private final Function<S, Object> idOf;
+    private final Function<S, String> messageKeyOf;
+    private final WriteProfile profile;
+
+    private boolean insertOnly;
+    private String claimToken;
+
+    /**
+     * @param idOf         원본 문서의 _id (완료 처리/실패 기록 대상)
+     * @param messageKeyOf 원본에서 변환한 member_activities 의 message_key (저장 실패 결과를 원본에 대응시킬 때 사용)
+     */
+    public RestoreBatchWriter(
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
+            MemberActivityMongoTemplate memberActivityMongoTemplate,
+            RestoreLedgerService restoreLedgerService,
+            Class<S> sourceType,
+            Function<S, Object> idOf,
+            Function<S, String> messageKeyOf,
+            WriteProfile profile) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+        this.restoreLedgerService = restoreLedgerService;
+        this.sourceType = sourceType;
+        this.idOf = idOf;
+        this.messageKeyOf = messageKeyOf;
+        this.profile = profile;
+    }
+
+    /**
+     * 사전 중복 조회 없이 insert 하고 uk_message_key 중복은 이미 복구된 것으로 처리 (기본값: false, bulk upsert)
+     */
+    public void setInsertOnly(boolean insertOnly) {
+        this.insertOnly = insertOnly;
+    }
+
+    /**
+     * 선점(claim) 모드로 읽은 경우의 선점 토큰 (기본값: null, 완료 처리만 수행)
+     */
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    @Override
+    public void write(Chunk<? extends RestoreBatch<S, MemberActivityDocument>> chunk) throws Exception {
+        List<MemberActivityDocument> allMemberActivities = new ArrayList<>();
+        List<S> convertedDocuments = new ArrayList<>();
+        Map<Object, String> failedIds = new LinkedHashMap<>();
+
+        // chunk.getItems()는 List<RestoreBatch> 이므로 flatten
+        for (RestoreBatch<S, MemberActivityDocument> batch : chunk.getItems()) {
+            allMemberActivities.addAll(batch.getTargets());
+            convertedDocuments.addAll(batch.getSources());
+            batch.getFailures().forEach((document, error) -> failedIds.put(idOf.apply(document), error));
+        }
+
+        // 변환 실패 문서의 retry_count, next_attempt_at 기록 (최대 시도 횟수를 넘기면 dead_letter_quarantine 으로 이동)
+        deadLetterMongoTemplate.recordFailures(sourceType, failedIds);
+
+        if (allMemberActivities.isEmpty()) {
+            log.info("No documents to save in this chunk");
+            if (claimToken != null) {
+                // 재시도 대기(next_attempt_at)가 기록된 문서의 선점 해제
+                deadLetterMongoTemplate.releaseClaims(sourceType, claimToken);
+            }
+            return;
+        }
+
+        try {
+            // Redis 원장에 이미 복구된 것으로 기록된 messageKey 는 MongoDB 접근 없이 제외
+            Set<String> restoredMessageKeys = restoreLedgerService.findRestored(
+                    RestoreLedgerService.SCOPE_MEMBER_ACTIVITIES,
+                    allMemberActivities.stream().map(MemberActivityDocument::getMessageKey).toList());
+
+            List<MemberActivityDocument> memberActivitiesToSave = allMemberActivities.stream()
+                    .filter(doc -> doc.getMessageKey() == null || !restoredMessageKeys.contains(doc.getMessageKey()))
+                    .toList();
+
+            MemberActivityMongoTemplate.BulkSaveResult saveResult = insertOnly
+                    ? memberActivityMongoTemplate.insertIgnoringDuplicates(
+                            memberActivitiesToSave, profile.getWriteConcern(), profile.getBulkMode())
+                    : memberActivityMongoTemplate.upsertAll(
+                            memberActivitiesToSave, profile.getWriteConcern(), profile.getBulkMode());
+            if (saveResult.failedWithoutMessageKey() > 0) {
+                // 원본을 특정할 수 없으므로 chunk 전체를 실패 처리
+                throw new IllegalStateException(saveResult.failedWithoutMessageKey() + " member activities without messageKey failed to save");
+            }
+            Map<String, String> failedMessageKeys = saveResult.failedMessageKeys();
+
+            log.info("Saved member activities from {}: inserted={}, upserted={}, matched={}, duplicate={}, failed={} ({} skipped by restore ledger)",
+                    sourceType.getSimpleName(),
+                    saveResult.count(MemberActivityMongoTemplate.Outcome.INSERTED),
+                    saveResult.count(MemberActivityMongoTemplate.Outcome.UPSERTED),
+                    saveResult.count(MemberActivityMongoTemplate.Outcome.MATCHED),
+                    saveResult.count(MemberActivityMongoTemplate.Outcome.DUPLICATE),
+                    failedMessageKeys.size(),
+                    allMemberActivities.size() - memberActivitiesToSave.size());
+
+            restoreLedgerService.markRestored(
+                    RestoreLedgerService.SCOPE_MEMBER_ACTIVITIES,
+                    saveResult.succeededMessageKeys());
+
+            // 저장에 실패한 messageKey 의 원본은 완료 처리하지 않고 재시도 대상으로 기록
+            List<Object> completedIds = new ArrayList<>();
+            Map<Object, String> saveFailures = new LinkedHashMap<>();
+            for (S document : convertedDocuments) {
+                String messageKey = messageKeyOf.apply(document);
+                String error = messageKey != null ? failedMessageKeys.get(messageKey) : null;
+                if (error != null) {
+                    saveFailures.put(idOf.apply(document), error);
+                } else {
+                    completedIds.add(idOf.apply(document));
+                }
+            }
+            deadLetterMongoTemplate.recordFailures(sourceType, saveFailures);
+
+            // 저장까지 성공한 원본만 한 번의 updateMulti 로 isCompleted=true 처리
+            long updatedCount;
+            if (claimToken != null) {
+                updatedCount = deadLetterMongoTemplate.markCompletedAndReleaseClaims(sourceType, completedIds);
+                deadLetterMongoTemplate.releaseClaims(sourceType, claimToken);
+            } else {
+                updatedCount = deadLetterMongoTemplate.markCompleted(sourceType, completedIds);
+            }
+
+            log.info("Updated {} {} documents to isCompleted=true", updatedCount, sourceType.getSimpleName());
+
+        } catch (Exception e) {
+            log.error("Failed to save member activities. Transaction will rollback.", e);
+
+            // 예외를 다시 던져서 Spring Batch가 실패를 인지하도록 함
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package click.dailyfeed.batch.config.job.activity.archive;
+
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.support.ArchiveTarget;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityBucketResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.nio.file.Path;
+
+/**
+ * 오래된 member_activities cold tier 보관 잡
+ * 보관 기간(horizonDays)이 지난 활동을 cold 컬렉션 또는 segment 파일로 옮기고 원본에서 삭제하여
+ * hot 컬렉션의 인덱스가 메모리에 머물고 복구 쓰기 지연이 데이터 누적과 무관하게 유지되도록 합니다.
+ *
+ * 실행 예: --spring.batch.job.name=memberActivityArchiveJob horizonDays=180 archiveTarget=segment
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class MemberActivityArchiveJobConfig {
+    public static final String COLD_COLLECTION_SUFFIX = "_cold";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final MemberActivityBucketResolver bucketResolver;
+
+    public MemberActivityArchiveJobConfig(
+            MongoTemplate mongoTemplate,
+            ObjectMapper objectMapper,
+            MemberActivityBucketResolver bucketResolver) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.bucketResolver = bucketResolver;
+    }
+
+    @Bean
+    public Job memberActivityArchiveJob(
+            JobRepository jobRepository,
+            Step memberActivityArchiveStep) {
+        return new JobBuilder("memberActivityArchiveJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(memberActivityArchiveStep)
+                .build();
+    }
+
+    /**
+     * 한 페이지의 보관과 삭제가 execute 한 번에 바로 반영되며, 재시작 위치는 ExecutionContext 의 keyset 으로 이어갑니다. (ResourcelessTransactionManager)
+     */
+    @Bean
+    public Step memberActivityArchiveStep(
+            JobRepository jobRepository,
+            Tasklet memberActivityArchiveTasklet) {
+        return new StepBuilder("memberActivityArchiveStep", jobRepository)
+                .tasklet(memberActivityArchiveTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public Tasklet memberActivityArchiveTasklet(
+            @Value("#{jobParameters['archiveTarget'] ?: '${batch.member-activity-archive.target:collection}'}") String archiveTarget,
+            @Value("#{jobParameters['archivePath'] ?: '${batch.member-activity-archive.path:member-activity-archive}'}") String archivePath,
+            @Value("#{jobParameters['horizonDays'] ?: '${batch.member-activity-archive.horizon-days:180}'}") Integer horizonDays,
+            @Value("#{jobParameters['batchSize'] ?: '${batch.member-activity-archive.batch-size:1000}'}") Integer batchSize,
+            @Value("#{jobParameters['throttleMillis'] ?: '${batch.member-activity-archive.throttle-millis:200}'}") Long throttleMillis) {
+        String collectionName = bucketResolver.getBaseCollectionName();
+        ArchiveTarget target = ArchiveTarget.from(archiveTarget);
+
+        log.info("Archiving {} documents older than {} days to {} (batchSize={}, throttleMillis={})",
+                collectionName, horizonDays, target, batchSize, throttleMillis);
+
+        return new MemberActivityArchiveTasklet(
+                mongoTemplate,
+                objectMapper,
+                collectionName,
+                collectionName + COLD_COLLECTION_SUFFIX,
+                target,
+                Path.of(archivePath),
+                horizonDays,
+                batchSize,
+                throttleMillis);
+    }
+}
@@ -0,0 +1,195 @@
+package click.dailyfeed.batch.config.job.activity.archive;
+
+import click.dailyfeed.batch.config.job.segment.SegmentArchive;
+import click.dailyfeed.batch.config.job.segment.SegmentIndex;
+import click.dailyfeed.batch.config.job.support.ArchiveTarget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.DeleteResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 보관 기간(horizonDays)이 지난 member_activities 를 cold 컬렉션 또는 gzip NDJSON segment 로 옮긴 뒤 삭제합니다.
+ * - (created_at, _id) keyset 으로 오래된 문서부터 batchSize 건씩 읽으며, 한 번의 execute 호출이 한 페이지를 처리하고 CONTINUABLE 을 반환합니다.
+ * - COLLECTION: cold 컬렉션에 _id 기준 replace(upsert) bulkWrite, SEGMENT: segment + sidecar 인덱스 기록(fsync) 후 manifest 갱신
+ * - 보관이 끝난 페이지의 _id 만 deleteMany 로 삭제하므로 한 번에 삭제하는 건수는 batchSize 를 넘지 않습니다.
+ * - 페이지 사이에 throttleMillis 만큼 쉬어 복구 잡/서비스의 쓰기와 경합하지 않도록 합니다.
+ *
+ * 시작 시점의 기준 시각(cutoff), 마지막으로 처리한 (created_at, _id), segment 디렉토리는 ExecutionContext 에 저장되므로
+ * 재시작 시 같은 기준으로 이어서 처리합니다. 보관 후 삭제 전에 중단되면 해당 페이지를 다시 보관합니다. (cold 컬렉션은 덮어쓰므로 중복 없음)
+ */
+@Slf4j
+public class MemberActivityArchiveTasklet implements Tasklet {
+    private static final String CUTOFF_KEY = "archive.cutoff";
+    private static final String LAST_CREATED_AT_KEY = "archive.last.created_at";
+    private static final String LAST_ID_KEY = "archive.last.id";
+
+    private static final String CREATED_AT_FIELD = "created_at";
+    private static final String ID_FIELD = "_id";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final String collectionName;
+    private final String coldCollectionName;
+    private final ArchiveTarget target;
+    private final SegmentArchive segmentArchive;
+    private final int horizonDays;
+    private final int batchSize;
+    private final long throttleMillis;
+
+    public MemberActivityArchiveTasklet(
+            MongoTemplate mongoTemplate,
+            ObjectMapper objectMapper,
+            String collectionName,
+            String coldCollectionName,
+            ArchiveTarget target,
+            Path archiveRoot,
+            int horizonDays,
+            int batchSize,
+            long throttleMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.collectionName = collectionName;
+        this.coldCollectionName = coldCollectionName;
+        this.target = target;
+        this.segmentArchive = new SegmentArchive(objectMapper, archiveRoot, collectionName);
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.throttleMillis = throttleMillis;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+
+        // 기준 시각은 처음 실행할 때 한 번만 정함 (created_at 과 같은 변환을 거친 Date)
+        if (!executionContext.containsKey(CUTOFF_KEY)) {
+            Date cutoff = (Date) mongoTemplate.getConverter().convertToMongoType(LocalDateTime.now().minusDays(horizonDays));
+            executionContext.putLong(CUTOFF_KEY, cutoff.getTime());
+            ensureIndexes();
+        }
+        Date cutoff = new Date(executionContext.getLong(CUTOFF_KEY));
+        Date lastCreatedAt = executionContext.containsKey(LAST_CREATED_AT_KEY)
+                ? new Date(executionContext.getLong(LAST_CREATED_AT_KEY))
+                : null;
+        ObjectId lastId = executionContext.containsKey(LAST_ID_KEY)
+                ? new ObjectId(executionContext.getString(LAST_ID_KEY))
+                : null;
+
+        List<Document> page = findArchivable(cutoff, lastCreatedAt, lastId);
+        if (page.isEmpty()) {
+            log.info("No {} documents created before {} left to archive", collectionName, cutoff);
+            return RepeatStatus.FINISHED;
+        }
+
+        // 1. 보관
+        if (target == ArchiveTarget.COLLECTION) {
+            copyToColdCollection(page);
+        } else {
+            writeSegment(executionContext, page);
+        }
+
+        // 2. 보관이 끝난 페이지의 _id 만 삭제 (기준 시각 조건을 함께 걸어 그 사이 변경된 문서는 삭제하지 않음)
+        List<Object> ids = page.stream().map(document -> document.get(ID_FIELD)).toList();
+        DeleteResult deleteResult = mongoTemplate.remove(
+                new Query(Criteria.where(ID_FIELD).in(ids).and(CREATED_AT_FIELD).lt(cutoff)),
+                collectionName);
+
+        Document last = page.get(page.size() - 1);
+        executionContext.putLong(LAST_CREATED_AT_KEY, last.getDate(CREATED_AT_FIELD).getTime());
+        executionContext.putString(LAST_ID_KEY, last.getObjectId(ID_FIELD).toHexString());
+        contribution.incrementReadCount();
+        contribution.incrementWriteCount(deleteResult.getDeletedCount());
+        log.info("Archived {} {} documents to {} (created_at <= {}) and deleted {}",
+                page.size(), collectionName, target, last.getDate(CREATED_AT_FIELD), deleteResult.getDeletedCount());
+
+        if (page.size() < batchSize) {
+            return RepeatStatus.FINISHED;
+        }
+
+        if (throttleMillis > 0) {
+            Thread.sleep(throttleMillis);
+        }
+        return RepeatStatus.CONTINUABLE;
+    }
+
+    // created_at < cutoff AND (created_at, _id) > (lastCreatedAt, lastId) 를 (created_at, _id) 오름차순으로 batchSize 건 조회
+    private List<Document> findArchivable(Date cutoff, Date lastCreatedAt, ObjectId lastId) {
+        Criteria criteria = Criteria.where(CREATED_AT_FIELD).lt(cutoff);
+        if (lastCreatedAt != null) {
+            criteria = new Criteria().andOperator(
+                    criteria,
+                    new Criteria().orOperator(
+                            Criteria.where(CREATED_AT_FIELD).gt(lastCreatedAt),
+                            Criteria.where(CREATED_AT_FIELD).is(lastCreatedAt).and(ID_FIELD).gt(lastId)));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, CREATED_AT_FIELD, ID_FIELD))
+                .limit(batchSize);
+        return mongoTemplate.find(query, Document.class, collectionName);
+    }
+
+    private void copyToColdCollection(List<Document> page) {
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, coldCollectionName);
+        for (Document document : page) {
+            bulkOperations.replaceOne(
+                    new Query(Criteria.where(ID_FIELD).is(document.get(ID_FIELD))),
+                    document,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulkOperations.execute();
+    }
+
+    /**
+     * - 원본: (created_at, _id) keyset 조회가 정렬 없이 인덱스 순서로 읽히도록 {created_at: 1, _id: 1}
+     * - cold 컬렉션: 회원별 기간 조회용 {member_id: 1, created_at: -1}
+     */
+    private void ensureIndexes() {
+        String keysetIndex = mongoTemplate.indexOps(collectionName).ensureIndex(new Index()
+                .on(CREATED_AT_FIELD, Sort.Direction.ASC)
+                .on(ID_FIELD, Sort.Direction.ASC)
+                .named("idx_created_id"));
+        log.info("Ensured index {} on {}", keysetIndex, collectionName);
+
+        if (target == ArchiveTarget.COLLECTION) {
+            String coldIndex = mongoTemplate.indexOps(coldCollectionName).ensureIndex(new Index()
+                    .on("member_id", Sort.Direction.ASC)
+                    .on(CREATED_AT_FIELD, Sort.Direction.DESC)
+                    .named("idx_member_created"));
+            log.info("Ensured index {} on {}", coldIndex, coldCollectionName);
+        }
+    }
+
+    /**
+     * segment 와 sidecar 인덱스를 기록한 뒤 manifest 를 갱신합니다. (manifest 에 있는 segment 는 항상 sidecar 가 함께 있음)
+     */
+    private void writeSegment(ExecutionContext executionContext, List<Document> page) throws Exception {
+        SegmentArchive.Appended appended = segmentArchive.append(executionContext, page, (directory, fileName) -> {
+            SegmentIndex segmentIndex = new SegmentIndex(fileName);
+            for (Document document : page) {
+                Object memberId = document.get("member_id");
+                segmentIndex.add(memberId instanceof Number number ? number.longValue() : null, document.getDate(CREATED_AT_FIELD));
+            }
+            segmentIndex.writeTo(directory, objectMapper);
+        });
+        log.debug("Wrote segment {} ({} documents, sha256={})", appended.segment().getFile(), page.size(), appended.segment().getSha256());
+    }
+}
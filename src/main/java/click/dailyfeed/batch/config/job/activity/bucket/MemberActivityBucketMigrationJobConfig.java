@@ -0,0 +1,173 @@
+package click.dailyfeed.batch.config.job.activity.bucket;
+
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.config.job.reader.MongoKeysetItemReader;
+import click.dailyfeed.batch.config.job.support.ScanReadPreference;
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityBucketResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * member_activities → 월별 컬렉션(member_activities_yyyyMM) 이관 잡
+ * 기존 문서를 _id 범위로 나누어 병렬로 읽고, created_at 의 월 컬렉션에 _id 기준 replace(upsert) 로 복사합니다.
+ * - _id 와 created_at 을 그대로 유지하므로 여러 번 실행해도 결과가 같습니다. (중단 시 재실행)
+ * - 원본은 삭제하지 않습니다. 이관이 끝나면 batch.member-activity.storage=monthly 로 전환합니다.
+ * - 전환 전까지 들어온 문서는 다시 실행하여 복사합니다.
+ * - 월 컬렉션에는 uk_message_key 가 설치되므로, 같은 월에 message_key 가 중복된 문서가 있으면 해당 chunk 가 실패합니다.
+ *
+ * 실행 예: --spring.batch.job.name=memberActivityBucketMigrationJob gridSize=8
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class MemberActivityBucketMigrationJobConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoTemplate secondaryMongoTemplate;
+    private final MemberActivityBucketResolver bucketResolver;
+
+    private static final int BATCH_SIZE = 500;
+
+    public MemberActivityBucketMigrationJobConfig(
+            MongoTemplate mongoTemplate,
+            @Qualifier("secondaryMongoTemplate") MongoTemplate secondaryMongoTemplate,
+            MemberActivityBucketResolver bucketResolver) {
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
+        this.bucketResolver = bucketResolver;
+    }
+
+    @Bean
+    public Job memberActivityBucketMigrationJob(
+            JobRepository jobRepository,
+            Step memberActivityBucketMigrationPartitionStep) {
+        return new JobBuilder("memberActivityBucketMigrationJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(memberActivityBucketMigrationPartitionStep)
+                .build();
+    }
+
+    /**
+     * member_activities 전체를 겹치지 않는 _id 범위로 나누어 worker step 들이 병렬로 복사합니다.
+     * 파티션 수는 jobParameters['gridSize'] 또는 batch.member-activity.migration-grid-size 로 설정합니다.
+     */
+    @Bean
+    @JobScope
+    public Step memberActivityBucketMigrationPartitionStep(
+            JobRepository jobRepository,
+            Step memberActivityBucketMigrationStep,
+            @Value("#{jobParameters['gridSize'] ?: '${batch.member-activity.migration-grid-size:4}'}") Integer gridSize) {
+        return new StepBuilder("memberActivityBucketMigrationPartitionStep", jobRepository)
+                .partitioner(memberActivityBucketMigrationStep.getName(), new ObjectIdRangePartitioner(
+                        mongoTemplate,
+                        MemberActivityDocument.class,
+                        new Criteria()))
+                .step(memberActivityBucketMigrationStep)
+                .gridSize(gridSize)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("activity-bucket-range-", gridSize))
+                .build();
+    }
+
+    @Bean
+    public Step memberActivityBucketMigrationStep(
+            JobRepository jobRepository,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
+            ItemStreamReader<List<MemberActivityDocument>> memberActivityBucketReader,
+            ItemWriter<List<MemberActivityDocument>> memberActivityBucketWriter) {
+        return new StepBuilder("memberActivityBucketMigrationStep", jobRepository)
+                .<List<MemberActivityDocument>, List<MemberActivityDocument>>chunk(1, transactionManager)
+                .reader(memberActivityBucketReader)
+                .writer(memberActivityBucketWriter)
+                .build();
+    }
+
+    /**
+     * 파티션의 [minId, maxId) 범위를 _id keyset 으로 순회합니다. (재시작 시 마지막 _id 이후부터)
+     * 원본은 갱신하지 않으므로 scanReadPreference=secondary 로 스캔을 secondary 에 보낼 수 있습니다.
+     */
+    @Bean
+    @StepScope
+    public ItemStreamReader<List<MemberActivityDocument>> memberActivityBucketReader(
+            @Value("#{stepExecutionContext['minId']}") String minId,
+            @Value("#{stepExecutionContext['maxId']}") String maxId,
+            @Value("#{jobParameters['scanReadPreference'] ?: '${batch.mongo-restore.scan-read-preference:primary}'}") String scanReadPreference) {
+        MongoKeysetItemReader<MemberActivityDocument> reader = new MongoKeysetItemReader<>(
+                ScanReadPreference.from(scanReadPreference).select(mongoTemplate, secondaryMongoTemplate),
+                MemberActivityDocument.class,
+                new Criteria(),
+                BATCH_SIZE
+        );
+        reader.setName("memberActivityBucketReader");
+        reader.setCursorBatchSize(BATCH_SIZE * 2);
+        reader.setRange(minId, maxId);
+        return reader;
+    }
+
+    /**
+     * 월 컬렉션별로 묶어 UNORDERED bulkWrite 로 _id 기준 replace(upsert) 합니다.
+     * 월 컬렉션은 처음 쓸 때 인덱스가 설치됩니다. created_at 이 없는 문서는 _id 의 생성 시각으로 월을 정합니다.
+     */
+    @Bean
+    @StepScope
+    public ItemWriter<List<MemberActivityDocument>> memberActivityBucketWriter() {
+        return chunk -> {
+            Map<String, List<Document>> rowsByBucket = new LinkedHashMap<>();
+            for (List<MemberActivityDocument> page : chunk.getItems()) {
+                for (MemberActivityDocument document : page) {
+                    LocalDateTime createdAt = document.getCreatedAt() != null
+                            ? document.getCreatedAt()
+                            : LocalDateTime.ofInstant(document.getId().getDate().toInstant(), ZoneId.systemDefault());
+
+                    Document row = new Document();
+                    mongoTemplate.getConverter().write(document, row);
+                    rowsByBucket.computeIfAbsent(bucketResolver.bucketFor(createdAt), bucket -> new ArrayList<>()).add(row);
+                }
+            }
+
+            for (Map.Entry<String, List<Document>> entry : rowsByBucket.entrySet()) {
+                String bucket = entry.getKey();
+                bucketResolver.prepareBucket(bucket);
+
+                BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, bucket);
+                for (Document row : entry.getValue()) {
+                    bulkOperations.replaceOne(
+                            new Query(Criteria.where("_id").is(row.get("_id"))),
+                            row,
+                            FindAndReplaceOptions.options().upsert());
+                }
+                bulkOperations.execute();
+                log.info("Copied {} member activities into {}", entry.getValue().size(), bucket);
+            }
+        };
+    }
+}
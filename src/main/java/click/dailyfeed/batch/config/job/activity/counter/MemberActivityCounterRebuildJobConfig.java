@@ -0,0 +1,90 @@
+package click.dailyfeed.batch.config.job.activity.counter;
+
+import click.dailyfeed.batch.config.job.activity.archive.MemberActivityArchiveJobConfig;
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityBucketResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * member_activity_counters 재집계 잡
+ * 복구 잡은 자신이 새로 저장한 활동만 카운터에 $inc 하므로, 다른 서비스가 member_activities 에 직접 저장한 활동과
+ * 카운터 도입 이전의 활동은 이 잡을 실행해야 카운터에 반영됩니다. 카운터는 이 잡을 한 번 실행한 뒤부터 전체 건수로 볼 수 있습니다.
+ * - 집계 대상: 현재 저장 방식의 컬렉션 전체 (SINGLE: member_activities + member_activities_cold, MONTHLY: 월 컬렉션 전체)
+ * - segment 파일로 보관(archiveTarget=segment)한 활동은 MongoDB 에 없으므로 집계되지 않습니다.
+ * - 집계 중 복구 잡이 반영한 $inc 는 교체되는 기존 컬렉션에 기록되어 사라지므로, member_activities 에 쓰는 잡(복구/보관/버킷 이전)이
+ *   실행 중이거나 집계 중에 실행되면 카운터를 교체하지 않고 실패합니다. (MemberActivityCounterRebuildTasklet)
+ *
+ * 실행 예: --spring.batch.job.name=memberActivityCounterRebuildJob
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class MemberActivityCounterRebuildJobConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final MemberActivityBucketResolver bucketResolver;
+    private final JobExplorer jobExplorer;
+
+    public MemberActivityCounterRebuildJobConfig(
+            MongoTemplate mongoTemplate,
+            MemberActivityBucketResolver bucketResolver,
+            JobExplorer jobExplorer) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketResolver = bucketResolver;
+        this.jobExplorer = jobExplorer;
+    }
+
+    @Bean
+    public Job memberActivityCounterRebuildJob(
+            JobRepository jobRepository,
+            Step memberActivityCounterRebuildStep) {
+        return new JobBuilder("memberActivityCounterRebuildJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(memberActivityCounterRebuildStep)
+                .build();
+    }
+
+    /**
+     * $out 과 renameCollection 은 트랜잭션 안에서 실행할 수 없으므로 ResourcelessTransactionManager 를 사용합니다.
+     */
+    @Bean
+    public Step memberActivityCounterRebuildStep(
+            JobRepository jobRepository,
+            Tasklet memberActivityCounterRebuildTasklet) {
+        return new StepBuilder("memberActivityCounterRebuildStep", jobRepository)
+                .tasklet(memberActivityCounterRebuildTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public Tasklet memberActivityCounterRebuildTasklet() {
+        List<String> sourceCollections = new ArrayList<>(bucketResolver.allCollections());
+        if (!bucketResolver.isBucketed()) {
+            // 보관 잡(archiveTarget=collection)이 옮긴 활동
+            String coldCollection = bucketResolver.getBaseCollectionName() + MemberActivityArchiveJobConfig.COLD_COLLECTION_SUFFIX;
+            if (mongoTemplate.collectionExists(coldCollection)) {
+                sourceCollections.add(coldCollection);
+            }
+        }
+
+        log.info("Rebuilding member activity counters from {}", sourceCollections);
+        return new MemberActivityCounterRebuildTasklet(mongoTemplate, jobExplorer, sourceCollections);
+    }
+}
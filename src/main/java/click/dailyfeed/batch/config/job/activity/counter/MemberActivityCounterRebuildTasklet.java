@@ -0,0 +1,177 @@
+package click.dailyfeed.batch.config.job.activity.counter;
+
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityCounterDocument;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * member_activities 전체를 집계하여 member_activity_counters 를 다시 만듭니다.
+ * $unionWith(나머지 컬렉션) → $match(대상이 있는 활동) → $group(대상, 활동 타입) → $project(카운터 형태) → $out(임시 컬렉션) 이 모두 MongoDB 안에서 실행되고,
+ * 집계가 끝나면 임시 컬렉션을 renameCollection(dropTarget) 으로 member_activity_counters 와 한 번에 교체합니다.
+ * - 집계 중에는 기존 카운터를 그대로 읽을 수 있고, 중단되면 임시 컬렉션만 남으므로 다시 실행하면 됩니다. ($out 이 덮어씀)
+ * - _id 와 target_type 규칙은 MemberActivityCounterDocument.counterIdOf 와 같습니다. (comment_id 가 있으면 댓글, 없으면 게시글)
+ *
+ * 집계 중에 복구 잡이 기존 카운터에 $inc 한 값은 교체로 사라지고, $unionWith 가 이미 지나간 뒤 저장된 활동은 어느 쪽에도 집계되지 않으므로,
+ * member_activities 에 쓰는 잡(복구 잡, 보관 잡, 버킷 이전 잡)과 동시에 실행하면 카운터가 영구히 적게 집계됩니다.
+ * - 시작할 때 그런 잡이 실행 중이면 집계하지 않고 실패합니다.
+ * - 교체 직전에 다시 확인하여, 집계 중에 그런 잡이 실행 중이었거나 새로 시작되었으면 임시 컬렉션을 버리고 실패합니다. (기존 카운터는 그대로)
+ * - 다른 서비스가 member_activities 에 직접 저장하는 활동은 확인할 수 없으므로, 그 쓰기가 없는 시간대에 실행합니다.
+ */
+@Slf4j
+public class MemberActivityCounterRebuildTasklet implements Tasklet {
+    private static final String TEMP_SUFFIX = "_rebuild";
+
+    // 이름에 Restore 가 들어가는 복구 잡 외에 member_activities 에 쓰는 잡
+    private static final Set<String> CONFLICTING_JOB_NAMES = Set.of(
+            "memberActivityArchiveJob",
+            "memberActivityBucketMigrationJob");
+
+    private final MongoTemplate mongoTemplate;
+    private final JobExplorer jobExplorer;
+    private final List<String> sourceCollections;
+
+    public MemberActivityCounterRebuildTasklet(MongoTemplate mongoTemplate, JobExplorer jobExplorer, List<String> sourceCollections) {
+        this.mongoTemplate = mongoTemplate;
+        this.jobExplorer = jobExplorer;
+        this.sourceCollections = sourceCollections;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        String counterCollection = mongoTemplate.getCollectionName(MemberActivityCounterDocument.class);
+        String tempCollection = counterCollection + TEMP_SUFFIX;
+        if (sourceCollections.isEmpty()) {
+            log.info("No member_activities collections to aggregate, {} is left unchanged", counterCollection);
+            return RepeatStatus.FINISHED;
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<String> conflicts = conflictingJobs(null);
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException(String.format(
+                    "Cannot rebuild %s while %s is running. Counters would be undercounted; re-run after they finish.",
+                    counterCollection, conflicts));
+        }
+
+        // 1. 서버 안에서 집계하여 임시 컬렉션에 기록
+        Object timestamp = mongoTemplate.getConverter().convertToMongoType(startedAt);
+        List<AggregationOperation> operations = new ArrayList<>();
+        sourceCollections.subList(1, sourceCollections.size())
+                .forEach(collection -> operations.add(UnionWithOperation.unionWith(collection)));
+        operations.add(Aggregation.match(new Criteria().andOperator(
+                Criteria.where("member_activity_type").ne(null),
+                new Criteria().orOperator(
+                        Criteria.where("comment_id").ne(null),
+                        Criteria.where("post_id").ne(null)))));
+        operations.add(projectTarget());
+        operations.add(context -> new Document("$group", new Document("_id", new Document()
+                .append("target_type", "$target_type")
+                .append("target_id", "$target_id")
+                .append("member_activity_type", "$member_activity_type"))
+                .append("count", new Document("$sum", 1L))));
+        operations.add(projectCounter(timestamp));
+        operations.add(Aggregation.out(tempCollection));
+
+        mongoTemplate.aggregate(
+                Aggregation.newAggregation(operations)
+                        .withOptions(AggregationOptions.builder().allowDiskUse(true).build()),
+                sourceCollections.get(0),
+                Document.class);
+
+        // 2. 집계 중에 member_activities 에 쓰는 잡이 실행되었으면 교체하지 않음
+        conflicts = conflictingJobs(startedAt);
+        if (!conflicts.isEmpty()) {
+            mongoTemplate.dropCollection(tempCollection);
+            throw new IllegalStateException(String.format(
+                    "%s ran while rebuilding %s. Discarded the rebuilt counters; re-run after they finish.",
+                    conflicts, counterCollection));
+        }
+
+        // 3. 집계가 끝난 임시 컬렉션으로 한 번에 교체
+        long counters = mongoTemplate.getCollection(tempCollection).estimatedDocumentCount();
+        mongoTemplate.getCollection(tempCollection).renameCollection(
+                new MongoNamespace(mongoTemplate.getDb().getName(), counterCollection),
+                new RenameCollectionOptions().dropTarget(true));
+
+        contribution.incrementWriteCount(counters);
+        log.info("Rebuilt {} from {}: {} counters", counterCollection, sourceCollections, counters);
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * member_activities 에 쓰는 잡 중 실행 중인 잡 (since 가 있으면 since 이후 마지막 실행이 시작된 잡도 포함)
+     * 비정상 종료로 STARTED 상태가 남은 실행도 실행 중으로 보므로, 그런 실행은 FAILED/ABANDONED 로 정리한 뒤 실행합니다.
+     */
+    private List<String> conflictingJobs(LocalDateTime since) {
+        List<String> conflicts = new ArrayList<>();
+        for (String jobName : jobExplorer.getJobNames()) {
+            if (!jobName.contains("Restore") && !CONFLICTING_JOB_NAMES.contains(jobName)) {
+                continue;
+            }
+            if (!jobExplorer.findRunningJobExecutions(jobName).isEmpty() || startedSince(jobName, since)) {
+                conflicts.add(jobName);
+            }
+        }
+        return conflicts;
+    }
+
+    private boolean startedSince(String jobName, LocalDateTime since) {
+        if (since == null) {
+            return false;
+        }
+        JobInstance lastInstance = jobExplorer.getLastJobInstance(jobName);
+        JobExecution lastExecution = lastInstance == null ? null : jobExplorer.getLastJobExecution(lastInstance);
+        return lastExecution != null
+                && lastExecution.getStartTime() != null
+                && !lastExecution.getStartTime().isBefore(since);
+    }
+
+    // comment_id 가 있으면 댓글, 없으면 게시글 대상
+    private static AggregationOperation projectTarget() {
+        List<Object> isComment = new ArrayList<>();
+        isComment.add("$comment_id");
+        isComment.add(null);
+        Document hasComment = new Document("$gt", isComment);
+
+        Document projection = new Document("_id", 0)
+                .append("target_type", new Document("$cond", List.of(
+                        hasComment, MemberActivityCounterDocument.TARGET_COMMENT, MemberActivityCounterDocument.TARGET_POST)))
+                .append("target_id", new Document("$cond", List.of(hasComment, "$comment_id", "$post_id")))
+                .append("member_activity_type", "$member_activity_type");
+        return context -> new Document("$project", projection);
+    }
+
+    // _id: {target_type}:{target_id}:{member_activity_type}
+    private static AggregationOperation projectCounter(Object timestamp) {
+        Document projection = new Document("_id", new Document("$concat", List.of(
+                "$_id.target_type", ":",
+                new Document("$toString", "$_id.target_id"), ":",
+                "$_id.member_activity_type")))
+                .append("target_type", "$_id.target_type")
+                .append("target_id", "$_id.target_id")
+                .append("member_activity_type", "$_id.member_activity_type")
+                .append("count", "$count")
+                .append("updated_at", new Document("$literal", timestamp));
+        return context -> new Document("$project", projection);
+    }
+}
@@ -0,0 +1,123 @@
+package click.dailyfeed.batch.config.job.activity.listener.cleanup;
+
+import click.dailyfeed.batch.config.job.segment.SegmentArchive;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.DeleteResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 보존 기간이 지난 완료(is_completed=true) dead letter 를 gzip NDJSON segment 로 보관한 뒤 삭제합니다.
+ * - 한 번의 execute 호출이 한 페이지(= 한 segment)를 처리하고 CONTINUABLE 을 반환합니다.
+ * - segment 가 디스크에 기록(fsync)되고 manifest 가 갱신된 뒤에만 segment 에 기록한 _id 들을 deleteMany 로 삭제합니다.
+ * - 페이지 사이에 throttleMillis 만큼 쉬어 복구 잡/서비스의 쓰기와 경합하지 않도록 합니다.
+ *
+ * 보관 디렉토리와 마지막으로 삭제한 _id 는 StepExecution 의 ExecutionContext 에 저장되므로 재시작 시 같은 디렉토리에 이어서 기록합니다.
+ */
+@Slf4j
+public class DeadLetterArchiveTasklet implements Tasklet {
+    private static final String LAST_ID_KEY = "archive.last.id";
+
+    private final MongoTemplate mongoTemplate;
+    private final String collectionName;
+    private final SegmentArchive segmentArchive;
+    private final int retentionDays;
+    private final int batchSize;
+    private final long throttleMillis;
+
+    public DeadLetterArchiveTasklet(
+            MongoTemplate mongoTemplate,
+            ObjectMapper objectMapper,
+            Class<?> documentType,
+            Path archiveRoot,
+            int retentionDays,
+            int batchSize,
+            long throttleMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionName = mongoTemplate.getCollectionName(documentType);
+        this.segmentArchive = new SegmentArchive(objectMapper, archiveRoot, collectionName);
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.throttleMillis = throttleMillis;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+
+        Object lastId = toId(executionContext.getString(LAST_ID_KEY, null));
+        List<Document> page = findArchivable(cutoff, lastId);
+        if (page.isEmpty()) {
+            log.info("No completed {} documents older than {} left to archive", collectionName, cutoff);
+            return RepeatStatus.FINISHED;
+        }
+
+        // 1. segment 기록 (fsync 포함) 및 manifest 갱신
+        SegmentArchive.Appended appended = segmentArchive.append(executionContext, page, null);
+
+        // 2. segment 에 기록한 페이지의 _id 만 삭제
+        //    (조회 이후 보관 조건을 새로 만족하게 된 문서는 segment 에 없으므로 _id 범위가 아니라 _id 목록으로 삭제하고,
+        //     보관 조건을 함께 걸어 그 사이 다시 미완료로 바뀐 문서는 삭제하지 않음)
+        List<Object> ids = page.stream().map(document -> document.get("_id")).toList();
+        Object pageLastId = ids.get(ids.size() - 1);
+        DeleteResult deleteResult = mongoTemplate.remove(
+                new Query(archivableCriteria(cutoff).and("_id").in(ids)),
+                collectionName);
+
+        executionContext.putString(LAST_ID_KEY, pageLastId.toString());
+        contribution.incrementReadCount();
+        contribution.incrementWriteCount(deleteResult.getDeletedCount());
+        log.info("Archived segment {} ({} documents, sha256={}) and deleted {} {} documents",
+                appended.segment().getFile(), page.size(), appended.segment().getSha256(), deleteResult.getDeletedCount(), collectionName);
+
+        if (page.size() < batchSize) {
+            log.info("Archived {} completed {} documents in {} segments to {}",
+                    appended.manifest().totalLines(), collectionName, appended.manifest().getSegments().size(), appended.directory());
+            return RepeatStatus.FINISHED;
+        }
+
+        if (throttleMillis > 0) {
+            Thread.sleep(throttleMillis);
+        }
+        return RepeatStatus.CONTINUABLE;
+    }
+
+    // is_completed=true AND created_at < cutoff AND _id > lastId 를 _id 오름차순으로 batchSize 건 조회
+    private List<Document> findArchivable(LocalDateTime cutoff, Object lastId) {
+        Criteria criteria = archivableCriteria(cutoff);
+        if (lastId != null) {
+            criteria.and("_id").gt(lastId);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        return mongoTemplate.find(query, Document.class, collectionName);
+    }
+
+    private Criteria archivableCriteria(LocalDateTime cutoff) {
+        return Criteria.where("is_completed").is(Boolean.TRUE)
+                .and("created_at").lt(cutoff);
+    }
+
+    private static Object toId(String id) {
+        if (id != null && ObjectId.isValid(id)) {
+            return new ObjectId(id);
+        }
+        return id;
+    }
+}
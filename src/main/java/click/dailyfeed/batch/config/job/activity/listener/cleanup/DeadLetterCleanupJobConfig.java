@@ -0,0 +1,162 @@
+package click.dailyfeed.batch.config.job.activity.listener.cleanup;
+
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
+import click.dailyfeed.batch.domain.redisdlq.document.RedisDLQDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.FeignDeadLetterDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaListenerDeadLetterDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaPublisherDeadLetterDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.job.builder.SimpleJobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 완료된 dead letter 보관(archive) 및 정리 잡
+ * - 컬렉션마다 하나의 스텝이 보존 기간(retentionDays)이 지난 완료 문서를 gzip NDJSON 으로 보관한 뒤 기록한 _id 들만 삭제합니다.
+ * - installTtlIndexes=true 이면 마지막 스텝에서 완료 문서 TTL 인덱스(ttl_completed_created)를 설치합니다.
+ *
+ * 실행 예: --spring.batch.job.name=deadLetterCleanupJob retentionDays=30 installTtlIndexes=true ttlDays=90
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class DeadLetterCleanupJobConfig {
+    private static final String TTL_INDEX_NAME = "ttl_completed_created";
+
+    // 스텝 이름 → 정리 대상 dead letter 문서 타입
+    private static final Map<String, Class<?>> CLEANUP_TARGETS = new LinkedHashMap<>();
+
+    static {
+        CLEANUP_TARGETS.put("listenerDeadLetterCleanupStep", ListenerDeadLetterDocument.class);
+        CLEANUP_TARGETS.put("kafkaListenerDeadLetterCleanupStep", KafkaListenerDeadLetterDocument.class);
+        CLEANUP_TARGETS.put("kafkaPublisherDeadLetterCleanupStep", KafkaPublisherDeadLetterDocument.class);
+        CLEANUP_TARGETS.put("feignDeadLetterCleanupStep", FeignDeadLetterDocument.class);
+        CLEANUP_TARGETS.put("redisDeadLetterCleanupStep", RedisDLQDocument.class);
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    public DeadLetterCleanupJobConfig(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 보관 파일 기록과 삭제는 트랜잭션으로 묶을 수 없고(파일), 대량 삭제를 하나의 트랜잭션에 담지 않도록
+     * 스텝은 ResourcelessTransactionManager 를 사용합니다. (삭제는 페이지마다 즉시 반영)
+     */
+    @Bean
+    public Job deadLetterCleanupJob(
+            JobRepository jobRepository,
+            Tasklet deadLetterArchiveTasklet,
+            Tasklet deadLetterTtlIndexTasklet) {
+        List<Step> archiveSteps = CLEANUP_TARGETS.keySet().stream()
+                .map(stepName -> new StepBuilder(stepName, jobRepository)
+                        .tasklet(deadLetterArchiveTasklet, new ResourcelessTransactionManager())
+                        .build())
+                .toList();
+
+        SimpleJobBuilder jobBuilder = new JobBuilder("deadLetterCleanupJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(archiveSteps.get(0));
+        for (Step step : archiveSteps.subList(1, archiveSteps.size())) {
+            jobBuilder.next(step);
+        }
+
+        return jobBuilder
+                .next(new StepBuilder("deadLetterTtlIndexStep", jobRepository)
+                        .tasklet(deadLetterTtlIndexTasklet, new ResourcelessTransactionManager())
+                        .build())
+                .build();
+    }
+
+    /**
+     * 스텝마다 별도 인스턴스가 생성되며, 스텝 이름으로 정리할 컬렉션을 결정합니다.
+     */
+    @Bean
+    @StepScope
+    public Tasklet deadLetterArchiveTasklet(
+            @Value("#{stepExecution.stepName}") String stepName,
+            @Value("#{jobParameters['archivePath'] ?: '${batch.dead-letter-cleanup.path:dead-letter-archive}'}") String archivePath,
+            @Value("#{jobParameters['retentionDays'] ?: '${batch.dead-letter-cleanup.retention-days:30}'}") Integer retentionDays,
+            @Value("#{jobParameters['batchSize'] ?: '${batch.dead-letter-cleanup.batch-size:1000}'}") Integer batchSize,
+            @Value("#{jobParameters['throttleMillis'] ?: '${batch.dead-letter-cleanup.throttle-millis:200}'}") Long throttleMillis) {
+        Class<?> documentType = CLEANUP_TARGETS.get(stepName);
+        if (documentType == null) {
+            throw new IllegalStateException("Unknown dead letter cleanup step: " + stepName);
+        }
+
+        log.info("Archiving completed {} documents older than {} days to {} (batchSize={}, throttleMillis={})",
+                mongoTemplate.getCollectionName(documentType), retentionDays, archivePath, batchSize, throttleMillis);
+
+        return new DeadLetterArchiveTasklet(
+                mongoTemplate,
+                objectMapper,
+                documentType,
+                Path.of(archivePath),
+                retentionDays,
+                batchSize,
+                throttleMillis);
+    }
+
+    /**
+     * 완료 문서만 대상으로 하는 TTL 인덱스 설치 (created_at 기준 ttlDays 후 MongoDB 가 자동 삭제)
+     * TTL 로 삭제된 문서는 보관되지 않으므로 ttlDays 는 이 잡의 실행 주기를 고려해 retentionDays 보다 충분히 길게 설정합니다.
+     */
+    @Bean
+    @StepScope
+    public Tasklet deadLetterTtlIndexTasklet(
+            @Value("#{jobParameters['installTtlIndexes'] ?: '${batch.dead-letter-cleanup.install-ttl-indexes:false}'}") String installTtlIndexes,
+            @Value("#{jobParameters['retentionDays'] ?: '${batch.dead-letter-cleanup.retention-days:30}'}") Integer retentionDays,
+            @Value("#{jobParameters['ttlDays'] ?: '${batch.dead-letter-cleanup.ttl-days:90}'}") Integer ttlDays) {
+        return (contribution, chunkContext) -> {
+            if (!Boolean.parseBoolean(installTtlIndexes)) {
+                log.info("Skipping TTL index installation (installTtlIndexes=false)");
+                return RepeatStatus.FINISHED;
+            }
+
+            if (ttlDays <= retentionDays) {
+                log.warn("ttlDays({}) <= retentionDays({}). Completed documents may expire before they are archived.",
+                        ttlDays, retentionDays);
+            }
+
+            for (Class<?> documentType : CLEANUP_TARGETS.values()) {
+                String collectionName = mongoTemplate.getCollectionName(documentType);
+                Index ttlIndex = new Index()
+                        .on("created_at", Sort.Direction.ASC)
+                        .expire(Duration.ofDays(ttlDays))
+                        .partial(PartialIndexFilter.of(Criteria.where("is_completed").is(Boolean.TRUE)))
+                        .named(TTL_INDEX_NAME);
+
+                String indexName = mongoTemplate.indexOps(collectionName).ensureIndex(ttlIndex);
+                log.info("Ensured TTL index {} on {} (expireAfter={} days)", indexName, collectionName, ttlDays);
+            }
+            return RepeatStatus.FINISHED;
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package click.dailyfeed.batch.config.job.activity.listener.restore;
+
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * listener_dead_letters → member_activities 서버 측 복구 잡 ($merge)
+ * payloadFormat=bson 으로 적재된(payload_document) 문서만 대상으로 하며, 나머지는 activityListenerRestoreFromMongoDBJob 이 처리합니다.
+ * 복구한 활동은 member_activity_counters 에 반영되지 않으므로, 이 잡이 끝난 뒤 memberActivityCounterRebuildJob 을 실행합니다.
+ *
+ * 실행 예: --spring.batch.job.name=activityListenerMergeRestoreJob batchSize=10000
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class ActivityListenerMergeRestoreJobConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
+
+    public ActivityListenerMergeRestoreJobConfig(
+            MongoTemplate mongoTemplate,
+            MemberActivityMongoTemplate memberActivityMongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+    }
+
+    @Bean
+    public Job activityListenerMergeRestoreJob(
+            JobRepository jobRepository,
+            Step activityListenerMergeRestoreStep) {
+        return new JobBuilder("activityListenerMergeRestoreJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(activityListenerMergeRestoreStep)
+                .build();
+    }
+
+    /**
+     * $merge 는 트랜잭션 안에서 실행할 수 없으므로 ResourcelessTransactionManager 를 사용합니다. (범위마다 즉시 반영)
+     */
+    @Bean
+    public Step activityListenerMergeRestoreStep(
+            JobRepository jobRepository,
+            Tasklet listenerDeadLetterMergeTasklet) {
+        return new StepBuilder("activityListenerMergeRestoreStep", jobRepository)
+                .tasklet(listenerDeadLetterMergeTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public Tasklet listenerDeadLetterMergeTasklet(
+            @Value("#{jobParameters['batchSize'] ?: '${batch.mongo-restore.merge-batch-size:10000}'}") Integer batchSize) {
+        log.info("Merging listener_dead_letters into member_activities (batchSize={})", batchSize);
+        return new ListenerDeadLetterMergeTasklet(mongoTemplate, memberActivityMongoTemplate, batchSize);
+    }
+}
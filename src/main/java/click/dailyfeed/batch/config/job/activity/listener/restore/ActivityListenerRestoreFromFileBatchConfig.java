@@ -1,6 +1,7 @@
 package click.dailyfeed.batch.config.job.activity.listener.restore;
 
 import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.support.DeadLetterPayloadFormat;
 import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
 import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.ListenerDeadLetterRepository;
 import click.dailyfeed.batch.domain.activity.member.mapper.MemberActivityMapper;
@@ -16,6 +17,7 @@ import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.MultiResourceItemReader;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -91,7 +93,7 @@ public class ActivityListenerRestoreFromFileBatchConfig {
     @Bean
     public Step activityListenerRestoreFromFileStep(
             JobRepository jobRepository,
-            PlatformTransactionManager transactionManager,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
             MultiResourceItemReader<File> activityListenerFileReader,
             ItemProcessor<File, ProcessedItem> activityListenerFileProcessor,
             ItemWriter<ProcessedItem> activityListenerDeadLetterWriter) {
@@ -190,7 +192,9 @@ public class ActivityListenerRestoreFromFileBatchConfig {
 
     @Bean
     @StepScope
-    public ItemProcessor<File, ProcessedItem> activityListenerFileProcessor() {
+    public ItemProcessor<File, ProcessedItem> activityListenerFileProcessor(
+            @Value("#{jobParameters['payloadFormat'] ?: '${batch.dead-letter.payload-format:string}'}") String payloadFormat) {
+        DeadLetterPayloadFormat format = DeadLetterPayloadFormat.from(payloadFormat);
         return originalFile -> {
             File editingFile = null;
             try {
@@ -215,7 +219,7 @@ public class ActivityListenerRestoreFromFileBatchConfig {
 
                 // Step 3: ListenerDeadLetterDocument 생성
                 String jsonPayload = objectMapper.writeValueAsString(memberActivityMessage);
-                ListenerDeadLetterDocument document = ListenerDeadLetterDocument.newDeadLetter(
+                ListenerDeadLetterDocument document = format.newListenerDeadLetter(
                         memberActivityMessage.getKey(),  // messageKey
                         jsonPayload,                     // payload
                         memberActivityMessage.getEvent().getCreatedAt()  // publishedAt
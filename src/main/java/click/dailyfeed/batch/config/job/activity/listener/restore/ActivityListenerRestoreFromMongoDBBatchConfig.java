@@ -1,150 +1,202 @@
 package click.dailyfeed.batch.config.job.activity.listener.restore;
 
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.activity.RestoreBatchWriter;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
 import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.config.job.reader.MongoClaimItemReader;
+import click.dailyfeed.batch.config.job.reader.MongoKeysetItemReader;
+import click.dailyfeed.batch.config.job.support.RestoreOrdering;
+import click.dailyfeed.batch.config.job.support.ScanReadPreference;
+import click.dailyfeed.batch.config.job.support.WriteProfile;
 import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
-import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.ListenerDeadLetterRepository;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
 import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
 import click.dailyfeed.batch.domain.activity.member.mapper.MemberActivityMapper;
-import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoRepository;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
 import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Slf4j
 @Profile("!test")
 @Configuration
 public class ActivityListenerRestoreFromMongoDBBatchConfig {
 
-    private final ListenerDeadLetterRepository listenerDeadLetterRepository;
-    private final MemberActivityMongoRepository memberActivityMongoRepository;
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
     private final MemberActivityMapper memberActivityMapper;
     private final ObjectMapper objectMapper;
+    private final RestoreLedgerService restoreLedgerService;
+    private final MongoTemplate mongoTemplate;
+    private final MongoTemplate secondaryMongoTemplate;
 
-    // ThreadLocal로 현재 처리 중인 ListenerDeadLetterDocument들을 추적 (롤백용)
-    private static final ThreadLocal<List<ListenerDeadLetterDocument>> currentBatchDocuments =
-            new ThreadLocal<>();
+    private static final int BATCH_SIZE = 30;
+    private static final String READ_MODE_CLAIM = "claim";
 
     public ActivityListenerRestoreFromMongoDBBatchConfig(
-            ListenerDeadLetterRepository listenerDeadLetterRepository,
-            MemberActivityMongoRepository memberActivityMongoRepository,
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
+            MemberActivityMongoTemplate memberActivityMongoTemplate,
             MemberActivityMapper memberActivityMapper,
-            ObjectMapper objectMapper) {
-        this.listenerDeadLetterRepository = listenerDeadLetterRepository;
-        this.memberActivityMongoRepository = memberActivityMongoRepository;
+            ObjectMapper objectMapper,
+            RestoreLedgerService restoreLedgerService,
+            MongoTemplate mongoTemplate,
+            @Qualifier("secondaryMongoTemplate") MongoTemplate secondaryMongoTemplate) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
         this.memberActivityMapper = memberActivityMapper;
         this.objectMapper = objectMapper;
+        this.restoreLedgerService = restoreLedgerService;
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
     }
 
     @Bean
     public Job activityListenerRestoreFromMongoDBJob(
             JobRepository jobRepository,
-            Step activityListenerRestoreFromMongoDBStep) {
+            Step activityListenerRestoreFromMongoDBPartitionStep) {
         return new JobBuilder("activityListenerRestoreFromMongoDBJob", jobRepository)
                 .incrementer(new RequestedAtSimpleIncrementer())
-                .start(activityListenerRestoreFromMongoDBStep)
+                .start(activityListenerRestoreFromMongoDBPartitionStep)
+                .build();
+    }
+
+    /**
+     * is_completed=false 문서를 겹치지 않는 _id 범위로 나누어 worker step 들이 병렬로 처리합니다.
+     * 파티션 수는 jobParameters['gridSize'] 또는 batch.mongo-restore.grid-size 로 설정합니다. (기본값 1: 단일 범위)
+     */
+    @Bean
+    @JobScope
+    public Step activityListenerRestoreFromMongoDBPartitionStep(
+            JobRepository jobRepository,
+            Step activityListenerRestoreFromMongoDBStep,
+            @Value("#{jobParameters['gridSize'] ?: '${batch.mongo-restore.grid-size:1}'}") Integer gridSize) {
+        return new StepBuilder("activityListenerRestoreFromMongoDBPartitionStep", jobRepository)
+                .partitioner(activityListenerRestoreFromMongoDBStep.getName(), new ObjectIdRangePartitioner(
+                        mongoTemplate,
+                        ListenerDeadLetterDocument.class,
+                        DeadLetterMongoTemplate.restorableCriteria()))
+                .step(activityListenerRestoreFromMongoDBStep)
+                .gridSize(gridSize)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("listener-dlq-range-", gridSize))
                 .build();
     }
 
     @Bean
     public Step activityListenerRestoreFromMongoDBStep(
             JobRepository jobRepository,
-            PlatformTransactionManager transactionManager,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
             ItemReader<List<ListenerDeadLetterDocument>> listenerDeadLetterReader,
-            ItemProcessor<List<ListenerDeadLetterDocument>, List<MemberActivityDocument>> listenerDeadLetterProcessor,
-            ItemWriter<List<MemberActivityDocument>> memberActivityWriter) {
+            ItemProcessor<List<ListenerDeadLetterDocument>, RestoreBatch<ListenerDeadLetterDocument, MemberActivityDocument>> listenerDeadLetterProcessor,
+            ItemWriter<RestoreBatch<ListenerDeadLetterDocument, MemberActivityDocument>> memberActivityWriter) {
         return new StepBuilder("activityListenerRestoreFromMongoDBStep", jobRepository)
-                .<List<ListenerDeadLetterDocument>, List<MemberActivityDocument>>chunk(1, transactionManager)
+                .<List<ListenerDeadLetterDocument>, RestoreBatch<ListenerDeadLetterDocument, MemberActivityDocument>>chunk(1, transactionManager)
                 .reader(listenerDeadLetterReader)
                 .processor(listenerDeadLetterProcessor)
                 .writer(memberActivityWriter)
                 .build();
     }
 
+    /**
+     * is_completed=false 문서를 _id keyset 으로 순회하는 streaming reader
+     * 마지막으로 읽은 _id 를 ExecutionContext 에 저장하므로 재시작 시 이어서 읽습니다.
+     * 완료 처리는 updateMulti 로 하므로 변환에 필요한 필드만 projection 합니다.
+     * 파티션으로 실행되면 해당 파티션의 [minId, maxId) 범위만 읽습니다.
+     * ordering: oldest(기본값, 오래된 문서부터) | newest
+     *
+     * readMode=claim 이면 is_editing 으로 문서를 선점한 뒤 선점한 문서만 처리합니다. (여러 노드 동시 실행용, 항상 oldest 순서)
+     */
     @Bean
     @StepScope
-    public ItemReader<List<ListenerDeadLetterDocument>> listenerDeadLetterReader() {
-        return new ItemReader<List<ListenerDeadLetterDocument>>() {
-            private static final int BATCH_SIZE = 30;
-            private boolean hasMore = true;
-
-            @Override
-            public List<ListenerDeadLetterDocument> read() {
-                if (!hasMore) {
-                    return null;
-                }
-
-                try {
-                    log.debug("Reading batch from ListenerDeadLetter (isCompleted=false)");
-                    Pageable pageable = PageRequest.of(0, BATCH_SIZE);
-
-                    List<ListenerDeadLetterDocument> documents =
-                            listenerDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc(Boolean.FALSE, pageable);
-
-                    if (documents != null && !documents.isEmpty()) {
-                        log.info("Fetched {} ListenerDeadLetter documents", documents.size());
-
-                        // ThreadLocal에 저장 (롤백용)
-                        currentBatchDocuments.set(new ArrayList<>(documents));
-
-                        // 30건 미만이면 다음 읽기에서 null 반환
-                        if (documents.size() < BATCH_SIZE) {
-                            hasMore = false;
-                        }
-
-                        return documents;
-                    } else {
-                        log.info("No more ListenerDeadLetter documents to process");
-                        hasMore = false;
-                        return null;
-                    }
-                } catch (Exception e) {
-                    log.error("Error reading from ListenerDeadLetterRepository", e);
-                    hasMore = false;
-                    return null;
-                }
-            }
-        };
+    public ItemStreamReader<List<ListenerDeadLetterDocument>> listenerDeadLetterReader(
+            @Value("#{stepExecutionContext['minId']}") String minId,
+            @Value("#{stepExecutionContext['maxId']}") String maxId,
+            @Value("#{jobParameters['ordering'] ?: '${batch.mongo-restore.ordering:oldest}'}") String ordering,
+            @Value("#{jobParameters['readMode'] ?: '${batch.mongo-restore.read-mode:keyset}'}") String readMode,
+            @Value("#{jobParameters['claimLeaseSeconds'] ?: '${batch.mongo-restore.claim-lease-seconds:600}'}") Long claimLeaseSeconds,
+            @Value("#{jobParameters['scanReadPreference'] ?: '${batch.mongo-restore.scan-read-preference:primary}'}") String scanReadPreference,
+            @Value("#{stepExecution}") StepExecution stepExecution) {
+        if (READ_MODE_CLAIM.equalsIgnoreCase(readMode)) {
+            MongoClaimItemReader<ListenerDeadLetterDocument> reader = new MongoClaimItemReader<>(
+                    deadLetterMongoTemplate,
+                    mongoTemplate,
+                    ListenerDeadLetterDocument.class,
+                    DeadLetterMongoTemplate.restorableCriteria(),
+                    BATCH_SIZE,
+                    MongoClaimItemReader.claimToken(stepExecution)
+            );
+            reader.setName("listenerDeadLetterReader");
+            reader.setLeaseTimeout(Duration.ofSeconds(claimLeaseSeconds));
+            reader.setRange(minId, maxId);
+            reader.setFields("messageKey", "payload", "payloadDocument");
+            return reader;
+        }
+
+        // claim 모드는 선점(쓰기)이 필요하므로 항상 primary, keyset 스캔만 secondary 로 보낼 수 있음
+        MongoKeysetItemReader<ListenerDeadLetterDocument> reader = new MongoKeysetItemReader<>(
+                ScanReadPreference.from(scanReadPreference).select(mongoTemplate, secondaryMongoTemplate),
+                ListenerDeadLetterDocument.class,
+                DeadLetterMongoTemplate.restorableCriteria(),
+                BATCH_SIZE
+        );
+        reader.setName("listenerDeadLetterReader");
+        reader.setDirection(RestoreOrdering.from(ordering).getDirection());
+        reader.setCursorBatchSize(BATCH_SIZE * 4);
+        reader.setRange(minId, maxId);
+        reader.setFields("messageKey", "payload", "payloadDocument");
+        return reader;
     }
 
     @Bean
     @StepScope
-    public ItemProcessor<List<ListenerDeadLetterDocument>, List<MemberActivityDocument>> listenerDeadLetterProcessor() {
+    public ItemProcessor<List<ListenerDeadLetterDocument>, RestoreBatch<ListenerDeadLetterDocument, MemberActivityDocument>> listenerDeadLetterProcessor() {
         return documents -> {
             if (documents.isEmpty()) {
                 log.debug("Empty document list, skipping processing");
                 return null;
             }
 
+            // 변환에 성공한 원본만 완료 처리 대상으로 writer 에 전달
+            List<ListenerDeadLetterDocument> convertedDocuments = new ArrayList<>();
             List<MemberActivityDocument> memberActivityDocuments = new ArrayList<>();
+            // 변환에 실패한 원본은 실패 사유와 함께 전달하여 재시도 횟수를 기록 (한도 초과 시 격리)
+            Map<ListenerDeadLetterDocument, String> failures = new LinkedHashMap<>();
 
             for (ListenerDeadLetterDocument document : documents) {
                 try {
                     log.debug("Processing ListenerDeadLetterDocument: messageKey={}", document.getMessageKey());
 
-                    // JSON 페이로드를 MemberActivityMessage로 변환
+                    // JSON 페이로드를 MemberActivityMessage로 변환 (payload_document 로 저장된 경우 JSON 으로 변환 후 사용)
                     MemberActivityTransportDto.MemberActivityMessage memberActivityMessage =
                             objectMapper.readValue(
-                                    document.getPayload(),
+                                    document.payloadJson(),
                                     MemberActivityTransportDto.MemberActivityMessage.class
                             );
 
@@ -156,6 +208,7 @@ public class ActivityListenerRestoreFromMongoDBBatchConfig {
                             );
 
                     memberActivityDocuments.add(memberActivityDocument);
+                    convertedDocuments.add(document);
 
                     log.debug("Successfully converted to MemberActivityDocument: messageKey={}",
                             document.getMessageKey());
@@ -163,95 +216,37 @@ public class ActivityListenerRestoreFromMongoDBBatchConfig {
                 } catch (Exception e) {
                     log.error("Error processing ListenerDeadLetterDocument: messageKey={}, error={}",
                             document.getMessageKey(), e.getMessage(), e);
-                    // 처리 실패한 항목은 건너뜀
+                    // 처리 실패한 항목은 건너뛰고 재시도 대상으로 기록
+                    failures.put(document, e.getClass().getSimpleName() + ": " + e.getMessage());
                 }
             }
 
             log.info("Processed {} documents into {} MemberActivityDocuments", documents.size(), memberActivityDocuments.size());
-            return memberActivityDocuments.isEmpty() ? null : memberActivityDocuments;
+            RestoreBatch<ListenerDeadLetterDocument, MemberActivityDocument> restoreBatch =
+                    RestoreBatch.of(convertedDocuments, memberActivityDocuments, failures);
+            return restoreBatch.isEmpty() ? null : restoreBatch;
         };
     }
 
     @Bean
     @StepScope
-    public ItemWriter<List<MemberActivityDocument>> memberActivityWriter() {
-        return chunk -> {
-            List<MemberActivityDocument> allMemberActivities = new ArrayList<>();
-
-            // chunk.getItems()는 List<List<MemberActivityDocument>> 이므로 flatten
-            for (List<MemberActivityDocument> memberActivityList : chunk.getItems()) {
-                if (memberActivityList != null && !memberActivityList.isEmpty()) {
-                    allMemberActivities.addAll(memberActivityList);
-                }
-            }
-
-            if (allMemberActivities.isEmpty()) {
-                log.info("No documents to save in this chunk");
-                currentBatchDocuments.remove();
-                return;
-            }
-
-            try {
-                // 1. 중복 제거: member_activities에 이미 존재하는 messageKey 찾기
-                List<String> messageKeys = allMemberActivities.stream()
-                        .map(MemberActivityDocument::getMessageKey)
-                        .collect(Collectors.toList());
-
-                List<MemberActivityDocument> existingDocs =
-                        memberActivityMongoRepository.findByMessageKeyIn(messageKeys);
-
-                Set<String> existingMessageKeys = existingDocs.stream()
-                        .map(MemberActivityDocument::getMessageKey)
-                        .collect(Collectors.toSet());
-
-                log.info("Found {} existing messageKeys in member_activities", existingMessageKeys.size());
-
-                // 2. 중복되지 않은 항목만 필터링
-                List<MemberActivityDocument> memberActivitiesToSave = allMemberActivities.stream()
-                        .filter(doc -> !existingMessageKeys.contains(doc.getMessageKey()))
-                        .collect(Collectors.toList());
-
-                log.info("Filtered out {} duplicates. {} documents will be inserted.",
-                        existingMessageKeys.size(), memberActivitiesToSave.size());
-
-                // 3. member_activities 컬렉션에 저장
-                if (!memberActivitiesToSave.isEmpty()) {
-                    memberActivityMongoRepository.saveAll(memberActivitiesToSave);
-                    log.info("Saved {} member activities to member_activities collection",
-                            memberActivitiesToSave.size());
-                }
-
-                // 4. listener_dead_letters 문서의 isCompleted를 true로 업데이트
-                List<ListenerDeadLetterDocument> documentsToUpdate = currentBatchDocuments.get();
-                if (documentsToUpdate != null && !documentsToUpdate.isEmpty()) {
-                    int updatedCount = 0;
-                    for (ListenerDeadLetterDocument doc : documentsToUpdate) {
-                        try {
-                            doc.markAsCompleted();
-                            listenerDeadLetterRepository.save(doc);
-                            updatedCount++;
-                            log.debug("Marked as completed: messageKey={}", doc.getMessageKey());
-                        } catch (Exception e) {
-                            log.error("Failed to update isCompleted for messageKey={}: {}",
-                                    doc.getMessageKey(), e.getMessage(), e);
-                        }
-                    }
-
-                    log.info("Updated {} listener_dead_letters documents to isCompleted=true", updatedCount);
-                }
-
-                // 성공 시 ThreadLocal 정리
-                currentBatchDocuments.remove();
-
-            } catch (Exception e) {
-                log.error("Failed to save member activities. Transaction will rollback.", e);
-
-                // ThreadLocal 정리
-                currentBatchDocuments.remove();
-
-                // 예외를 다시 던져서 Spring Batch가 실패를 인지하도록 함
-                throw e;
-            }
-        };
+    public ItemWriter<RestoreBatch<ListenerDeadLetterDocument, MemberActivityDocument>> memberActivityWriter(
+            @Value("#{jobParameters['writeProfile'] ?: '${batch.mongo-restore.write-profile:balanced}'}") String writeProfile,
+            @Value("#{jobParameters['readMode'] ?: '${batch.mongo-restore.read-mode:keyset}'}") String readMode,
+            @Value("#{stepExecution}") StepExecution stepExecution) {
+        RestoreBatchWriter<ListenerDeadLetterDocument> writer = new RestoreBatchWriter<>(
+                deadLetterMongoTemplate,
+                memberActivityMongoTemplate,
+                restoreLedgerService,
+                ListenerDeadLetterDocument.class,
+                ListenerDeadLetterDocument::getId,
+                ListenerDeadLetterDocument::getMessageKey,
+                WriteProfile.from(writeProfile));
+        // 사전 중복 조회 없이 uk_message_key 가 중복을 막고, 중복 건은 이미 복구된 것으로 처리
+        writer.setInsertOnly(true);
+        if (READ_MODE_CLAIM.equalsIgnoreCase(readMode)) {
+            writer.setClaimToken(MongoClaimItemReader.claimToken(stepExecution));
+        }
+        return writer;
     }
-}
\ No newline at end of file
+}
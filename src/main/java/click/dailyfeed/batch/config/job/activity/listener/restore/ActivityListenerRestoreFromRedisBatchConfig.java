@@ -1,8 +1,15 @@
 package click.dailyfeed.batch.config.job.activity.listener.restore;
 
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
 import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.LanePartitioner;
+import click.dailyfeed.batch.config.job.support.ChunkRollbackActions;
+import click.dailyfeed.batch.config.job.support.DeadLetterPayloadFormat;
 import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
 import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.ListenerDeadLetterRepository;
+import click.dailyfeed.batch.domain.activity.deadletters.service.MemberActivityDLQMultiPopService;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
 import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
 import click.dailyfeed.code.domain.activity.type.MemberActivityType;
 import click.dailyfeed.kafka.domain.activity.redis.MemberActivityEventDLQRedisService;
@@ -10,6 +17,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
@@ -17,13 +25,17 @@ import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -35,39 +47,60 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
     private final ListenerDeadLetterRepository listenerDeadLetterRepository;
     private final MemberActivityEventDLQRedisService memberActivityEventDLQRedisService;
     private final ObjectMapper objectMapper;
-
-    // ThreadLocal로 현재 처리 중인 MemberActivityMessage들을 추적 (롤백용)
-    private static final ThreadLocal<List<MemberActivityTransportDto.MemberActivityMessage>> currentBatchMessages =
-            new ThreadLocal<>();
+    private final RestoreLedgerService restoreLedgerService;
+    private final MemberActivityDLQMultiPopService memberActivityDLQMultiPopService;
 
     public ActivityListenerRestoreFromRedisBatchConfig(
             ListenerDeadLetterRepository listenerDeadLetterRepository,
             MemberActivityEventDLQRedisService memberActivityEventDLQRedisService,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            RestoreLedgerService restoreLedgerService,
+            MemberActivityDLQMultiPopService memberActivityDLQMultiPopService) {
         this.listenerDeadLetterRepository = listenerDeadLetterRepository;
         this.memberActivityEventDLQRedisService = memberActivityEventDLQRedisService;
         this.objectMapper = objectMapper;
+        this.restoreLedgerService = restoreLedgerService;
+        this.memberActivityDLQMultiPopService = memberActivityDLQMultiPopService;
     }
 
     @Bean
     public Job activityListenerRestoreFromRedisJob(
             JobRepository jobRepository,
-            Step activityListenerRestoreFromRedisStep) {
+            Step activityListenerRestoreFromRedisPartitionStep) {
         return new JobBuilder("activityListenerRestoreFromRedisJob", jobRepository)
                 .incrementer(new RequestedAtSimpleIncrementer())
-                .start(activityListenerRestoreFromRedisStep)
+                .start(activityListenerRestoreFromRedisPartitionStep)
+                .build();
+    }
+
+    /**
+     * MemberActivityType 별 Redis DLQ 를 N개의 lane 으로 동시에 소비합니다.
+     * 각 lane 은 모든 타입을 순회하며, LPOP 이 원자적이므로 lane 끼리 같은 메시지를 가져가지 않습니다.
+     * lane 수는 jobParameters['lanes'] 또는 batch.redis-restore.lanes 로 설정합니다.
+     */
+    @Bean
+    @JobScope
+    public Step activityListenerRestoreFromRedisPartitionStep(
+            JobRepository jobRepository,
+            Step activityListenerRestoreFromRedisStep,
+            @Value("#{jobParameters['lanes'] ?: '${batch.redis-restore.lanes:4}'}") Integer lanes) {
+        return new StepBuilder("activityListenerRestoreFromRedisPartitionStep", jobRepository)
+                .partitioner(activityListenerRestoreFromRedisStep.getName(), new LanePartitioner())
+                .step(activityListenerRestoreFromRedisStep)
+                .gridSize(lanes)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("redis-dlq-type-lane-", lanes))
                 .build();
     }
 
     @Bean
     public Step activityListenerRestoreFromRedisStep(
             JobRepository jobRepository,
-            PlatformTransactionManager transactionManager,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
             ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>> activityListenerRedisReader,
-            ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, List<ListenerDeadLetterDocument>> activityListenerRedisProcessor,
-            ItemWriter<List<ListenerDeadLetterDocument>> listenerDeadLetterWriter) {
+            ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, ListenerDeadLetterDocument>> activityListenerRedisProcessor,
+            ItemWriter<RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, ListenerDeadLetterDocument>> listenerDeadLetterWriter) {
         return new StepBuilder("activityListenerRestoreFromRedisStep", jobRepository)
-                .<List<MemberActivityTransportDto.MemberActivityMessage>, List<ListenerDeadLetterDocument>>chunk(1, transactionManager)
+                .<List<MemberActivityTransportDto.MemberActivityMessage>, RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, ListenerDeadLetterDocument>>chunk(1, transactionManager)
                 .reader(activityListenerRedisReader)
                 .processor(activityListenerRedisProcessor)
                 .writer(listenerDeadLetterWriter)
@@ -76,7 +109,14 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
 
     @Bean
     @StepScope
-    public ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>> activityListenerRedisReader() {
+    public ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>> activityListenerRedisReader(
+            @Value("#{jobParameters['popMode'] ?: '${batch.redis-dlq.pop-mode:per-type}'}") String popMode) {
+        if (MemberActivityDLQMultiPopService.POP_MODE_LUA.equalsIgnoreCase(popMode)) {
+            // key 패턴이 없으면 메시지를 꺼내기 전에 스텝을 실패시킴
+            memberActivityDLQMultiPopService.requireKeyPattern();
+            return multiTypeLuaReader();
+        }
+
         return new ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>>() {
             private static final int BATCH_SIZE = 30;
             private int activityTypeIndex = 0;
@@ -96,10 +136,8 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
                         if (messages != null && !messages.isEmpty()) {
                             log.info("Fetched {} messages from Redis DLQ for activityType: {}",
                                     messages.size(), activityType);
-
-                            // ThreadLocal에 저장 (롤백용)
-                            currentBatchMessages.set(new ArrayList<>(messages));
-
+                            // chunk 가 커밋되지 않으면(변환/저장/커밋 실패) 꺼낸 메시지를 Redis DLQ 로 되돌림
+                            ChunkRollbackActions.register(() -> pushBack(messages));
                             return messages;
                         } else {
                             log.debug("No messages found for activityType: {}", activityType);
@@ -116,9 +154,67 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
         };
     }
 
+    /**
+     * popMode=lua: 모든 타입의 DLQ 를 Lua 스크립트 한 번으로 꺼내는 reader
+     * 타입별 가중치(batch.redis-dlq.type-weights.*)로 chunk 를 나누므로 특정 타입이 굶지 않으며,
+     * 모든 타입이 비어 있을 때까지 반복합니다.
+     */
+    private ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>> multiTypeLuaReader() {
+        return new ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>>() {
+            private static final int BATCH_SIZE = 30;
+            private boolean hasMore = true;
+
+            @Override
+            public List<MemberActivityTransportDto.MemberActivityMessage> read() {
+                if (!hasMore) {
+                    return null;
+                }
+
+                try {
+                    Map<MemberActivityType, List<MemberActivityTransportDto.MemberActivityMessage>> grouped =
+                            memberActivityDLQMultiPopService.lPopTopNAllTypes(BATCH_SIZE);
+
+                    List<MemberActivityTransportDto.MemberActivityMessage> messages = new ArrayList<>();
+                    grouped.forEach((activityType, typeMessages) -> {
+                        log.debug("Fetched {} messages from Redis DLQ for activityType: {}", typeMessages.size(), activityType);
+                        messages.addAll(typeMessages);
+                    });
+
+                    if (grouped.isEmpty()) {
+                        log.info("Finished reading all messages from Redis DLQ");
+                        hasMore = false;
+                        return null;
+                    }
+
+                    log.info("Fetched {} messages from Redis DLQ across {} activity types", messages.size(), grouped.size());
+                    // chunk 가 커밋되지 않으면(변환/저장/커밋 실패) 꺼낸 메시지를 Redis DLQ 로 되돌림
+                    ChunkRollbackActions.register(() -> pushBack(messages));
+                    return messages;
+                } catch (Exception e) {
+                    log.error("Error reading from Redis DLQ with multi-type pop", e);
+                    hasMore = false;
+                    return null;
+                }
+            }
+        };
+    }
+
+    // multi-type pop 으로 여러 타입이 섞일 수 있으므로 타입별 DLQ 로 push
+    private void pushBack(List<MemberActivityTransportDto.MemberActivityMessage> messages) {
+        Map<MemberActivityType, List<MemberActivityTransportDto.MemberActivityMessage>> messagesByType =
+                messages.stream()
+                        .collect(Collectors.groupingBy(message -> message.getEvent().getMemberActivityType()));
+        for (List<MemberActivityTransportDto.MemberActivityMessage> typeMessages : messagesByType.values()) {
+            memberActivityEventDLQRedisService.rPushList(typeMessages);
+        }
+        log.warn("Rolled back {} messages to Redis DLQ after the chunk was not committed", messages.size());
+    }
+
     @Bean
     @StepScope
-    public ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, List<ListenerDeadLetterDocument>> activityListenerRedisProcessor() {
+    public ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, ListenerDeadLetterDocument>> activityListenerRedisProcessor(
+            @Value("#{jobParameters['payloadFormat'] ?: '${batch.dead-letter.payload-format:string}'}") String payloadFormat) {
+        DeadLetterPayloadFormat format = DeadLetterPayloadFormat.from(payloadFormat);
         return messages -> {
             if (messages.isEmpty()) {
                 log.debug("Empty message list, skipping processing");
@@ -135,7 +231,7 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
                     String jsonValue = objectMapper.writeValueAsString(message);
 
                     // ListenerDeadLetterDocument 생성
-                    ListenerDeadLetterDocument document = ListenerDeadLetterDocument.newDeadLetter(
+                    ListenerDeadLetterDocument document = format.newListenerDeadLetter(
                             message.getKey(),  // messageKey
                             jsonValue,         // payload
                             message.getEvent().getCreatedAt()  // publishedAt
@@ -155,42 +251,42 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
 
             log.info("Processed {} messages into {} ListenerDeadLetterDocuments",
                     messages.size(), documents.size());
-            return documents.isEmpty() ? null : documents;
+            // 원본 메시지를 함께 전달
+            return documents.isEmpty() ? null : RestoreBatch.of(messages, documents);
         };
     }
 
     @Bean
     @StepScope
-    public ItemWriter<List<ListenerDeadLetterDocument>> listenerDeadLetterWriter() {
+    public ItemWriter<RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, ListenerDeadLetterDocument>> listenerDeadLetterWriter() {
         return chunk -> {
             List<ListenerDeadLetterDocument> allDocuments = new ArrayList<>();
 
-            // chunk.getItems()는 List<List<ListenerDeadLetterDocument>> 이므로 flatten
-            for (List<ListenerDeadLetterDocument> documentList : chunk.getItems()) {
-                if (documentList != null && !documentList.isEmpty()) {
-                    allDocuments.addAll(documentList);
-                }
+            // chunk.getItems()는 List<RestoreBatch> 이므로 flatten
+            for (RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, ListenerDeadLetterDocument> batch : chunk.getItems()) {
+                allDocuments.addAll(batch.getTargets());
             }
 
             if (allDocuments.isEmpty()) {
                 log.info("No documents to save in this chunk");
-                currentBatchMessages.remove();
                 return;
             }
 
             try {
-                // 1. 중복 제거: listener_dead_letters에 이미 존재하는 messageKey 찾기
+                // 1. 중복 제거: Redis 원장에 기록된 messageKey 는 MongoDB 조회 없이 제외하고
+                //    나머지만 listener_dead_letters에 이미 존재하는지 확인
                 List<String> messageKeys = allDocuments.stream()
                         .map(ListenerDeadLetterDocument::getMessageKey)
                         .collect(Collectors.toList());
 
-                List<ListenerDeadLetterDocument> existingDocs = messageKeys.stream()
-                        .flatMap(messageKey -> listenerDeadLetterRepository.findByMessageKey(messageKey).stream())
-                        .collect(Collectors.toList());
+                Set<String> existingMessageKeys = new HashSet<>(restoreLedgerService.findRestored(
+                        RestoreLedgerService.SCOPE_LISTENER_DEAD_LETTERS, messageKeys));
 
-                Set<String> existingMessageKeys = existingDocs.stream()
+                messageKeys.stream()
+                        .filter(messageKey -> !existingMessageKeys.contains(messageKey))
+                        .flatMap(messageKey -> listenerDeadLetterRepository.findByMessageKey(messageKey).stream())
                         .map(ListenerDeadLetterDocument::getMessageKey)
-                        .collect(Collectors.toSet());
+                        .forEach(existingMessageKeys::add);
 
                 log.info("Found {} existing messageKeys in listener_dead_letters", existingMessageKeys.size());
 
@@ -209,26 +305,10 @@ public class ActivityListenerRestoreFromRedisBatchConfig {
                             documentsToSave.size());
                 }
 
-                // 성공 시 ThreadLocal 정리
-                currentBatchMessages.remove();
+                restoreLedgerService.markRestored(RestoreLedgerService.SCOPE_LISTENER_DEAD_LETTERS, messageKeys);
 
             } catch (Exception e) {
-                log.error("Failed to save ListenerDeadLetterDocuments to MongoDB. Rolling back to Redis DLQ.", e);
-
-                // 실패 시: ThreadLocal에 저장된 원본 메시지를 Redis에 다시 push
-                List<MemberActivityTransportDto.MemberActivityMessage> originalMessages = currentBatchMessages.get();
-                if (originalMessages != null && !originalMessages.isEmpty()) {
-                    try {
-                        // 원본 메시지를 Redis DLQ에 다시 push
-                        memberActivityEventDLQRedisService.rPushList(originalMessages);
-                        log.warn("Rolled back {} messages to Redis DLQ after MongoDB save failure",
-                                originalMessages.size());
-                    } catch (Exception rollbackEx) {
-                        log.error("CRITICAL: Failed to rollback messages to Redis DLQ. Data may be lost!", rollbackEx);
-                    } finally {
-                        currentBatchMessages.remove();
-                    }
-                }
+                log.error("Failed to save ListenerDeadLetterDocuments to MongoDB. Transaction will rollback and messages will be returned to Redis DLQ.", e);
 
                 // 예외를 다시 던져서 Spring Batch가 실패를 인지하도록 함
                 throw e;
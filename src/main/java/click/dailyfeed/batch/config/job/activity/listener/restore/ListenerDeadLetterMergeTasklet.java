@@ -0,0 +1,230 @@
+package click.dailyfeed.batch.config.job.activity.listener.restore;
+
+import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * payload_document(BSON)로 저장된 listener_dead_letters 를 집계 파이프라인으로 member_activities 에 복구합니다.
+ * $match(복구 대상) → $project(member_activities 형태) → $merge(message_key 기준, 이미 있으면 유지) 가 모두 MongoDB 안에서 실행되므로
+ * 문서가 배치 애플리케이션으로 전송되지 않습니다.
+ *
+ * - 한 번의 execute 호출이 _id 오름차순 batchSize 건 범위를 처리하고 CONTINUABLE 을 반환합니다.
+ * - $merge 가 끝난 뒤 같은 조건과 _id 범위의 원본만 is_completed=true 로 변경합니다.
+ * - $merge 는 트랜잭션 안에서 실행할 수 없으므로, 완료 처리 전에 중단되면 재실행 시 같은 범위를 다시 $merge 합니다. (keepExisting 이므로 중복 없음)
+ * - payload 가 문자열이거나 messageKey 가 없거나 알 수 없는 활동 타입인 문서는 건너뛰며, 기존 복구 잡(activityListenerRestoreFromMongoDBJob)이 처리합니다.
+ * - 월별 저장이면 다른 월 컬렉션에 같은 message_key 가 있는 문서는 $lookup 으로 걸러내어 $merge 하지 않고 완료 처리만 합니다.
+ * - $merge 로 저장한 활동은 member_activity_counters 에 반영되지 않습니다. 복구가 끝난 뒤 memberActivityCounterRebuildJob 으로 카운터를 다시 만듭니다.
+ *
+ * 시작 시점의 마지막 _id 와 마지막으로 처리한 _id 는 ExecutionContext 에 저장되므로 재시작 시 이어서 처리합니다.
+ */
+@Slf4j
+public class ListenerDeadLetterMergeTasklet implements Tasklet {
+    private static final String MAX_ID_KEY = "merge.max.id";
+    private static final String LAST_ID_KEY = "merge.last.id";
+
+    private static final String EVENT_PATH = "payload_document.event.";
+    private static final String ACTIVITY_TYPE_FIELD = "$" + EVENT_PATH + "memberActivityType";
+    private static final String EXISTING_FIELD = "existing_in_bucket";
+
+    private final MongoTemplate mongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
+    private final int batchSize;
+
+    public ListenerDeadLetterMergeTasklet(
+            MongoTemplate mongoTemplate,
+            MemberActivityMongoTemplate memberActivityMongoTemplate,
+            int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+
+        // 시작 시점의 마지막 _id 까지만 처리 (실행 중 새로 들어온 문서는 다음 실행에서 처리)
+        if (!executionContext.containsKey(MAX_ID_KEY)) {
+            ObjectId maxId = findBoundary(null, 0, Sort.Direction.DESC);
+            if (maxId == null) {
+                log.info("No listener_dead_letters documents with payload_document to merge");
+                return RepeatStatus.FINISHED;
+            }
+            executionContext.putString(MAX_ID_KEY, maxId.toHexString());
+        }
+
+        ObjectId maxId = new ObjectId(executionContext.getString(MAX_ID_KEY));
+        ObjectId lastId = executionContext.containsKey(LAST_ID_KEY)
+                ? new ObjectId(executionContext.getString(LAST_ID_KEY))
+                : null;
+
+        // 이번 범위의 마지막 _id: lastId 이후 batchSize 번째 문서 (없으면 시작 시점의 마지막 _id)
+        ObjectId upperId = findBoundary(lastId, batchSize - 1, Sort.Direction.ASC);
+        boolean lastPage = upperId == null || upperId.compareTo(maxId) >= 0;
+        if (lastPage) {
+            upperId = maxId;
+        }
+
+        // 1. 서버 안에서 member_activities 로 $merge (월별 저장이면 이번 달 컬렉션, 월이 바뀌는 경우를 위해 범위마다 결정)
+        LocalDateTime now = LocalDateTime.now();
+        String targetCollection = memberActivityMongoTemplate.currentCollectionName();
+        String indexName = memberActivityMongoTemplate.ensureMessageKeyUniqueIndex(targetCollection);
+        log.debug("Ensured unique index {} on {} for $merge", indexName, targetCollection);
+
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(mergeableCriteria(lastId, upperId)));
+        operations.add(projectMemberActivity(now));
+        memberActivityMongoTemplate.otherBucketNames(targetCollection)
+                .forEach(bucket -> operations.addAll(excludeExistingIn(bucket)));
+        operations.add(mergeInto(targetCollection));
+
+        mongoTemplate.aggregate(
+                Aggregation.newAggregation(operations),
+                ListenerDeadLetterDocument.class,
+                Document.class);
+
+        // 2. $merge 가 끝난 범위의 원본만 완료 처리
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(mergeableCriteria(lastId, upperId)),
+                new Update()
+                        .set("is_completed", Boolean.TRUE)
+                        .set("updated_at", now),
+                ListenerDeadLetterDocument.class);
+
+        executionContext.putString(LAST_ID_KEY, upperId.toHexString());
+        contribution.incrementWriteCount(result.getModifiedCount());
+        log.info("Merged listener_dead_letters (_id <= {}) into {} and marked {} documents as completed",
+                upperId, targetCollection, result.getModifiedCount());
+
+        if (lastPage && memberActivityMongoTemplate.isRollupEnabled()) {
+            log.warn("Activities merged by $merge are not counted in member_activity_counters. " +
+                    "Run memberActivityCounterRebuildJob to bring the counters up to date.");
+        }
+        return lastPage ? RepeatStatus.FINISHED : RepeatStatus.CONTINUABLE;
+    }
+
+    /**
+     * 복구 대상(is_completed=false, 재시도 대기 아님) 중 payload_document 와 messageKey 가 있고 활동 타입을 알 수 있는 문서
+     * (lastId, upperId] 범위 (null 이면 제한 없음)
+     */
+    private Criteria mergeableCriteria(ObjectId lastId, ObjectId upperId) {
+        Criteria criteria = DeadLetterMongoTemplate.restorableCriteria()
+                .and("messageKey").gt("")
+                .and(EVENT_PATH + "memberId").exists(true)
+                .and(EVENT_PATH + "memberActivityType").in(names(
+                        MemberActivityType.postEventTypes,
+                        MemberActivityType.commentEventTypes,
+                        MemberActivityType.memberEventTypes,
+                        MemberActivityType.postLikeEventTypes,
+                        MemberActivityType.commentLikeEventTypes));
+        if (lastId != null || upperId != null) {
+            Criteria idCriteria = criteria.and("_id");
+            if (lastId != null) {
+                idCriteria.gt(lastId);
+            }
+            if (upperId != null) {
+                idCriteria.lte(upperId);
+            }
+        }
+        return criteria;
+    }
+
+    private ObjectId findBoundary(ObjectId lastId, int skip, Sort.Direction direction) {
+        Query query = new Query(mergeableCriteria(lastId, null))
+                .with(Sort.by(direction, "_id"))
+                .skip(skip)
+                .limit(1);
+        query.fields().include("_id");
+        ListenerDeadLetterDocument document = mongoTemplate.findOne(query, ListenerDeadLetterDocument.class);
+        return document != null ? document.getId() : null;
+    }
+
+    /**
+     * MemberActivityMapper.fromEvent 와 같은 규칙으로 활동 타입에 따라 post_id / comment_id 를 채웁니다.
+     * created_at / updated_at 은 MemberActivityMongoTemplate 의 upsert 와 같은 변환(LocalDateTime → Date)을 거친 값을 사용합니다.
+     */
+    private AggregationOperation projectMemberActivity(LocalDateTime now) {
+        List<String> postIdTypes = names(
+                MemberActivityType.postEventTypes,
+                MemberActivityType.commentEventTypes,
+                MemberActivityType.postLikeEventTypes);
+        List<String> commentIdTypes = names(
+                MemberActivityType.commentEventTypes,
+                MemberActivityType.commentLikeEventTypes);
+        Object timestamp = mongoTemplate.getConverter().convertToMongoType(now);
+
+        Document projection = new Document("_id", 0)
+                .append("member_id", "$" + EVENT_PATH + "memberId")
+                .append("post_id", fieldIfTypeIn("postId", postIdTypes))
+                .append("comment_id", fieldIfTypeIn("commentId", commentIdTypes))
+                .append("member_activity_type", ACTIVITY_TYPE_FIELD)
+                .append("message_key", "$redis_key")
+                .append("created_at", new Document("$literal", timestamp))
+                .append("updated_at", new Document("$literal", timestamp));
+        return context -> new Document("$project", projection);
+    }
+
+    // { $cond: [ { $in: [ <memberActivityType>, types ] }, <event.field>, null ] }
+    private static Document fieldIfTypeIn(String field, List<String> types) {
+        List<Object> cond = new ArrayList<>();
+        cond.add(new Document("$in", List.of(ACTIVITY_TYPE_FIELD, types)));
+        cond.add("$" + EVENT_PATH + field);
+        cond.add(null);
+        return new Document("$cond", cond);
+    }
+
+    // 다른 월 컬렉션에 같은 message_key 가 있는 문서 제외 (uk_message_key 로 조회)
+    private static List<AggregationOperation> excludeExistingIn(String bucket) {
+        Document lookup = new Document("from", bucket)
+                .append("localField", "message_key")
+                .append("foreignField", "message_key")
+                .append("as", EXISTING_FIELD);
+        return List.of(
+                context -> new Document("$lookup", lookup),
+                context -> new Document("$match", new Document(EXISTING_FIELD, new Document("$size", 0))),
+                context -> new Document("$unset", EXISTING_FIELD));
+    }
+
+    private MergeOperation mergeInto(String targetCollection) {
+        return Aggregation.merge()
+                .intoCollection(targetCollection)
+                .on("message_key")
+                .whenMatched(MergeOperation.WhenDocumentsMatch.keepExistingDocument())
+                .whenDocumentsDontMatch(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                .build();
+    }
+
+    @SafeVarargs
+    private static List<String> names(Collection<MemberActivityType>... typeSets) {
+        return Stream.of(typeSets)
+                .flatMap(Collection::stream)
+                .map(Enum::name)
+                .distinct()
+                .toList();
+    }
+}
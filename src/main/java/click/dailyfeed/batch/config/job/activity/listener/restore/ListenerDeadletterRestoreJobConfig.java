@@ -1,276 +1,243 @@
 package click.dailyfeed.batch.config.job.activity.listener.restore;
 
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.activity.RestoreBatchWriter;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
 import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.config.job.reader.CategoryLaneItemReader;
+import click.dailyfeed.batch.config.job.reader.MongoKeysetItemReader;
+import click.dailyfeed.batch.config.job.support.CategoryLaneWeights;
+import click.dailyfeed.batch.config.job.support.RestoreOrdering;
+import click.dailyfeed.batch.config.job.support.ScanReadPreference;
+import click.dailyfeed.batch.config.job.support.WriteProfile;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
 import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.mapper.MemberActivityMapper;
 import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
 import click.dailyfeed.deadletter.domain.deadletter.document.KafkaListenerDeadLetterDocument;
-import click.dailyfeed.deadletter.domain.deadletter.repository.mongo.KafkaListenerDeadLetterRepository;
-import click.dailyfeed.code.domain.activity.dto.MemberActivityDto;
 import click.dailyfeed.code.domain.activity.type.MemberActivityType;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Profile("!test")
 @Configuration
 public class ListenerDeadletterRestoreJobConfig {
 
-    private final KafkaListenerDeadLetterRepository kafkaListenerDeadLetterRepository;
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
     private final MemberActivityMongoTemplate memberActivityMongoTemplate;
-    private final ObjectMapper objectMapper;
+    private final MemberActivityMapper memberActivityMapper;
+    private final RestoreLedgerService restoreLedgerService;
+    private final MongoTemplate mongoTemplate;
+    private final MongoTemplate secondaryMongoTemplate;
+    private final CategoryLaneWeights categoryLaneWeights;
 
-    // ThreadLocal로 현재 처리 중인 KafkaListenerDeadLetterDocument 들을 추적 (롤백용)
-    private static final ThreadLocal<List<KafkaListenerDeadLetterDocument>> currentBatchDocuments =
-            new ThreadLocal<>();
+    private static final int BATCH_SIZE = 50;
 
     public ListenerDeadletterRestoreJobConfig(
-            KafkaListenerDeadLetterRepository kafkaListenerDeadLetterRepository,
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
             MemberActivityMongoTemplate memberActivityMongoTemplate,
-            ObjectMapper objectMapper) {
-        this.kafkaListenerDeadLetterRepository = kafkaListenerDeadLetterRepository;
+            MemberActivityMapper memberActivityMapper,
+            RestoreLedgerService restoreLedgerService,
+            MongoTemplate mongoTemplate,
+            @Qualifier("secondaryMongoTemplate") MongoTemplate secondaryMongoTemplate,
+            CategoryLaneWeights categoryLaneWeights) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
         this.memberActivityMongoTemplate = memberActivityMongoTemplate;
-        this.objectMapper = objectMapper;
+        this.memberActivityMapper = memberActivityMapper;
+        this.restoreLedgerService = restoreLedgerService;
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
+        this.categoryLaneWeights = categoryLaneWeights;
     }
 
     @Bean
     public Job listenerDeadletterRestoreJob(
             JobRepository jobRepository,
-            Step listenerDeadletterRestoreStep) {
+            Step listenerDeadletterRestorePartitionStep) {
         return new JobBuilder("listenerDeadletterRestoreJob", jobRepository)
                 .incrementer(new RequestedAtSimpleIncrementer())
-                .start(listenerDeadletterRestoreStep)
+                .start(listenerDeadletterRestorePartitionStep)
+                .build();
+    }
+
+    /**
+     * is_completed=false 문서를 겹치지 않는 _id 범위로 나누어 worker step 들이 병렬로 처리합니다.
+     * 파티션 수는 jobParameters['gridSize'] 또는 batch.mongo-restore.grid-size 로 설정합니다. (기본값 1: 단일 범위)
+     * jobParameters['minId'] / ['maxId'] 가 있으면 [minId, maxId) 범위만 처리합니다. (change stream 이 감지한 문서 범위)
+     */
+    @Bean
+    @JobScope
+    public Step listenerDeadletterRestorePartitionStep(
+            JobRepository jobRepository,
+            Step listenerDeadletterRestoreStep,
+            @Value("#{jobParameters['gridSize'] ?: '${batch.mongo-restore.grid-size:1}'}") Integer gridSize,
+            @Value("#{jobParameters['minId']}") String minId,
+            @Value("#{jobParameters['maxId']}") String maxId) {
+        ObjectIdRangePartitioner partitioner = new ObjectIdRangePartitioner(
+                mongoTemplate,
+                KafkaListenerDeadLetterDocument.class,
+                DeadLetterMongoTemplate.restorableCriteria());
+        partitioner.setRange(minId, maxId);
+        return new StepBuilder("listenerDeadletterRestorePartitionStep", jobRepository)
+                .partitioner(listenerDeadletterRestoreStep.getName(), partitioner)
+                .step(listenerDeadletterRestoreStep)
+                .gridSize(gridSize)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("kafka-listener-dlq-range-", gridSize))
                 .build();
     }
 
     @Bean
     public Step listenerDeadletterRestoreStep(
             JobRepository jobRepository,
-            PlatformTransactionManager transactionManager,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
             ItemReader<List<KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterReader,
-            ItemProcessor<List<KafkaListenerDeadLetterDocument>, List<MemberActivityDocument>> kafkaListenerDeadLetterProcessor,
-            ItemWriter<List<MemberActivityDocument>> listenerMemberActivityWriter) {
+            ItemProcessor<List<KafkaListenerDeadLetterDocument>, RestoreBatch<KafkaListenerDeadLetterDocument, MemberActivityDocument>> kafkaListenerDeadLetterProcessor,
+            ItemWriter<RestoreBatch<KafkaListenerDeadLetterDocument, MemberActivityDocument>> listenerMemberActivityWriter) {
         return new StepBuilder("listenerDeadletterRestoreStep", jobRepository)
-                .<List<KafkaListenerDeadLetterDocument>, List<MemberActivityDocument>>chunk(1, transactionManager)
+                .<List<KafkaListenerDeadLetterDocument>, RestoreBatch<KafkaListenerDeadLetterDocument, MemberActivityDocument>>chunk(1, transactionManager)
                 .reader(kafkaListenerDeadLetterReader)
                 .processor(kafkaListenerDeadLetterProcessor)
                 .writer(listenerMemberActivityWriter)
                 .build();
     }
 
+    /**
+     * is_completed=false 문서를 _id keyset 으로 순회하는 streaming reader
+     * 마지막으로 읽은 _id 를 ExecutionContext 에 저장하므로 재시작 시 이어서 읽습니다.
+     * 파티션으로 실행되면 해당 파티션의 [minId, maxId) 범위만 읽습니다.
+     *
+     * - ordering: oldest(기본값, 오래된 문서부터) | newest
+     * - scheduling: fifo(기본값, 단일 순서) | weighted(카테고리별 lane 을 가중치 비율로 섞어 한 페이지를 구성)
+     */
     @Bean
     @StepScope
-    public ItemReader<List<KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterReader() {
-        return new ItemReader<List<KafkaListenerDeadLetterDocument>>() {
-            private static final int BATCH_SIZE = 50;
-            private boolean hasMore = true;
-
-            @Override
-            public List<KafkaListenerDeadLetterDocument> read() {
-                if (!hasMore) {
-                    return null;
-                }
-
-                try {
-                    log.debug("Reading batch from KafkaListenerDeadLetter (isCompleted=false)");
-                    Pageable pageable = PageRequest.of(0, BATCH_SIZE);
-
-                    List<KafkaListenerDeadLetterDocument> documents =
-                            kafkaListenerDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc(Boolean.FALSE, pageable);
-
-                    if (documents != null && !documents.isEmpty()) {
-                        log.info("Fetched {} KafkaListenerDeadLetter documents", documents.size());
-
-                        // ThreadLocal에 저장 (롤백용)
-                        currentBatchDocuments.set(new ArrayList<>(documents));
-
-                        // 50건 미만이면 다음 읽기에서 null 반환
-                        if (documents.size() < BATCH_SIZE) {
-                            hasMore = false;
-                        }
+    public ItemStreamReader<List<KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterReader(
+            @Value("#{stepExecutionContext['minId']}") String minId,
+            @Value("#{stepExecutionContext['maxId']}") String maxId,
+            @Value("#{jobParameters['ordering'] ?: '${batch.mongo-restore.ordering:oldest}'}") String ordering,
+            @Value("#{jobParameters['scheduling'] ?: '${batch.mongo-restore.scheduling:fifo}'}") String scheduling,
+            @Value("#{jobParameters['scanReadPreference'] ?: '${batch.mongo-restore.scan-read-preference:primary}'}") String scanReadPreference) {
+        Sort.Direction direction = RestoreOrdering.from(ordering).getDirection();
+        // keyset 스캔만 secondary 로 보낼 수 있으며, 완료 처리/저장은 writer 가 primary 에서 수행
+        MongoTemplate scanMongoTemplate = ScanReadPreference.from(scanReadPreference).select(mongoTemplate, secondaryMongoTemplate);
+
+        if ("weighted".equalsIgnoreCase(scheduling)) {
+            CategoryLaneItemReader<KafkaListenerDeadLetterDocument, MemberActivityType.Category> reader = CategoryLaneItemReader.of(
+                    categoryLaneWeights.weights(),
+                    BATCH_SIZE,
+                    category -> newKafkaListenerDeadLetterReader(
+                            DeadLetterMongoTemplate.restorableCriteria().and("category").is(category),
+                            scanMongoTemplate, direction, minId, maxId));
+            reader.setName("kafkaListenerDeadLetterReader");
+            return reader;
+        }
+
+        MongoKeysetItemReader<KafkaListenerDeadLetterDocument> reader = newKafkaListenerDeadLetterReader(
+                DeadLetterMongoTemplate.restorableCriteria(), scanMongoTemplate, direction, minId, maxId);
+        reader.setName("kafkaListenerDeadLetterReader");
+        return reader;
+    }
 
-                        return documents;
-                    } else {
-                        log.info("No more KafkaListenerDeadLetter documents to process");
-                        hasMore = false;
-                        return null;
-                    }
-                } catch (Exception e) {
-                    log.error("Error reading from KafkaListenerDeadLetterRepository", e);
-                    hasMore = false;
-                    return null;
-                }
-            }
-        };
+    // 완료 처리는 updateMulti 로 하므로 변환에 필요한 필드만 projection 합니다.
+    private MongoKeysetItemReader<KafkaListenerDeadLetterDocument> newKafkaListenerDeadLetterReader(
+            Criteria criteria, MongoTemplate scanMongoTemplate, Sort.Direction direction, String minId, String maxId) {
+        MongoKeysetItemReader<KafkaListenerDeadLetterDocument> reader = new MongoKeysetItemReader<>(
+                scanMongoTemplate,
+                KafkaListenerDeadLetterDocument.class,
+                criteria,
+                BATCH_SIZE
+        );
+        reader.setDirection(direction);
+        reader.setCursorBatchSize(BATCH_SIZE * 4);
+        reader.setRange(minId, maxId);
+        reader.setFields("messageKey", "payload", "category");
+        return reader;
     }
 
     @Bean
     @StepScope
-    public ItemProcessor<List<KafkaListenerDeadLetterDocument>, List<MemberActivityDocument>> kafkaListenerDeadLetterProcessor() {
+    public ItemProcessor<List<KafkaListenerDeadLetterDocument>, RestoreBatch<KafkaListenerDeadLetterDocument, MemberActivityDocument>> kafkaListenerDeadLetterProcessor() {
         return documents -> {
             if (documents.isEmpty()) {
                 log.debug("Empty document list, skipping processing");
                 return null;
             }
 
+            // 변환에 성공한 원본만 완료 처리 대상으로 writer 에 전달
+            List<KafkaListenerDeadLetterDocument> convertedDocuments = new ArrayList<>();
             List<MemberActivityDocument> memberActivityDocuments = new ArrayList<>();
+            // 변환에 실패한 원본은 실패 사유와 함께 전달하여 재시도 횟수를 기록 (한도 초과 시 격리)
+            Map<KafkaListenerDeadLetterDocument, String> failures = new LinkedHashMap<>();
 
             for (KafkaListenerDeadLetterDocument document : documents) {
                 try {
                     log.debug("Processing KafkaListenerDeadLetterDocument: category={}, id={}, messageKey={}",
                             document.getCategory(), document.getId(), document.getMessageKey());
 
-                    MemberActivityDocument memberActivityDocument = null;
                     MemberActivityType.Category category = document.getCategory();
+                    // 알 수 없는 카테고리는 IllegalArgumentException 으로 실패 처리
+                    MemberActivityDocument memberActivityDocument =
+                            memberActivityMapper.fromDeadLetterPayload(category, document.getPayload(), document.getMessageKey());
 
-                    switch (category) {
-                        case POST:
-                            MemberActivityDto.PostActivityRequest postRequest =
-                                    objectMapper.readValue(document.getPayload(), MemberActivityDto.PostActivityRequest.class);
-                            memberActivityDocument = MemberActivityDocument.ofNewPostActivity(
-                                    postRequest.getMemberId(),
-                                    postRequest.getPostId(),
-                                    postRequest.getActivityType(),
-                                    document.getMessageKey()
-                            );
-                            break;
-
-                        case COMMENT:
-                            MemberActivityDto.CommentActivityRequest commentRequest =
-                                    objectMapper.readValue(document.getPayload(), MemberActivityDto.CommentActivityRequest.class);
-                            memberActivityDocument = MemberActivityDocument.ofNewCommentActivity(
-                                    commentRequest.getMemberId(),
-                                    commentRequest.getPostId(),
-                                    commentRequest.getCommentId(),
-                                    commentRequest.getActivityType(),
-                                    document.getMessageKey()
-                            );
-                            break;
-
-                        case POST_LIKE:
-                            MemberActivityDto.PostLikeActivityRequest postLikeRequest =
-                                    objectMapper.readValue(document.getPayload(), MemberActivityDto.PostLikeActivityRequest.class);
-                            memberActivityDocument = MemberActivityDocument.ofNewPostLikeActivity(
-                                    postLikeRequest.getMemberId(),
-                                    postLikeRequest.getPostId(),
-                                    postLikeRequest.getActivityType(),
-                                    document.getMessageKey()
-                            );
-                            break;
-
-                        case COMMENT_LIKE:
-                            MemberActivityDto.CommentLikeActivityRequest commentLikeRequest =
-                                    objectMapper.readValue(document.getPayload(), MemberActivityDto.CommentLikeActivityRequest.class);
-                            memberActivityDocument = MemberActivityDocument.ofNewCommentLikeActivity(
-                                    commentLikeRequest.getMemberId(),
-                                    commentLikeRequest.getCommentId(),
-                                    commentLikeRequest.getActivityType(),
-                                    document.getMessageKey()
-                            );
-                            break;
-
-                        default:
-                            log.warn("Unknown category: {}", category);
-                            continue;
-                    }
-
-                    if (memberActivityDocument != null) {
-                        memberActivityDocuments.add(memberActivityDocument);
-                        log.debug("Successfully converted to MemberActivityDocument: category={}, messageKey={}",
-                                category, document.getMessageKey());
-                    }
+                    memberActivityDocuments.add(memberActivityDocument);
+                    convertedDocuments.add(document);
+                    log.debug("Successfully converted to MemberActivityDocument: category={}, messageKey={}",
+                            category, document.getMessageKey());
 
                 } catch (Exception e) {
                     log.error("Error processing KafkaListenerDeadLetterDocument: id={}, category={}, error={}",
                             document.getId(), document.getCategory(), e.getMessage(), e);
-                    // 처리 실패한 항목은 건너뜀
+                    // 처리 실패한 항목은 건너뛰고 재시도 대상으로 기록
+                    failures.put(document, e.getClass().getSimpleName() + ": " + e.getMessage());
                 }
             }
 
             log.info("Processed {} documents into {} MemberActivityDocuments",
                     documents.size(), memberActivityDocuments.size());
-            return memberActivityDocuments.isEmpty() ? null : memberActivityDocuments;
+            RestoreBatch<KafkaListenerDeadLetterDocument, MemberActivityDocument> restoreBatch =
+                    RestoreBatch.of(convertedDocuments, memberActivityDocuments, failures);
+            return restoreBatch.isEmpty() ? null : restoreBatch;
         };
     }
 
     @Bean
     @StepScope
-    public ItemWriter<List<MemberActivityDocument>> listenerMemberActivityWriter() {
-        return chunk -> {
-            List<MemberActivityDocument> allMemberActivities = new ArrayList<>();
-
-            // chunk.getItems()는 List<List<MemberActivityDocument>> 이므로 flatten
-            for (List<MemberActivityDocument> memberActivityList : chunk.getItems()) {
-                if (memberActivityList != null && !memberActivityList.isEmpty()) {
-                    allMemberActivities.addAll(memberActivityList);
-                }
-            }
-
-            if (allMemberActivities.isEmpty()) {
-                log.info("No documents to save in this chunk");
-                currentBatchDocuments.remove();
-                return;
-            }
-
-            try {
-                // MemberActivityMongoTemplate의 upsertMemberActivity 메서드 사용
-                // messageKey가 있는 경우 upsert, 없는 경우 insert
-                for (MemberActivityDocument document : allMemberActivities) {
-                    memberActivityMongoTemplate.upsertMemberActivity(document);
-                }
-
-                log.info("Saved {} member activities to member_activities collection using upsert",
-                        allMemberActivities.size());
-
-                // kafka_listener_dead_letters 문서의 isCompleted를 true로 업데이트
-                List<KafkaListenerDeadLetterDocument> documentsToUpdate = currentBatchDocuments.get();
-                if (documentsToUpdate != null && !documentsToUpdate.isEmpty()) {
-                    int updatedCount = 0;
-                    for (KafkaListenerDeadLetterDocument doc : documentsToUpdate) {
-                        try {
-                            doc.markAsCompleted();
-                            kafkaListenerDeadLetterRepository.save(doc);
-                            updatedCount++;
-                            log.debug("Marked as completed: id={}, category={}, messageKey={}",
-                                    doc.getId(), doc.getCategory(), doc.getMessageKey());
-                        } catch (Exception e) {
-                            log.error("Failed to update isCompleted for id={}: {}",
-                                    doc.getId(), e.getMessage(), e);
-                        }
-                    }
-
-                    log.info("Updated {} kafka_listener_dead_letters documents to isCompleted=true", updatedCount);
-                }
-
-                // 성공 시 ThreadLocal 정리
-                currentBatchDocuments.remove();
-
-            } catch (Exception e) {
-                log.error("Failed to save member activities. Transaction will rollback.", e);
-
-                // ThreadLocal 정리
-                currentBatchDocuments.remove();
-
-                // 예외를 다시 던져서 Spring Batch가 실패를 인지하도록 함
-                throw e;
-            }
-        };
+    public ItemWriter<RestoreBatch<KafkaListenerDeadLetterDocument, MemberActivityDocument>> listenerMemberActivityWriter(
+            @Value("#{jobParameters['writeProfile'] ?: '${batch.mongo-restore.write-profile:balanced}'}") String writeProfile) {
+        return new RestoreBatchWriter<>(
+                deadLetterMongoTemplate,
+                memberActivityMongoTemplate,
+                restoreLedgerService,
+                KafkaListenerDeadLetterDocument.class,
+                KafkaListenerDeadLetterDocument::getId,
+                KafkaListenerDeadLetterDocument::getMessageKey,
+                WriteProfile.from(writeProfile));
     }
-}
\ No newline at end of file
+}
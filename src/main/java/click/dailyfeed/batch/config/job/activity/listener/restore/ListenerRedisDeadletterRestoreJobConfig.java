@@ -1,6 +1,12 @@
 package click.dailyfeed.batch.config.job.activity.listener.restore;
 
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
 import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.LanePartitioner;
+import click.dailyfeed.batch.config.job.support.ChunkRollbackActions;
+import click.dailyfeed.batch.config.job.support.WriteProfile;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
 import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
 import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
 import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
@@ -9,6 +15,7 @@ import click.dailyfeed.redis.global.deadletter.kafka.MemberActivityEventRedisSer
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
@@ -16,6 +23,8 @@ import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -23,6 +32,8 @@ import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Profile("!test")
@@ -31,37 +42,55 @@ public class ListenerRedisDeadletterRestoreJobConfig {
 
     private final MemberActivityEventRedisService memberActivityEventRedisService;
     private final MemberActivityMongoTemplate memberActivityMongoTemplate;
-
-    // ThreadLocal로 현재 처리 중인 MemberActivityMessage 들을 추적 (롤백용)
-    private static final ThreadLocal<List<MemberActivityTransportDto.MemberActivityMessage>> currentBatchMessages =
-            new ThreadLocal<>();
+    private final RestoreLedgerService restoreLedgerService;
 
     public ListenerRedisDeadletterRestoreJobConfig(
             MemberActivityEventRedisService memberActivityEventRedisService,
-            MemberActivityMongoTemplate memberActivityMongoTemplate) {
+            MemberActivityMongoTemplate memberActivityMongoTemplate,
+            RestoreLedgerService restoreLedgerService) {
         this.memberActivityEventRedisService = memberActivityEventRedisService;
         this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+        this.restoreLedgerService = restoreLedgerService;
     }
 
     @Bean
     public Job listenerRedisDeadletterRestoreJob(
             JobRepository jobRepository,
-            Step listenerRedisDeadletterRestoreStep) {
+            Step listenerRedisDeadletterRestorePartitionStep) {
         return new JobBuilder("listenerRedisDeadletterRestoreJob", jobRepository)
                 .incrementer(new RequestedAtSimpleIncrementer())
-                .start(listenerRedisDeadletterRestoreStep)
+                .start(listenerRedisDeadletterRestorePartitionStep)
+                .build();
+    }
+
+    /**
+     * Redis dead letter 큐를 N개의 lane 으로 동시에 소비합니다.
+     * LPOP 은 원자적이므로 lane 끼리 같은 메시지를 가져가지 않습니다.
+     * lane 수는 jobParameters['lanes'] 또는 batch.redis-restore.lanes 로 설정합니다.
+     */
+    @Bean
+    @JobScope
+    public Step listenerRedisDeadletterRestorePartitionStep(
+            JobRepository jobRepository,
+            Step listenerRedisDeadletterRestoreStep,
+            @Value("#{jobParameters['lanes'] ?: '${batch.redis-restore.lanes:4}'}") Integer lanes) {
+        return new StepBuilder("listenerRedisDeadletterRestorePartitionStep", jobRepository)
+                .partitioner(listenerRedisDeadletterRestoreStep.getName(), new LanePartitioner())
+                .step(listenerRedisDeadletterRestoreStep)
+                .gridSize(lanes)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("redis-dlq-lane-", lanes))
                 .build();
     }
 
     @Bean
     public Step listenerRedisDeadletterRestoreStep(
             JobRepository jobRepository,
-            PlatformTransactionManager transactionManager,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
             ItemReader<List<MemberActivityTransportDto.MemberActivityMessage>> redisDeadLetterReader,
-            ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, List<MemberActivityDocument>> redisDeadLetterProcessor,
-            ItemWriter<List<MemberActivityDocument>> redisDeadLetterWriter) {
+            ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, MemberActivityDocument>> redisDeadLetterProcessor,
+            ItemWriter<RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, MemberActivityDocument>> redisDeadLetterWriter) {
         return new StepBuilder("listenerRedisDeadletterRestoreStep", jobRepository)
-                .<List<MemberActivityTransportDto.MemberActivityMessage>, List<MemberActivityDocument>>chunk(1, transactionManager)
+                .<List<MemberActivityTransportDto.MemberActivityMessage>, RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, MemberActivityDocument>>chunk(1, transactionManager)
                 .reader(redisDeadLetterReader)
                 .processor(redisDeadLetterProcessor)
                 .writer(redisDeadLetterWriter)
@@ -81,42 +110,50 @@ public class ListenerRedisDeadletterRestoreJobConfig {
                     return null;
                 }
 
+                List<MemberActivityTransportDto.MemberActivityMessage> messages;
                 try {
                     log.debug("Reading batch from Redis dead letter queue");
 
                     // Redis에서 dead letter 메시지 읽기
-                    List<MemberActivityTransportDto.MemberActivityMessage> messages =
-                            memberActivityEventRedisService.lPopTopNDeadLetter(BATCH_SIZE);
-
-                    if (messages != null && !messages.isEmpty()) {
-                        log.info("Fetched {} messages from Redis dead letter queue", messages.size());
-
-                        // ThreadLocal에 저장 (롤백용)
-                        currentBatchMessages.set(new ArrayList<>(messages));
-
-                        // 50건 미만이면 다음 읽기에서 null 반환
-                        if (messages.size() < BATCH_SIZE) {
-                            hasMore = false;
-                        }
-
-                        return messages;
-                    } else {
-                        log.info("No more messages in Redis dead letter queue");
-                        hasMore = false;
-                        return null;
-                    }
+                    messages = memberActivityEventRedisService.lPopTopNDeadLetter(BATCH_SIZE);
                 } catch (Exception e) {
                     log.error("Error reading from Redis dead letter queue", e);
                     hasMore = false;
                     return null;
                 }
+
+                if (messages == null || messages.isEmpty()) {
+                    log.info("No more messages in Redis dead letter queue");
+                    hasMore = false;
+                    return null;
+                }
+
+                log.info("Fetched {} messages from Redis dead letter queue", messages.size());
+                // 꺼낸 메시지는 Redis 에 남지 않으므로, 변환/저장/커밋 중 어디서든 chunk 가 커밋되지 않으면 Redis 로 되돌림
+                // (upsert 이므로 커밋 결과를 알 수 없어 되돌린 메시지를 다시 처리해도 중복 없음)
+                ChunkRollbackActions.register(() -> pushBack(messages));
+
+                // 50건 미만이면 다음 읽기에서 null 반환
+                if (messages.size() < BATCH_SIZE) {
+                    hasMore = false;
+                }
+
+                return messages;
             }
         };
     }
 
+    private void pushBack(List<MemberActivityTransportDto.MemberActivityMessage> messages) {
+        for (MemberActivityTransportDto.MemberActivityMessage message : messages) {
+            memberActivityEventRedisService.rPushDeadletter(message);
+            log.debug("Rolled back message to Redis: key={}", message.getKey());
+        }
+        log.info("Rolled back {} messages to Redis dead letter queue", messages.size());
+    }
+
     @Bean
     @StepScope
-    public ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, List<MemberActivityDocument>> redisDeadLetterProcessor() {
+    public ItemProcessor<List<MemberActivityTransportDto.MemberActivityMessage>, RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, MemberActivityDocument>> redisDeadLetterProcessor() {
         return messages -> {
             if (messages == null || messages.isEmpty()) {
                 log.debug("Empty message list, skipping processing");
@@ -200,65 +237,60 @@ public class ListenerRedisDeadletterRestoreJobConfig {
 
             log.info("Processed {} messages into {} MemberActivityDocuments",
                     messages.size(), memberActivityDocuments.size());
-            return memberActivityDocuments.isEmpty() ? null : memberActivityDocuments;
+            // 원본 메시지를 함께 전달
+            return memberActivityDocuments.isEmpty() ? null : RestoreBatch.of(messages, memberActivityDocuments);
         };
     }
 
     @Bean
     @StepScope
-    public ItemWriter<List<MemberActivityDocument>> redisDeadLetterWriter() {
+    public ItemWriter<RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, MemberActivityDocument>> redisDeadLetterWriter(
+            @Value("#{jobParameters['writeProfile'] ?: '${batch.mongo-restore.write-profile:balanced}'}") String writeProfile) {
+        WriteProfile profile = WriteProfile.from(writeProfile);
         return chunk -> {
             List<MemberActivityDocument> allMemberActivities = new ArrayList<>();
 
-            // chunk.getItems()는 List<List<MemberActivityDocument>> 이므로 flatten
-            for (List<MemberActivityDocument> memberActivityList : chunk.getItems()) {
-                if (memberActivityList != null && !memberActivityList.isEmpty()) {
-                    allMemberActivities.addAll(memberActivityList);
-                }
+            // chunk.getItems()는 List<RestoreBatch> 이므로 flatten
+            for (RestoreBatch<MemberActivityTransportDto.MemberActivityMessage, MemberActivityDocument> batch : chunk.getItems()) {
+                allMemberActivities.addAll(batch.getTargets());
             }
 
             if (allMemberActivities.isEmpty()) {
                 log.info("No documents to save in this chunk");
-                currentBatchMessages.remove();
                 return;
             }
 
             try {
-                // MemberActivityMongoTemplate의 upsertMemberActivity 메서드 사용
-                // messageKey를 통한 중복 방지
-                for (MemberActivityDocument document : allMemberActivities) {
-                    memberActivityMongoTemplate.upsertMemberActivity(document);
+                // Redis 원장에 이미 복구된 것으로 기록된 messageKey 는 MongoDB 접근 없이 제외
+                Set<String> restoredMessageKeys = restoreLedgerService.findRestored(
+                        RestoreLedgerService.SCOPE_MEMBER_ACTIVITIES,
+                        allMemberActivities.stream().map(MemberActivityDocument::getMessageKey).toList());
+
+                List<MemberActivityDocument> memberActivitiesToSave = allMemberActivities.stream()
+                        .filter(doc -> !restoredMessageKeys.contains(doc.getMessageKey()))
+                        .collect(Collectors.toList());
+
+                // UNORDERED bulkWrite 한 번으로 messageKey 기준 upsert (중복 방지)
+                MemberActivityMongoTemplate.BulkSaveResult saveResult = memberActivityMongoTemplate.upsertAll(
+                        memberActivitiesToSave, profile.getWriteConcern(), profile.getBulkMode());
+                if (saveResult.hasFailures()) {
+                    // Redis 에서 꺼낸 메시지는 다른 곳에 남아 있지 않으므로 chunk 전체를 롤백하여 Redis 로 되돌림 (reader 가 등록한 보상 작업)
+                    throw new IllegalStateException("Failed to save member activities: " + saveResult.failedMessageKeys());
                 }
 
-                log.info("Saved {} member activities to member_activities collection using upsert",
-                        allMemberActivities.size());
+                log.info("Saved {} member activities to member_activities collection using upsert ({} skipped by restore ledger)",
+                        memberActivitiesToSave.size(), allMemberActivities.size() - memberActivitiesToSave.size());
 
-                // 성공 시 ThreadLocal 정리
-                currentBatchMessages.remove();
+                restoreLedgerService.markRestored(
+                        RestoreLedgerService.SCOPE_MEMBER_ACTIVITIES,
+                        memberActivitiesToSave.stream().map(MemberActivityDocument::getMessageKey).toList());
 
             } catch (Exception e) {
-                log.error("Failed to save member activities. Rolling back to Redis dead letter queue.", e);
-
-                // 에러 발생 시 Redis로 다시 push
-                List<MemberActivityTransportDto.MemberActivityMessage> messagesToRollback = currentBatchMessages.get();
-                if (messagesToRollback != null && !messagesToRollback.isEmpty()) {
-                    try {
-                        for (MemberActivityTransportDto.MemberActivityMessage message : messagesToRollback) {
-                            memberActivityEventRedisService.rPushDeadletter(message);
-                            log.debug("Rolled back message to Redis: key={}", message.getKey());
-                        }
-                        log.info("Rolled back {} messages to Redis dead letter queue", messagesToRollback.size());
-                    } catch (Exception rollbackException) {
-                        log.error("Failed to rollback messages to Redis: {}", rollbackException.getMessage(), rollbackException);
-                    }
-                }
-
-                // ThreadLocal 정리
-                currentBatchMessages.remove();
+                log.error("Failed to save member activities. Transaction will rollback and messages will be returned to Redis.", e);
 
                 // 예외를 다시 던져서 Spring Batch가 실패를 인지하도록 함
                 throw e;
             }
         };
     }
-}
\ No newline at end of file
+}
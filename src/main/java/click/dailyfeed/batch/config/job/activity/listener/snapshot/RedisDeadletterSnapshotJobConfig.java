@@ -0,0 +1,314 @@
+package click.dailyfeed.batch.config.job.activity.listener.snapshot;
+
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.segment.SegmentArchive;
+import click.dailyfeed.batch.config.job.segment.SegmentFiles;
+import click.dailyfeed.batch.config.job.segment.SegmentManifest;
+import click.dailyfeed.batch.config.job.support.DeadLetterPayloadFormat;
+import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.ListenerDeadLetterRepository;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
+import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.MultiResourceItemReader;
+import org.springframework.batch.item.file.mapping.PassThroughLineMapper;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Redis dead letter 큐 snapshot export / import
+ *
+ * 1) redisDeadletterSnapshotExportJob
+ *    - LRANGE 로 페이지 단위 조회 → gzip NDJSON segment 파일로 기록(fsync) → manifest 갱신 → LTRIM
+ *    - segment 가 디스크에 기록된 뒤에만 Redis 에서 제거하므로 중단되어도 유실되지 않습니다.
+ *    - LTRIM 직전 리스트의 head 가 읽은 페이지와 같은지 Lua 로 확인합니다.
+ *      다른 consumer 가 동시에 LPOP 한 경우 trim 하지 않고 job 을 실패시킵니다.
+ *      (export 중에는 Redis dead letter 복구 job 을 중지해 주세요)
+ *
+ * 2) redisDeadletterSnapshotImportJob
+ *    - manifest 의 segment checksum 을 검증한 뒤 listener_dead_letters 에 bulk 적재합니다.
+ *    - 이후 복구는 activityListenerRestoreFromMongoDBJob 이 MongoDB 에서 이어서 수행합니다.
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class RedisDeadletterSnapshotJobConfig {
+
+    // head/tail 이 읽은 페이지와 동일할 때만 LTRIM (동시 LPOP 으로 인한 오삭제 방지)
+    private static final RedisScript<Long> CHECK_AND_TRIM_SCRIPT = new DefaultRedisScript<>(
+            "local size = tonumber(ARGV[1]) " +
+            "if redis.call('LINDEX', KEYS[1], 0) ~= ARGV[2] then return 0 end " +
+            "if redis.call('LINDEX', KEYS[1], size - 1) ~= ARGV[3] then return 0 end " +
+            "redis.call('LTRIM', KEYS[1], size, -1) " +
+            "return 1",
+            Long.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ListenerDeadLetterRepository listenerDeadLetterRepository;
+    private final RestoreLedgerService restoreLedgerService;
+    private final ObjectMapper objectMapper;
+
+    public RedisDeadletterSnapshotJobConfig(
+            StringRedisTemplate stringRedisTemplate,
+            ListenerDeadLetterRepository listenerDeadLetterRepository,
+            RestoreLedgerService restoreLedgerService,
+            ObjectMapper objectMapper) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerDeadLetterRepository = listenerDeadLetterRepository;
+        this.restoreLedgerService = restoreLedgerService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Bean
+    public Job redisDeadletterSnapshotExportJob(
+            JobRepository jobRepository,
+            Step redisDeadletterSnapshotExportStep) {
+        return new JobBuilder("redisDeadletterSnapshotExportJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(redisDeadletterSnapshotExportStep)
+                .build();
+    }
+
+    /**
+     * 파일 기록과 Redis LTRIM 은 어느 트랜잭션에도 참여하지 않으므로 ResourcelessTransactionManager 를 사용합니다.
+     */
+    @Bean
+    public Step redisDeadletterSnapshotExportStep(
+            JobRepository jobRepository,
+            Tasklet redisDeadletterSnapshotExportTasklet) {
+        return new StepBuilder("redisDeadletterSnapshotExportStep", jobRepository)
+                .tasklet(redisDeadletterSnapshotExportTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    /**
+     * 한 번의 execute 호출이 한 페이지(= 한 segment)를 처리하고 CONTINUABLE 을 반환합니다.
+     * 보관 디렉토리(<exportPath>/<listKey>/<yyyyMMdd-HHmmss>)는 첫 execute 에서 만들고 ExecutionContext 에 저장하므로,
+     * 재시작하면 같은 디렉토리의 manifest 에 이어서 기록하고 maxEntries 도 이어서 셉니다.
+     */
+    @Bean
+    @StepScope
+    public Tasklet redisDeadletterSnapshotExportTasklet(
+            @Value("#{jobParameters['listKey'] ?: '${infrastructure.redis.event-queue.member-activity-event.dead-letter-list-key}'}") String listKey,
+            @Value("#{jobParameters['exportPath'] ?: '${batch.redis-dlq-snapshot.path:redis-dlq-snapshot}'}") String exportPath,
+            @Value("#{jobParameters['pageSize'] ?: '${batch.redis-dlq-snapshot.page-size:5000}'}") Integer pageSize,
+            @Value("#{jobParameters['maxEntries'] ?: '${batch.redis-dlq-snapshot.max-entries:0}'}") Long maxEntries) {
+        SegmentArchive segmentArchive = new SegmentArchive(objectMapper, Paths.get(exportPath), listKey);
+
+        log.info("Exporting Redis list '{}' to {} (pageSize={}, maxEntries={})", listKey, exportPath, pageSize, maxEntries);
+
+        return (contribution, chunkContext) -> {
+            ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+            SegmentManifest manifest = segmentArchive.manifest(executionContext);
+
+            long remaining = maxEntries > 0 ? maxEntries - manifest.totalLines() : pageSize;
+            if (remaining <= 0) {
+                log.info("Reached maxEntries={}. Export finished with {} segments", maxEntries, manifest.getSegments().size());
+                return RepeatStatus.FINISHED;
+            }
+
+            int size = (int) Math.min(pageSize, remaining);
+            List<String> page = stringRedisTemplate.opsForList().range(listKey, 0, size - 1);
+
+            if (page == null || page.isEmpty()) {
+                log.info("Redis list '{}' is empty. Exported {} entries in {} segments to {}",
+                        listKey, manifest.totalLines(), manifest.getSegments().size(), segmentArchive.directory(executionContext));
+                return RepeatStatus.FINISHED;
+            }
+
+            // 1. segment 기록 (fsync 포함) 및 manifest 갱신
+            SegmentArchive.Appended appended = segmentArchive.appendLines(executionContext, page, null);
+            String fileName = appended.segment().getFile();
+
+            // 2. 디스크 기록이 끝난 페이지만 Redis 에서 제거
+            Long trimmed = stringRedisTemplate.execute(
+                    CHECK_AND_TRIM_SCRIPT,
+                    List.of(listKey),
+                    String.valueOf(page.size()), page.get(0), page.get(page.size() - 1));
+
+            if (trimmed == null || trimmed == 0L) {
+                throw new IllegalStateException(String.format(
+                        "Redis list '%s' changed while exporting segment %s. " +
+                        "Stop concurrent consumers and re-run; the written segment is kept and deduplicated on import.",
+                        listKey, fileName));
+            }
+
+            contribution.incrementReadCount();
+            contribution.incrementWriteCount(page.size());
+            log.info("Exported segment {} ({} entries, sha256={})", fileName, page.size(), appended.segment().getSha256());
+
+            return page.size() < size ? RepeatStatus.FINISHED : RepeatStatus.CONTINUABLE;
+        };
+    }
+
+    @Bean
+    public Job redisDeadletterSnapshotImportJob(
+            JobRepository jobRepository,
+            Step redisDeadletterSnapshotImportStep) {
+        return new JobBuilder("redisDeadletterSnapshotImportJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(redisDeadletterSnapshotImportStep)
+                .build();
+    }
+
+    @Bean
+    public Step redisDeadletterSnapshotImportStep(
+            JobRepository jobRepository,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
+            MultiResourceItemReader<String> redisDeadletterSegmentReader,
+            ItemProcessor<String, ListenerDeadLetterDocument> redisDeadletterSegmentProcessor,
+            ItemWriter<ListenerDeadLetterDocument> redisDeadletterSegmentWriter) {
+        return new StepBuilder("redisDeadletterSnapshotImportStep", jobRepository)
+                .<String, ListenerDeadLetterDocument>chunk(500, transactionManager)
+                .reader(redisDeadletterSegmentReader)
+                .processor(redisDeadletterSegmentProcessor)
+                .writer(redisDeadletterSegmentWriter)
+                .build();
+    }
+
+    /**
+     * manifest 에 기록된 segment 를 순서대로 읽습니다.
+     * checksum 이 일치하지 않는 segment 가 하나라도 있으면 import 를 시작하지 않습니다.
+     */
+    @Bean
+    @StepScope
+    public MultiResourceItemReader<String> redisDeadletterSegmentReader(
+            @Value("#{jobParameters['importPath']}") String importPath) throws IOException {
+        if (importPath == null || importPath.isBlank()) {
+            throw new IllegalArgumentException("jobParameters['importPath'] (snapshot directory) is required");
+        }
+
+        Path directory = Paths.get(importPath);
+        SegmentManifest manifest = SegmentManifest.readFrom(directory, objectMapper);
+
+        List<Resource> resources = new ArrayList<>();
+        for (SegmentManifest.Segment segment : manifest.getSegments()) {
+            if (!SegmentFiles.verify(directory, segment)) {
+                throw new IllegalStateException("Checksum mismatch or missing segment: " + segment.getFile());
+            }
+            resources.add(new GzipFileSystemResource(directory.resolve(segment.getFile())));
+        }
+
+        log.info("Importing {} segments ({} entries) from {}", resources.size(), manifest.totalLines(), directory);
+
+        FlatFileItemReader<String> delegate = new FlatFileItemReader<>();
+        delegate.setName("redisDeadletterSegmentLineReader");
+        delegate.setLineMapper(new PassThroughLineMapper());
+
+        MultiResourceItemReader<String> reader = new MultiResourceItemReader<>();
+        reader.setName("redisDeadletterSegmentReader");
+        reader.setResources(resources.toArray(new Resource[0]));
+        reader.setDelegate(delegate);
+        // 파일명 순서 = segment 순서
+        reader.setComparator(Comparator.comparing(Resource::getFilename));
+        return reader;
+    }
+
+    @Bean
+    @StepScope
+    public ItemProcessor<String, ListenerDeadLetterDocument> redisDeadletterSegmentProcessor(
+            @Value("#{jobParameters['payloadFormat'] ?: '${batch.dead-letter.payload-format:string}'}") String payloadFormat) {
+        DeadLetterPayloadFormat format = DeadLetterPayloadFormat.from(payloadFormat);
+        return line -> {
+            try {
+                MemberActivityTransportDto.MemberActivityMessage message =
+                        objectMapper.readValue(line, MemberActivityTransportDto.MemberActivityMessage.class);
+
+                return format.newListenerDeadLetter(
+                        message.getKey(),
+                        objectMapper.writeValueAsString(message),
+                        message.getEvent().getCreatedAt()
+                );
+            } catch (Exception e) {
+                log.error("Error parsing snapshot line, skipping: {}", e.getMessage(), e);
+                // 처리 실패한 항목은 건너뜀
+                return null;
+            }
+        };
+    }
+
+    @Bean
+    @StepScope
+    public ItemWriter<ListenerDeadLetterDocument> redisDeadletterSegmentWriter() {
+        return chunk -> {
+            // chunk 내 중복 제거 (같은 messageKey 가 여러 번 export 된 경우)
+            Map<String, ListenerDeadLetterDocument> byMessageKey = new LinkedHashMap<>();
+            for (ListenerDeadLetterDocument document : chunk.getItems()) {
+                byMessageKey.putIfAbsent(document.getMessageKey(), document);
+            }
+
+            // Redis 원장 → MongoDB 순서로 이미 적재된 messageKey 제외
+            Set<String> existingMessageKeys = new HashSet<>(restoreLedgerService.findRestored(
+                    RestoreLedgerService.SCOPE_LISTENER_DEAD_LETTERS, byMessageKey.keySet()));
+
+            List<String> uncheckedMessageKeys = byMessageKey.keySet().stream()
+                    .filter(messageKey -> !existingMessageKeys.contains(messageKey))
+                    .collect(Collectors.toList());
+
+            if (!uncheckedMessageKeys.isEmpty()) {
+                listenerDeadLetterRepository.findByMessageKeyIn(uncheckedMessageKeys).stream()
+                        .map(ListenerDeadLetterDocument::getMessageKey)
+                        .forEach(existingMessageKeys::add);
+            }
+
+            List<ListenerDeadLetterDocument> documentsToSave = byMessageKey.values().stream()
+                    .filter(document -> !existingMessageKeys.contains(document.getMessageKey()))
+                    .collect(Collectors.toList());
+
+            if (!documentsToSave.isEmpty()) {
+                listenerDeadLetterRepository.saveAll(documentsToSave);
+            }
+
+            restoreLedgerService.markRestored(RestoreLedgerService.SCOPE_LISTENER_DEAD_LETTERS, byMessageKey.keySet());
+
+            log.info("Imported {} ListenerDeadLetterDocuments from snapshot ({} duplicates skipped)",
+                    documentsToSave.size(), chunk.size() - documentsToSave.size());
+        };
+    }
+
+    // gzip segment 를 FlatFileItemReader 에서 평문처럼 읽기 위한 Resource
+    private static class GzipFileSystemResource extends FileSystemResource {
+        GzipFileSystemResource(Path path) {
+            super(path);
+        }
+
+        @Override
+        @NonNull
+        public InputStream getInputStream() throws IOException {
+            return new GZIPInputStream(super.getInputStream());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package click.dailyfeed.batch.config.job.activity.publish.restore;
+
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.activity.RestoreBatchWriter;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.config.job.support.WriteProfile;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.mapper.MemberActivityMapper;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaPublisherDeadLetterDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * kafka_publisher_dead_letters 를 kafka_listener_dead_letters 를 거치지 않고 바로 member_activities 로 복구합니다.
+ * - publishDeadletterRestoreJob(publisher → listener dead letter) + listenerDeadletterRestoreJob(listener dead letter → member_activities)
+ *   두 단계를 한 번에 처리하므로 중간 컬렉션 쓰기/재조회가 없습니다.
+ * - reader 는 publishDeadletterRestoreJob 의 kafkaPublisherDeadLetterReader 를 그대로 사용합니다. (ordering, scheduling, gridSize 동일)
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class PublishDeadletterFusedRestoreJobConfig {
+
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
+    private final MemberActivityMapper memberActivityMapper;
+    private final RestoreLedgerService restoreLedgerService;
+    private final MongoTemplate mongoTemplate;
+
+    public PublishDeadletterFusedRestoreJobConfig(
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
+            MemberActivityMongoTemplate memberActivityMongoTemplate,
+            MemberActivityMapper memberActivityMapper,
+            RestoreLedgerService restoreLedgerService,
+            MongoTemplate mongoTemplate) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+        this.memberActivityMapper = memberActivityMapper;
+        this.restoreLedgerService = restoreLedgerService;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Bean
+    public Job publishDeadletterFusedRestoreJob(
+            JobRepository jobRepository,
+            Step publishDeadletterFusedRestorePartitionStep) {
+        return new JobBuilder("publishDeadletterFusedRestoreJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(publishDeadletterFusedRestorePartitionStep)
+                .build();
+    }
+
+    /**
+     * is_completed=false 문서를 겹치지 않는 _id 범위로 나누어 worker step 들이 병렬로 처리합니다.
+     * 파티션 수는 jobParameters['gridSize'] 또는 batch.mongo-restore.grid-size 로 설정합니다. (기본값 1: 단일 범위)
+     */
+    @Bean
+    @JobScope
+    public Step publishDeadletterFusedRestorePartitionStep(
+            JobRepository jobRepository,
+            Step publishDeadletterFusedRestoreStep,
+            @Value("#{jobParameters['gridSize'] ?: '${batch.mongo-restore.grid-size:1}'}") Integer gridSize) {
+        return new StepBuilder("publishDeadletterFusedRestorePartitionStep", jobRepository)
+                .partitioner(publishDeadletterFusedRestoreStep.getName(), new ObjectIdRangePartitioner(
+                        mongoTemplate,
+                        KafkaPublisherDeadLetterDocument.class,
+                        DeadLetterMongoTemplate.restorableCriteria()))
+                .step(publishDeadletterFusedRestoreStep)
+                .gridSize(gridSize)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("kafka-publisher-fused-range-", gridSize))
+                .build();
+    }
+
+    @Bean
+    public Step publishDeadletterFusedRestoreStep(
+            JobRepository jobRepository,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
+            ItemReader<List<KafkaPublisherDeadLetterDocument>> kafkaPublisherDeadLetterReader,
+            ItemProcessor<List<KafkaPublisherDeadLetterDocument>, RestoreBatch<KafkaPublisherDeadLetterDocument, MemberActivityDocument>> kafkaPublisherDeadLetterFusedProcessor,
+            ItemWriter<RestoreBatch<KafkaPublisherDeadLetterDocument, MemberActivityDocument>> publisherMemberActivityWriter) {
+        return new StepBuilder("publishDeadletterFusedRestoreStep", jobRepository)
+                .<List<KafkaPublisherDeadLetterDocument>, RestoreBatch<KafkaPublisherDeadLetterDocument, MemberActivityDocument>>chunk(1, transactionManager)
+                .reader(kafkaPublisherDeadLetterReader)
+                .processor(kafkaPublisherDeadLetterFusedProcessor)
+                .writer(publisherMemberActivityWriter)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public ItemProcessor<List<KafkaPublisherDeadLetterDocument>, RestoreBatch<KafkaPublisherDeadLetterDocument, MemberActivityDocument>> kafkaPublisherDeadLetterFusedProcessor() {
+        return documents -> {
+            if (documents.isEmpty()) {
+                log.debug("Empty document list, skipping processing");
+                return null;
+            }
+
+            // 변환에 성공한 원본만 완료 처리 대상으로 writer 에 전달
+            List<KafkaPublisherDeadLetterDocument> convertedDocuments = new ArrayList<>();
+            List<MemberActivityDocument> memberActivityDocuments = new ArrayList<>();
+            // 변환에 실패한 원본은 실패 사유와 함께 전달하여 재시도 횟수를 기록 (한도 초과 시 격리)
+            Map<KafkaPublisherDeadLetterDocument, String> failures = new LinkedHashMap<>();
+
+            for (KafkaPublisherDeadLetterDocument document : documents) {
+                try {
+                    log.debug("Processing KafkaPublisherDeadLetterDocument: category={}, id={}, messageKey={}",
+                            document.getCategory(), document.getId(), document.getMessageKey());
+
+                    MemberActivityType.Category category = document.getCategory();
+                    // 빈 messageKey 는 없는 것으로 취급 (publish → listener 변환과 동일)
+                    String messageKey = document.getMessageKey() != null && !document.getMessageKey().isEmpty()
+                            ? document.getMessageKey()
+                            : null;
+                    MemberActivityDocument memberActivityDocument =
+                            memberActivityMapper.fromDeadLetterPayload(category, document.getPayload(), messageKey);
+
+                    memberActivityDocuments.add(memberActivityDocument);
+                    convertedDocuments.add(document);
+                    log.debug("Successfully converted to MemberActivityDocument: category={}, messageKey={}",
+                            category, messageKey);
+
+                } catch (Exception e) {
+                    log.error("Error processing KafkaPublisherDeadLetterDocument: id={}, category={}, error={}",
+                            document.getId(), document.getCategory(), e.getMessage(), e);
+                    // 처리 실패한 항목은 건너뛰고 재시도 대상으로 기록
+                    failures.put(document, e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+
+            log.info("Processed {} documents into {} MemberActivityDocuments",
+                    documents.size(), memberActivityDocuments.size());
+            RestoreBatch<KafkaPublisherDeadLetterDocument, MemberActivityDocument> restoreBatch =
+                    RestoreBatch.of(convertedDocuments, memberActivityDocuments, failures);
+            return restoreBatch.isEmpty() ? null : restoreBatch;
+        };
+    }
+
+    @Bean
+    @StepScope
+    public ItemWriter<RestoreBatch<KafkaPublisherDeadLetterDocument, MemberActivityDocument>> publisherMemberActivityWriter(
+            @Value("#{jobParameters['writeProfile'] ?: '${batch.mongo-restore.write-profile:balanced}'}") String writeProfile) {
+        return new RestoreBatchWriter<>(
+                deadLetterMongoTemplate,
+                memberActivityMongoTemplate,
+                restoreLedgerService,
+                KafkaPublisherDeadLetterDocument.class,
+                KafkaPublisherDeadLetterDocument::getId,
+                document -> document.getMessageKey() != null && !document.getMessageKey().isEmpty() ? document.getMessageKey() : null,
+                WriteProfile.from(writeProfile));
+    }
+}
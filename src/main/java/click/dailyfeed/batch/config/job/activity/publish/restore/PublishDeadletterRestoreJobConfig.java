@@ -1,134 +1,194 @@
 package click.dailyfeed.batch.config.job.activity.publish.restore;
 
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
 import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.config.job.reader.CategoryLaneItemReader;
+import click.dailyfeed.batch.config.job.reader.MongoKeysetItemReader;
+import click.dailyfeed.batch.config.job.support.CategoryLaneWeights;
+import click.dailyfeed.batch.config.job.support.RestoreOrdering;
+import click.dailyfeed.batch.config.job.support.ScanReadPreference;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
 import click.dailyfeed.deadletter.domain.deadletter.document.KafkaListenerDeadLetterDocument;
 import click.dailyfeed.deadletter.domain.deadletter.document.KafkaPublisherDeadLetterDocument;
 import click.dailyfeed.deadletter.domain.deadletter.repository.mongo.KafkaListenerDeadLetterMongoTemplate;
-import click.dailyfeed.deadletter.domain.deadletter.repository.mongo.KafkaPublisherDeadLetterRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Profile("!test")
 @Configuration
 public class PublishDeadletterRestoreJobConfig {
 
-    private final KafkaPublisherDeadLetterRepository kafkaPublisherDeadLetterRepository;
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
     private final KafkaListenerDeadLetterMongoTemplate kafkaListenerDeadLetterMongoTemplate;
     private final ObjectMapper objectMapper;
+    private final MongoTemplate mongoTemplate;
+    private final MongoTemplate secondaryMongoTemplate;
+    private final CategoryLaneWeights categoryLaneWeights;
 
-    // ThreadLocal로 현재 처리 중인 KafkaPublisherDeadLetterDocument 들을 추적 (롤백용)
-    private static final ThreadLocal<List<KafkaPublisherDeadLetterDocument>> currentBatchDocuments =
-            new ThreadLocal<>();
+    private static final int BATCH_SIZE = 50;
 
     public PublishDeadletterRestoreJobConfig(
-            KafkaPublisherDeadLetterRepository kafkaPublisherDeadLetterRepository,
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
             KafkaListenerDeadLetterMongoTemplate kafkaListenerDeadLetterMongoTemplate,
-            ObjectMapper objectMapper) {
-        this.kafkaPublisherDeadLetterRepository = kafkaPublisherDeadLetterRepository;
+            ObjectMapper objectMapper,
+            MongoTemplate mongoTemplate,
+            @Qualifier("secondaryMongoTemplate") MongoTemplate secondaryMongoTemplate,
+            CategoryLaneWeights categoryLaneWeights) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
         this.kafkaListenerDeadLetterMongoTemplate = kafkaListenerDeadLetterMongoTemplate;
         this.objectMapper = objectMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
+        this.categoryLaneWeights = categoryLaneWeights;
     }
 
     @Bean
     public Job publishDeadletterRestoreJob(
             JobRepository jobRepository,
-            Step publishDeadletterRestoreStep) {
+            Step publishDeadletterRestorePartitionStep) {
         return new JobBuilder("publishDeadletterRestoreJob", jobRepository)
                 .incrementer(new RequestedAtSimpleIncrementer())
-                .start(publishDeadletterRestoreStep)
+                .start(publishDeadletterRestorePartitionStep)
+                .build();
+    }
+
+    /**
+     * is_completed=false 문서를 겹치지 않는 _id 범위로 나누어 worker step 들이 병렬로 처리합니다.
+     * 파티션 수는 jobParameters['gridSize'] 또는 batch.mongo-restore.grid-size 로 설정합니다. (기본값 1: 단일 범위)
+     * jobParameters['minId'] / ['maxId'] 가 있으면 [minId, maxId) 범위만 처리합니다. (change stream 이 감지한 문서 범위)
+     */
+    @Bean
+    @JobScope
+    public Step publishDeadletterRestorePartitionStep(
+            JobRepository jobRepository,
+            Step publishDeadletterRestoreStep,
+            @Value("#{jobParameters['gridSize'] ?: '${batch.mongo-restore.grid-size:1}'}") Integer gridSize,
+            @Value("#{jobParameters['minId']}") String minId,
+            @Value("#{jobParameters['maxId']}") String maxId) {
+        ObjectIdRangePartitioner partitioner = new ObjectIdRangePartitioner(
+                mongoTemplate,
+                KafkaPublisherDeadLetterDocument.class,
+                DeadLetterMongoTemplate.restorableCriteria());
+        partitioner.setRange(minId, maxId);
+        return new StepBuilder("publishDeadletterRestorePartitionStep", jobRepository)
+                .partitioner(publishDeadletterRestoreStep.getName(), partitioner)
+                .step(publishDeadletterRestoreStep)
+                .gridSize(gridSize)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("kafka-publisher-dlq-range-", gridSize))
                 .build();
     }
 
     @Bean
     public Step publishDeadletterRestoreStep(
             JobRepository jobRepository,
-            PlatformTransactionManager transactionManager,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
             ItemReader<List<KafkaPublisherDeadLetterDocument>> kafkaPublisherDeadLetterReader,
-            ItemProcessor<List<KafkaPublisherDeadLetterDocument>, List<KafkaListenerDeadLetterDocument>> kafkaPublisherDeadLetterProcessor,
-            ItemWriter<List<KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterWriter) {
+            ItemProcessor<List<KafkaPublisherDeadLetterDocument>, RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument>> kafkaPublisherDeadLetterProcessor,
+            ItemWriter<RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterWriter) {
         return new StepBuilder("publishDeadletterRestoreStep", jobRepository)
-                .<List<KafkaPublisherDeadLetterDocument>, List<KafkaListenerDeadLetterDocument>>chunk(1, transactionManager)
+                .<List<KafkaPublisherDeadLetterDocument>, RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument>>chunk(1, transactionManager)
                 .reader(kafkaPublisherDeadLetterReader)
                 .processor(kafkaPublisherDeadLetterProcessor)
                 .writer(kafkaListenerDeadLetterWriter)
                 .build();
     }
 
+    /**
+     * is_completed=false 문서를 _id keyset 으로 순회하는 streaming reader
+     * 마지막으로 읽은 _id 를 ExecutionContext 에 저장하므로 재시작 시 이어서 읽습니다.
+     * 파티션으로 실행되면 해당 파티션의 [minId, maxId) 범위만 읽습니다.
+     *
+     * - ordering: oldest(기본값, 오래된 문서부터) | newest
+     * - scheduling: fifo(기본값, 단일 순서) | weighted(카테고리별 lane 을 가중치 비율로 섞어 한 페이지를 구성)
+     */
     @Bean
     @StepScope
-    public ItemReader<List<KafkaPublisherDeadLetterDocument>> kafkaPublisherDeadLetterReader() {
-        return new ItemReader<List<KafkaPublisherDeadLetterDocument>>() {
-            private static final int BATCH_SIZE = 50;
-            private boolean hasMore = true;
-
-            @Override
-            public List<KafkaPublisherDeadLetterDocument> read() {
-                if (!hasMore) {
-                    return null;
-                }
-
-                try {
-                    log.debug("Reading batch from KafkaPublisherDeadLetter (isCompleted=false)");
-                    Pageable pageable = PageRequest.of(0, BATCH_SIZE);
-
-                    List<KafkaPublisherDeadLetterDocument> documents =
-                            kafkaPublisherDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc(Boolean.FALSE, pageable);
-
-                    if (documents != null && !documents.isEmpty()) {
-                        log.info("Fetched {} KafkaPublisherDeadLetter documents", documents.size());
-
-                        // ThreadLocal에 저장 (롤백용)
-                        currentBatchDocuments.set(new ArrayList<>(documents));
-
-                        // 50건 미만이면 다음 읽기에서 null 반환
-                        if (documents.size() < BATCH_SIZE) {
-                            hasMore = false;
-                        }
+    public ItemStreamReader<List<KafkaPublisherDeadLetterDocument>> kafkaPublisherDeadLetterReader(
+            @Value("#{stepExecutionContext['minId']}") String minId,
+            @Value("#{stepExecutionContext['maxId']}") String maxId,
+            @Value("#{jobParameters['ordering'] ?: '${batch.mongo-restore.ordering:oldest}'}") String ordering,
+            @Value("#{jobParameters['scheduling'] ?: '${batch.mongo-restore.scheduling:fifo}'}") String scheduling,
+            @Value("#{jobParameters['scanReadPreference'] ?: '${batch.mongo-restore.scan-read-preference:primary}'}") String scanReadPreference) {
+        Sort.Direction direction = RestoreOrdering.from(ordering).getDirection();
+        // keyset 스캔만 secondary 로 보낼 수 있으며, 완료 처리/저장은 writer 가 primary 에서 수행
+        MongoTemplate scanMongoTemplate = ScanReadPreference.from(scanReadPreference).select(mongoTemplate, secondaryMongoTemplate);
+
+        if ("weighted".equalsIgnoreCase(scheduling)) {
+            CategoryLaneItemReader<KafkaPublisherDeadLetterDocument, MemberActivityType.Category> reader = CategoryLaneItemReader.of(
+                    categoryLaneWeights.weights(),
+                    BATCH_SIZE,
+                    category -> newKafkaPublisherDeadLetterReader(
+                            DeadLetterMongoTemplate.restorableCriteria().and("category").is(category),
+                            scanMongoTemplate, direction, minId, maxId));
+            reader.setName("kafkaPublisherDeadLetterReader");
+            return reader;
+        }
+
+        MongoKeysetItemReader<KafkaPublisherDeadLetterDocument> reader = newKafkaPublisherDeadLetterReader(
+                DeadLetterMongoTemplate.restorableCriteria(), scanMongoTemplate, direction, minId, maxId);
+        reader.setName("kafkaPublisherDeadLetterReader");
+        return reader;
+    }
 
-                        return documents;
-                    } else {
-                        log.info("No more KafkaPublisherDeadLetter documents to process");
-                        hasMore = false;
-                        return null;
-                    }
-                } catch (Exception e) {
-                    log.error("Error reading from KafkaPublisherDeadLetterRepository", e);
-                    hasMore = false;
-                    return null;
-                }
-            }
-        };
+    // 완료 처리는 updateMulti 로 하므로 변환에 필요한 필드만 projection 합니다.
+    private MongoKeysetItemReader<KafkaPublisherDeadLetterDocument> newKafkaPublisherDeadLetterReader(
+            Criteria criteria, MongoTemplate scanMongoTemplate, Sort.Direction direction, String minId, String maxId) {
+        MongoKeysetItemReader<KafkaPublisherDeadLetterDocument> reader = new MongoKeysetItemReader<>(
+                scanMongoTemplate,
+                KafkaPublisherDeadLetterDocument.class,
+                criteria,
+                BATCH_SIZE
+        );
+        reader.setDirection(direction);
+        reader.setCursorBatchSize(BATCH_SIZE * 4);
+        reader.setRange(minId, maxId);
+        reader.setFields("messageKey", "payload", "category");
+        return reader;
     }
 
     @Bean
     @StepScope
-    public ItemProcessor<List<KafkaPublisherDeadLetterDocument>, List<KafkaListenerDeadLetterDocument>> kafkaPublisherDeadLetterProcessor() {
+    public ItemProcessor<List<KafkaPublisherDeadLetterDocument>, RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument>> kafkaPublisherDeadLetterProcessor() {
         return documents -> {
             if (documents.isEmpty()) {
                 log.debug("Empty document list, skipping processing");
                 return null;
             }
 
+            // 변환에 성공한 원본만 완료 처리 대상으로 writer 에 전달
+            List<KafkaPublisherDeadLetterDocument> convertedDocuments = new ArrayList<>();
             List<KafkaListenerDeadLetterDocument> listenerDeadLetterDocuments = new ArrayList<>();
+            // 변환에 실패한 원본은 실패 사유와 함께 전달하여 재시도 횟수를 기록 (한도 초과 시 격리)
+            Map<KafkaPublisherDeadLetterDocument, String> failures = new LinkedHashMap<>();
 
             for (KafkaPublisherDeadLetterDocument document : documents) {
                 try {
@@ -152,37 +212,45 @@ public class PublishDeadletterRestoreJobConfig {
                     }
 
                     listenerDeadLetterDocuments.add(listenerDocument);
+                    convertedDocuments.add(document);
                     log.debug("Successfully converted to KafkaListenerDeadLetterDocument: category={}", document.getCategory());
 
                 } catch (Exception e) {
                     log.error("Error processing KafkaPublisherDeadLetterDocument: id={}, category={}, error={}",
                             document.getId(), document.getCategory(), e.getMessage(), e);
-                    // 처리 실패한 항목은 건너뜀
+                    // 처리 실패한 항목은 건너뛰고 재시도 대상으로 기록
+                    failures.put(document, e.getClass().getSimpleName() + ": " + e.getMessage());
                 }
             }
 
             log.info("Processed {} documents into {} KafkaListenerDeadLetterDocuments",
                     documents.size(), listenerDeadLetterDocuments.size());
-            return listenerDeadLetterDocuments.isEmpty() ? null : listenerDeadLetterDocuments;
+            RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument> restoreBatch =
+                    RestoreBatch.of(convertedDocuments, listenerDeadLetterDocuments, failures);
+            return restoreBatch.isEmpty() ? null : restoreBatch;
         };
     }
 
     @Bean
     @StepScope
-    public ItemWriter<List<KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterWriter() {
+    public ItemWriter<RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument>> kafkaListenerDeadLetterWriter() {
         return chunk -> {
             List<KafkaListenerDeadLetterDocument> allListenerDeadLetters = new ArrayList<>();
-
-            // chunk.getItems()는 List<List<KafkaListenerDeadLetterDocument>> 이므로 flatten
-            for (List<KafkaListenerDeadLetterDocument> listenerDeadLetterList : chunk.getItems()) {
-                if (listenerDeadLetterList != null && !listenerDeadLetterList.isEmpty()) {
-                    allListenerDeadLetters.addAll(listenerDeadLetterList);
-                }
+            List<KafkaPublisherDeadLetterDocument> convertedDocuments = new ArrayList<>();
+            Map<Object, String> failedIds = new LinkedHashMap<>();
+
+            // chunk.getItems()는 List<RestoreBatch> 이므로 flatten
+            for (RestoreBatch<KafkaPublisherDeadLetterDocument, KafkaListenerDeadLetterDocument> batch : chunk.getItems()) {
+                allListenerDeadLetters.addAll(batch.getTargets());
+                convertedDocuments.addAll(batch.getSources());
+                batch.getFailures().forEach((document, error) -> failedIds.put(document.getId(), error));
             }
 
+            // 변환 실패 문서의 retry_count, next_attempt_at 기록 (최대 시도 횟수를 넘기면 dead_letter_quarantine 으로 이동)
+            deadLetterMongoTemplate.recordFailures(KafkaPublisherDeadLetterDocument.class, failedIds);
+
             if (allListenerDeadLetters.isEmpty()) {
                 log.info("No documents to save in this chunk");
-                currentBatchDocuments.remove();
                 return;
             }
 
@@ -192,34 +260,16 @@ public class PublishDeadletterRestoreJobConfig {
                 log.info("Saved {} listener dead letters to kafka_listener_dead_letters collection",
                         allListenerDeadLetters.size());
 
-                // kafka_publisher_dead_letters 문서의 isCompleted를 true로 업데이트
-                List<KafkaPublisherDeadLetterDocument> documentsToUpdate = currentBatchDocuments.get();
-                if (documentsToUpdate != null && !documentsToUpdate.isEmpty()) {
-                    int updatedCount = 0;
-                    for (KafkaPublisherDeadLetterDocument doc : documentsToUpdate) {
-                        try {
-                            doc.markAsCompleted();
-                            kafkaPublisherDeadLetterRepository.save(doc);
-                            updatedCount++;
-                            log.debug("Marked as completed: id={}, category={}", doc.getId(), doc.getCategory());
-                        } catch (Exception e) {
-                            log.error("Failed to update isCompleted for id={}: {}",
-                                    doc.getId(), e.getMessage(), e);
-                        }
-                    }
-
-                    log.info("Updated {} kafka_publisher_dead_letters documents to isCompleted=true", updatedCount);
-                }
+                // 변환에 성공한 kafka_publisher_dead_letters 문서만 한 번의 updateMulti 로 isCompleted=true 처리
+                long updatedCount = deadLetterMongoTemplate.markCompleted(
+                        KafkaPublisherDeadLetterDocument.class,
+                        convertedDocuments.stream().map(KafkaPublisherDeadLetterDocument::getId).toList());
 
-                // 성공 시 ThreadLocal 정리
-                currentBatchDocuments.remove();
+                log.info("Updated {} kafka_publisher_dead_letters documents to isCompleted=true", updatedCount);
 
             } catch (Exception e) {
                 log.error("Failed to save listener dead letters. Transaction will rollback.", e);
 
-                // ThreadLocal 정리
-                currentBatchDocuments.remove();
-
                 // 예외를 다시 던져서 Spring Batch가 실패를 인지하도록 함
                 throw e;
             }
@@ -0,0 +1,254 @@
+package click.dailyfeed.batch.config.job.activity.redisdlq.restore;
+
+import click.dailyfeed.batch.config.job.activity.RestoreBatch;
+import click.dailyfeed.batch.config.job.activity.RestoreBatchWriter;
+import click.dailyfeed.batch.config.job.executor.LaneTaskExecutors;
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.config.job.reader.MongoClaimItemReader;
+import click.dailyfeed.batch.config.job.support.WriteProfile;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.ledger.service.RestoreLedgerService;
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.mapper.MemberActivityMapper;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
+import click.dailyfeed.batch.domain.redisdlq.document.RedisDLQDocument;
+import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * redis_dead_letters 복구 잡
+ * 1) redisDLQReclaimStep: 만료된 선점(is_editing)을 한 번의 updateMulti 로 해제
+ * 2) redisDLQRestorePartitionStep: _id 범위 파티션마다 is_editing 으로 페이지 단위 선점 → 변환 → member_activities 저장 → 완료 처리
+ *
+ * 컬렉션 전체를 메모리에 올리지 않고 BATCH_SIZE 건씩 선점하며 읽으므로 여러 노드에서 동시에 실행해도 안전합니다.
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+public class RedisDLQRestoreJobConfig {
+
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
+    private final MemberActivityMapper memberActivityMapper;
+    private final ObjectMapper objectMapper;
+    private final RestoreLedgerService restoreLedgerService;
+    private final MongoTemplate mongoTemplate;
+
+    private static final int BATCH_SIZE = 50;
+
+    public RedisDLQRestoreJobConfig(
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
+            MemberActivityMongoTemplate memberActivityMongoTemplate,
+            MemberActivityMapper memberActivityMapper,
+            ObjectMapper objectMapper,
+            RestoreLedgerService restoreLedgerService,
+            MongoTemplate mongoTemplate) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+        this.memberActivityMapper = memberActivityMapper;
+        this.objectMapper = objectMapper;
+        this.restoreLedgerService = restoreLedgerService;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Bean
+    public Job redisDLQRestoreJob(
+            JobRepository jobRepository,
+            Step redisDLQReclaimStep,
+            Step redisDLQRestorePartitionStep) {
+        return new JobBuilder("redisDLQRestoreJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(redisDLQReclaimStep)
+                .next(redisDLQRestorePartitionStep)
+                .build();
+    }
+
+    /**
+     * 선점은 chunk 트랜잭션과 무관하게 즉시 반영되어야 하므로 ResourcelessTransactionManager 를 사용합니다.
+     */
+    @Bean
+    public Step redisDLQReclaimStep(
+            JobRepository jobRepository,
+            Tasklet redisDLQReclaimTasklet) {
+        return new StepBuilder("redisDLQReclaimStep", jobRepository)
+                .tasklet(redisDLQReclaimTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    /**
+     * - claimLeaseSeconds 보다 오래된 선점
+     * - claimed_at 없이 is_editing=true 로 staleHours(기본값 5시간) 이상 남아 있는 문서
+     */
+    @Bean
+    @StepScope
+    public Tasklet redisDLQReclaimTasklet(
+            @Value("#{jobParameters['claimLeaseSeconds'] ?: '${batch.mongo-restore.claim-lease-seconds:600}'}") Long claimLeaseSeconds,
+            @Value("#{jobParameters['staleHours'] ?: '${batch.redis-dlq-restore.stale-hours:5}'}") Long staleHours) {
+        return (contribution, chunkContext) -> {
+            long reclaimed = deadLetterMongoTemplate.reclaimStaleClaims(
+                    RedisDLQDocument.class, Duration.ofSeconds(claimLeaseSeconds), Duration.ofHours(staleHours));
+            contribution.incrementWriteCount(reclaimed);
+            return RepeatStatus.FINISHED;
+        };
+    }
+
+    /**
+     * is_completed=false 문서를 겹치지 않는 _id 범위로 나누어 worker step 들이 병렬로 처리합니다.
+     * 파티션 수는 jobParameters['gridSize'] 또는 batch.mongo-restore.grid-size 로 설정합니다. (기본값 1: 단일 범위)
+     */
+    @Bean
+    @JobScope
+    public Step redisDLQRestorePartitionStep(
+            JobRepository jobRepository,
+            Step redisDLQRestoreStep,
+            @Value("#{jobParameters['gridSize'] ?: '${batch.mongo-restore.grid-size:1}'}") Integer gridSize) {
+        return new StepBuilder("redisDLQRestorePartitionStep", jobRepository)
+                .partitioner(redisDLQRestoreStep.getName(), new ObjectIdRangePartitioner(
+                        mongoTemplate,
+                        RedisDLQDocument.class,
+                        DeadLetterMongoTemplate.restorableCriteria()))
+                .step(redisDLQRestoreStep)
+                .gridSize(gridSize)
+                .taskExecutor(LaneTaskExecutors.newLaneExecutor("redis-dlq-range-", gridSize))
+                .build();
+    }
+
+    @Bean
+    public Step redisDLQRestoreStep(
+            JobRepository jobRepository,
+            @Qualifier("mongoChunkTransactionManager") PlatformTransactionManager transactionManager,
+            ItemReader<List<RedisDLQDocument>> redisDLQReader,
+            ItemProcessor<List<RedisDLQDocument>, RestoreBatch<RedisDLQDocument, MemberActivityDocument>> redisDLQProcessor,
+            ItemWriter<RestoreBatch<RedisDLQDocument, MemberActivityDocument>> redisDLQMemberActivityWriter) {
+        return new StepBuilder("redisDLQRestoreStep", jobRepository)
+                .<List<RedisDLQDocument>, RestoreBatch<RedisDLQDocument, MemberActivityDocument>>chunk(1, transactionManager)
+                .reader(redisDLQReader)
+                .processor(redisDLQProcessor)
+                .writer(redisDLQMemberActivityWriter)
+                .build();
+    }
+
+    /**
+     * is_editing 으로 BATCH_SIZE 건씩 선점하며 _id 오름차순으로 읽는 reader
+     * 파티션으로 실행되면 해당 파티션의 [minId, maxId) 범위만 선점합니다.
+     */
+    @Bean
+    @StepScope
+    public ItemStreamReader<List<RedisDLQDocument>> redisDLQReader(
+            @Value("#{stepExecutionContext['minId']}") String minId,
+            @Value("#{stepExecutionContext['maxId']}") String maxId,
+            @Value("#{jobParameters['claimLeaseSeconds'] ?: '${batch.mongo-restore.claim-lease-seconds:600}'}") Long claimLeaseSeconds,
+            @Value("#{stepExecution}") StepExecution stepExecution) {
+        MongoClaimItemReader<RedisDLQDocument> reader = new MongoClaimItemReader<>(
+                deadLetterMongoTemplate,
+                mongoTemplate,
+                RedisDLQDocument.class,
+                DeadLetterMongoTemplate.restorableCriteria(),
+                BATCH_SIZE,
+                MongoClaimItemReader.claimToken(stepExecution)
+        );
+        reader.setName("redisDLQReader");
+        reader.setLeaseTimeout(Duration.ofSeconds(claimLeaseSeconds));
+        reader.setRange(minId, maxId);
+        reader.setFields("messageKey", "payload");
+        return reader;
+    }
+
+    @Bean
+    @StepScope
+    public ItemProcessor<List<RedisDLQDocument>, RestoreBatch<RedisDLQDocument, MemberActivityDocument>> redisDLQProcessor() {
+        return documents -> {
+            if (documents.isEmpty()) {
+                log.debug("Empty document list, skipping processing");
+                return null;
+            }
+
+            // 변환에 성공한 원본만 완료 처리 대상으로 writer 에 전달
+            List<RedisDLQDocument> convertedDocuments = new ArrayList<>();
+            List<MemberActivityDocument> memberActivityDocuments = new ArrayList<>();
+            // 변환에 실패한 원본은 실패 사유와 함께 전달하여 재시도 횟수를 기록 (한도 초과 시 격리)
+            Map<RedisDLQDocument, String> failures = new LinkedHashMap<>();
+
+            for (RedisDLQDocument document : documents) {
+                try {
+                    log.debug("Processing RedisDLQDocument: id={}, messageKey={}", document.getId(), document.getMessageKey());
+
+                    // Redis dead letter 큐의 원본 메시지(JSON)를 MemberActivityMessage 로 변환
+                    MemberActivityTransportDto.MemberActivityMessage memberActivityMessage =
+                            objectMapper.readValue(
+                                    document.getPayload(),
+                                    MemberActivityTransportDto.MemberActivityMessage.class
+                            );
+
+                    MemberActivityDocument memberActivityDocument =
+                            memberActivityMapper.fromEvent(
+                                    memberActivityMessage.getEvent(),
+                                    document.getMessageKey()
+                            );
+
+                    memberActivityDocuments.add(memberActivityDocument);
+                    convertedDocuments.add(document);
+
+                } catch (Exception e) {
+                    log.error("Error processing RedisDLQDocument: id={}, messageKey={}, error={}",
+                            document.getId(), document.getMessageKey(), e.getMessage(), e);
+                    // 처리 실패한 항목은 건너뛰고 재시도 대상으로 기록
+                    failures.put(document, e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+
+            log.info("Processed {} documents into {} MemberActivityDocuments",
+                    documents.size(), memberActivityDocuments.size());
+            RestoreBatch<RedisDLQDocument, MemberActivityDocument> restoreBatch =
+                    RestoreBatch.of(convertedDocuments, memberActivityDocuments, failures);
+            return restoreBatch.isEmpty() ? null : restoreBatch;
+        };
+    }
+
+    @Bean
+    @StepScope
+    public ItemWriter<RestoreBatch<RedisDLQDocument, MemberActivityDocument>> redisDLQMemberActivityWriter(
+            @Value("#{jobParameters['writeProfile'] ?: '${batch.mongo-restore.write-profile:balanced}'}") String writeProfile,
+            @Value("#{stepExecution}") StepExecution stepExecution) {
+        RestoreBatchWriter<RedisDLQDocument> writer = new RestoreBatchWriter<>(
+                deadLetterMongoTemplate,
+                memberActivityMongoTemplate,
+                restoreLedgerService,
+                RedisDLQDocument.class,
+                RedisDLQDocument::getId,
+                RedisDLQDocument::getMessageKey,
+                WriteProfile.from(writeProfile));
+        writer.setClaimToken(MongoClaimItemReader.claimToken(stepExecution));
+        return writer;
+    }
+}
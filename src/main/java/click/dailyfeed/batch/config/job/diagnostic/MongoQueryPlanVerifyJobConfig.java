@@ -0,0 +1,123 @@
+package click.dailyfeed.batch.config.job.diagnostic;
+
+import click.dailyfeed.batch.config.job.incrementer.RequestedAtSimpleIncrementer;
+import click.dailyfeed.batch.domain.diagnostic.service.MongoQueryPlanVerifier;
+import com.mongodb.ExplainVerbosity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 복구 잡 쿼리의 실행 계획 점검 잡
+ * - COLLSCAN / SORT stage 가 있는 쿼리와 예상 비용(검사한 key/문서 수)을 보고합니다.
+ * - createIndexes=true 로 실행하면 문제가 있는 쿼리의 권장 인덱스를 생성합니다. (기본값: 보고만 함)
+ *
+ * 실행 예: --spring.batch.job.name=mongoQueryPlanVerifyJob createIndexes=true
+ */
+@Slf4j
+@Profile("!test")
+@Configuration
+@RequiredArgsConstructor
+public class MongoQueryPlanVerifyJobConfig {
+
+    private final MongoQueryPlanVerifier mongoQueryPlanVerifier;
+
+    @Bean
+    public Job mongoQueryPlanVerifyJob(
+            JobRepository jobRepository,
+            Step mongoQueryPlanVerifyStep) {
+        return new JobBuilder("mongoQueryPlanVerifyJob", jobRepository)
+                .incrementer(new RequestedAtSimpleIncrementer())
+                .start(mongoQueryPlanVerifyStep)
+                .build();
+    }
+
+    /**
+     * explain 은 multi-document transaction 안에서 실행할 수 없으므로
+     * MongoTransactionManager 대신 ResourcelessTransactionManager 를 사용합니다.
+     */
+    @Bean
+    public Step mongoQueryPlanVerifyStep(
+            JobRepository jobRepository,
+            Tasklet mongoQueryPlanVerifyTasklet) {
+        return new StepBuilder("mongoQueryPlanVerifyStep", jobRepository)
+                .tasklet(mongoQueryPlanVerifyTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public Tasklet mongoQueryPlanVerifyTasklet(
+            @Value("#{jobParameters['createIndexes'] ?: 'false'}") String createIndexes,
+            @Value("#{jobParameters['explainVerbosity'] ?: 'EXECUTION_STATS'}") String explainVerbosity) {
+        boolean shouldCreateIndexes = Boolean.parseBoolean(createIndexes);
+        ExplainVerbosity verbosity = ExplainVerbosity.valueOf(explainVerbosity.toUpperCase());
+
+        return (contribution, chunkContext) -> {
+            int checked = 0;
+            int problems = 0;
+            int created = 0;
+
+            for (MongoQueryPlanVerifier.QueryPlanCheck check : mongoQueryPlanVerifier.restoreQueryChecks()) {
+                checked++;
+
+                MongoQueryPlanVerifier.QueryPlanReport report;
+                try {
+                    report = mongoQueryPlanVerifier.explain(check, verbosity);
+                } catch (Exception e) {
+                    log.error("Failed to explain query: name={}, error={}", check.name(), e.getMessage(), e);
+                    continue;
+                }
+
+                if (!report.needsIndex()) {
+                    log.info("[OK] {} ({}): stages={}, keysExamined={}, docsExamined={}, nReturned={}, {}ms",
+                            check.name(), report.collectionName(), report.stages(),
+                            report.totalKeysExamined(), report.totalDocsExamined(),
+                            report.nReturned(), report.executionTimeMillis());
+                    continue;
+                }
+
+                problems++;
+                log.warn("[{}{}] {} ({}): stages={}, keysExamined={}, docsExamined={}, nReturned={}, {}ms, recommended index={} {}",
+                        report.collectionScan() ? "COLLSCAN" : "",
+                        report.inMemorySort() ? (report.collectionScan() ? "+SORT" : "SORT") : "",
+                        check.name(), report.collectionName(), report.stages(),
+                        report.totalKeysExamined(), report.totalDocsExamined(),
+                        report.nReturned(), report.executionTimeMillis(),
+                        check.recommendedIndex().getIndexKeys().toJson(),
+                        check.recommendedIndex().getIndexOptions().toJson());
+
+                if (shouldCreateIndexes) {
+                    try {
+                        String indexName = mongoQueryPlanVerifier.createRecommendedIndex(report);
+                        created++;
+                        log.info("Created index {} on {}", indexName, report.collectionName());
+                    } catch (Exception e) {
+                        log.error("Failed to create index on {}: {}", report.collectionName(), e.getMessage(), e);
+                    }
+                }
+            }
+
+            contribution.getStepExecution().getExecutionContext().putInt("checkedQueries", checked);
+            contribution.getStepExecution().getExecutionContext().putInt("problemQueries", problems);
+            contribution.getStepExecution().getExecutionContext().putInt("createdIndexes", created);
+
+            log.info("Query plan verification finished: checked={}, needsIndex={}, createdIndexes={}{}",
+                    checked, problems, created,
+                    problems > 0 && !shouldCreateIndexes ? " (run with createIndexes=true to create recommended indexes)" : "");
+            return RepeatStatus.FINISHED;
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package click.dailyfeed.batch.config.job.executor;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * 파티션(lane) 스텝 실행용 TaskExecutor 팩토리
+ * - JDK 21 이상: virtual thread 사용 (I/O 대기 위주의 lane 에 적합)
+ * - 그 외: platform thread 사용
+ *
+ * 빈으로 등록하면 Spring Boot 의 applicationTaskExecutor 자동설정이 비활성화되므로 팩토리로 제공합니다.
+ */
+public final class LaneTaskExecutors {
+
+    private LaneTaskExecutors() {
+    }
+
+    public static TaskExecutor newLaneExecutor(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(Runtime.version().feature() >= 21);
+        executor.setConcurrencyLimit(Math.max(1, concurrencyLimit));
+        return executor;
+    }
+}
@@ -0,0 +1,28 @@
+package click.dailyfeed.batch.config.job.partition;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 동일한 소스를 N개의 lane 으로 나누어 동시에 소비하기 위한 Partitioner
+ * Redis LPOP 처럼 소스 자체가 원자적으로 분배되는 경우에 사용합니다.
+ * 각 lane 은 별도의 StepExecution 을 가지므로 @StepScope reader/processor/writer 가 lane 별로 생성됩니다.
+ */
+public class LanePartitioner implements Partitioner {
+    public static final String LANE_KEY = "lane";
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int lanes = Math.max(1, gridSize);
+        Map<String, ExecutionContext> partitions = new HashMap<>(lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putInt(LANE_KEY, lane);
+            partitions.put("lane-" + lane, context);
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,146 @@
+package click.dailyfeed.batch.config.job.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MongoDB 컬렉션을 서로 겹치지 않는 _id(ObjectId) 범위로 나누는 Partitioner
+ * - 조건에 맞는 문서의 최소/최대 _id 를 조회한 뒤, ObjectId 에 포함된 생성 시각(초)을 gridSize 등분합니다.
+ * - 각 파티션은 [minId, maxId) 범위를 ExecutionContext 에 담아 worker step 의 reader 에 전달합니다.
+ *
+ * gridSize 가 1 이거나 _id 가 ObjectId 가 아니면 범위 없이 파티션 하나를 만듭니다. (기존 단일 스텝과 동일)
+ * setRange 로 전체 범위를 지정하면 모든 파티션이 그 안으로 제한됩니다. (change stream 이 감지한 문서 범위만 복구)
+ */
+@Slf4j
+public class ObjectIdRangePartitioner implements Partitioner {
+    public static final String MIN_ID_KEY = "minId";
+    public static final String MAX_ID_KEY = "maxId";
+
+    private static final String ID_FIELD = "_id";
+
+    private final MongoTemplate mongoTemplate;
+    private final Class<?> type;
+    private final Criteria criteria;
+
+    private ObjectId rangeMinId;
+    private ObjectId rangeMaxId;
+
+    public ObjectIdRangePartitioner(MongoTemplate mongoTemplate, Class<?> type, Criteria criteria) {
+        this.mongoTemplate = mongoTemplate;
+        this.type = type;
+        this.criteria = criteria;
+    }
+
+    /**
+     * 파티션을 나눌 전체 _id 범위 [minId, maxId), null 또는 빈 문자열이면 해당 방향으로 제한 없음
+     */
+    public void setRange(String minId, String maxId) {
+        this.rangeMinId = minId != null && !minId.isBlank() ? new ObjectId(minId) : null;
+        this.rangeMaxId = maxId != null && !maxId.isBlank() ? new ObjectId(maxId) : null;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        if (gridSize <= 1) {
+            return singlePartition();
+        }
+
+        Object minId = boundaryId(Sort.Direction.ASC);
+        Object maxId = boundaryId(Sort.Direction.DESC);
+        if (!(minId instanceof ObjectId min) || !(maxId instanceof ObjectId max)) {
+            if (minId != null) {
+                log.warn("{} _id is not an ObjectId. Falling back to a single partition.", type.getSimpleName());
+            }
+            return singlePartition();
+        }
+
+        // 초 단위 생성 시각 범위 [minSeconds, maxSeconds] 를 gridSize 등분
+        long minSeconds = Integer.toUnsignedLong(min.getTimestamp());
+        long endSeconds = Integer.toUnsignedLong(max.getTimestamp()) + 1;
+        int partitionCount = (int) Math.min(gridSize, endSeconds - minSeconds);
+        long secondsPerPartition = (endSeconds - minSeconds + partitionCount - 1) / partitionCount;
+
+        Map<String, ExecutionContext> partitions = new HashMap<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            long lowerSeconds = minSeconds + i * secondsPerPartition;
+            long upperSeconds = Math.min(lowerSeconds + secondsPerPartition, endSeconds);
+            if (lowerSeconds >= upperSeconds) {
+                break;
+            }
+
+            // 첫/마지막 파티션은 지정된 전체 범위 밖으로 나가지 않도록 경계를 맞춤
+            ObjectId lower = minObjectIdAt(lowerSeconds);
+            ObjectId upper = minObjectIdAt(upperSeconds);
+            if (rangeMinId != null && lower.compareTo(rangeMinId) < 0) {
+                lower = rangeMinId;
+            }
+            if (rangeMaxId != null && upper.compareTo(rangeMaxId) > 0) {
+                upper = rangeMaxId;
+            }
+
+            ExecutionContext context = new ExecutionContext();
+            context.putString(MIN_ID_KEY, lower.toHexString());
+            context.putString(MAX_ID_KEY, upper.toHexString());
+            partitions.put("range-" + i, context);
+        }
+
+        log.info("Partitioned {} into {} _id ranges between {} and {}",
+                type.getSimpleName(), partitions.size(), min.getDate(), max.getDate());
+        return partitions;
+    }
+
+    private Map<String, ExecutionContext> singlePartition() {
+        ExecutionContext context = new ExecutionContext();
+        if (rangeMinId != null) {
+            context.putString(MIN_ID_KEY, rangeMinId.toHexString());
+        }
+        if (rangeMaxId != null) {
+            context.putString(MAX_ID_KEY, rangeMaxId.toHexString());
+        }
+        Map<String, ExecutionContext> partitions = new HashMap<>(1);
+        partitions.put("range-0", context);
+        return partitions;
+    }
+
+    private Criteria rangeCriteria() {
+        if (rangeMinId == null && rangeMaxId == null) {
+            return criteria;
+        }
+        Criteria idCriteria = Criteria.where(ID_FIELD);
+        if (rangeMinId != null) {
+            idCriteria.gte(rangeMinId);
+        }
+        if (rangeMaxId != null) {
+            idCriteria.lt(rangeMaxId);
+        }
+        return new Criteria().andOperator(criteria, idCriteria);
+    }
+
+    private Object boundaryId(Sort.Direction direction) {
+        Query query = new Query(rangeCriteria()).with(Sort.by(direction, ID_FIELD)).limit(1);
+        query.fields().include(ID_FIELD);
+
+        Object document = mongoTemplate.findOne(query, type);
+        if (document == null) {
+            return null;
+        }
+        return mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(type)
+                .getIdentifierAccessor(document)
+                .getIdentifier();
+    }
+
+    // 해당 초에 생성될 수 있는 가장 작은 ObjectId (timestamp + 0 패딩)
+    public static ObjectId minObjectIdAt(long epochSeconds) {
+        return new ObjectId(String.format("%08x", epochSeconds) + "0000000000000000");
+    }
+}
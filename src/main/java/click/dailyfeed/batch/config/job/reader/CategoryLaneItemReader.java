@@ -0,0 +1,138 @@
+package click.dailyfeed.batch.config.job.reader;
+
+import click.dailyfeed.batch.config.job.support.WeightedQuota;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 카테고리별 lane 으로 나누어 가중치 비율대로 한 페이지를 구성하는 reader
+ * - lane 마다 별도의 MongoKeysetItemReader(카테고리 조건 추가)를 사용합니다.
+ * - 매 페이지마다 WeightedQuota 로 lane 별 할당량을 정하므로 가중치가 양수인 lane 은 항상 일정 비율을 보장받습니다.
+ * - 할당량을 다 채우지 못한 lane 의 남은 자리는 가중치 순서대로 다른 lane 이 채웁니다. (빈 자리 없이 pageSize 를 채움)
+ *
+ * 각 lane reader 의 위치(last.id)는 lane 이름으로 ExecutionContext 에 저장되므로 재시작 시 lane 별로 이어서 읽습니다.
+ */
+@Slf4j
+public class CategoryLaneItemReader<T, C> extends ItemStreamSupport implements ItemStreamReader<List<T>> {
+    private final Map<C, MongoKeysetItemReader<T>> lanes;
+    private final Map<C, Integer> weights;
+    private final int pageSize;
+
+    private final Set<C> exhaustedLanes = new HashSet<>();
+
+    /**
+     * @param lanes    카테고리별 reader (가중치 내림차순 등 우선순위 순서로 전달)
+     * @param weights  카테고리별 가중치
+     * @param pageSize 한 번에 반환할 최대 건수
+     */
+    public CategoryLaneItemReader(Map<C, MongoKeysetItemReader<T>> lanes, Map<C, Integer> weights, int pageSize) {
+        this.lanes = new LinkedHashMap<>(lanes);
+        this.weights = weights;
+        this.pageSize = pageSize;
+        setName("categoryLaneReader");
+    }
+
+    /**
+     * 가중치 순서대로 카테고리별 lane reader 를 생성합니다.
+     */
+    public static <T, C> CategoryLaneItemReader<T, C> of(
+            Map<C, Integer> weights, int pageSize, Function<C, MongoKeysetItemReader<T>> laneReaderFactory) {
+        Map<C, MongoKeysetItemReader<T>> lanes = new LinkedHashMap<>();
+        weights.keySet().forEach(category -> lanes.put(category, laneReaderFactory.apply(category)));
+        return new CategoryLaneItemReader<>(lanes, weights, pageSize);
+    }
+
+    @Override
+    public void setName(String name) {
+        super.setName(name);
+        // lane reader 의 ExecutionContext 키가 겹치지 않도록 lane 이름을 부여
+        if (lanes != null) {
+            lanes.forEach((category, reader) -> reader.setName(name + "." + category));
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        exhaustedLanes.clear();
+        for (MongoKeysetItemReader<T> reader : lanes.values()) {
+            reader.open(executionContext);
+        }
+    }
+
+    @Override
+    public List<T> read() {
+        Map<C, Integer> activeWeights = new LinkedHashMap<>();
+        lanes.keySet().stream()
+                .filter(category -> !exhaustedLanes.contains(category))
+                .forEach(category -> activeWeights.put(category, weights.getOrDefault(category, 1)));
+
+        if (activeWeights.isEmpty()) {
+            log.info("All category lanes are drained");
+            return null;
+        }
+
+        List<T> page = new ArrayList<>(pageSize);
+        Map<C, Integer> fetched = new LinkedHashMap<>();
+
+        // 1. 가중치 비율대로 lane 별 할당량만큼 읽음
+        Map<C, Integer> quotas = WeightedQuota.allocate(activeWeights, pageSize);
+        quotas.forEach((category, quota) -> readLane(category, quota, page, fetched));
+
+        // 2. 할당량을 채우지 못한 lane 의 빈 자리를 남은 lane 이 우선순위 순서대로 채움
+        for (C category : activeWeights.keySet()) {
+            if (page.size() >= pageSize) {
+                break;
+            }
+            if (!exhaustedLanes.contains(category)) {
+                readLane(category, pageSize - page.size(), page, fetched);
+            }
+        }
+
+        if (page.isEmpty()) {
+            log.info("All category lanes are drained");
+            return null;
+        }
+
+        log.info("Fetched {} documents by category lanes: {}", page.size(), fetched);
+        return page;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        for (MongoKeysetItemReader<T> reader : lanes.values()) {
+            reader.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        for (MongoKeysetItemReader<T> reader : lanes.values()) {
+            reader.close();
+        }
+    }
+
+    private void readLane(C category, int maxItems, List<T> page, Map<C, Integer> fetched) {
+        if (maxItems <= 0) {
+            return;
+        }
+
+        List<T> items = lanes.get(category).readUpTo(maxItems);
+        if (items.size() < maxItems) {
+            exhaustedLanes.add(category);
+        }
+
+        page.addAll(items);
+        fetched.merge(category, items.size(), Integer::sum);
+    }
+}
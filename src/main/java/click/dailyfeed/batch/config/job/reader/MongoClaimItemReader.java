@@ -0,0 +1,165 @@
+package click.dailyfeed.batch.config.job.reader;
+
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 선점(claim) 기반 MongoDB reader
+ * - 매 read 마다 미선점(is_editing=false) 또는 선점이 만료된 문서를 pageSize 건 선점하고, 선점에 성공한 문서만 반환합니다.
+ * - 여러 노드(파드)가 같은 잡을 동시에 실행해도 같은 문서를 중복 처리하지 않습니다.
+ * - 실행 안에서는 _id 오름차순 keyset 으로 진행하므로 변환 실패로 선점이 해제된 문서를 같은 실행에서 다시 읽지 않습니다.
+ * - close 시 아직 완료되지 않은 선점을 해제합니다. (스텝 실패 포함, 비정상 종료 시에는 lease 만료 후 다른 노드가 재선점)
+ *
+ * writer 는 {@link #claimToken(StepExecution)} 로 같은 토큰을 얻어 완료/해제 처리합니다.
+ */
+@Slf4j
+public class MongoClaimItemReader<T> extends ItemStreamSupport implements ItemStreamReader<List<T>> {
+    private static final String LAST_ID_KEY = "last.id";
+    private static final String ID_FIELD = "_id";
+
+    private final DeadLetterMongoTemplate deadLetterMongoTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final Class<T> type;
+    private final Criteria criteria;
+    private final int pageSize;
+    private final String claimToken;
+
+    private Duration leaseTimeout = Duration.ofMinutes(10);
+    private String[] fields = new String[0];
+    private Object minId;
+    private Object maxId;
+    private Object lastId;
+
+    public MongoClaimItemReader(
+            DeadLetterMongoTemplate deadLetterMongoTemplate,
+            MongoTemplate mongoTemplate,
+            Class<T> type,
+            Criteria criteria,
+            int pageSize,
+            String claimToken) {
+        this.deadLetterMongoTemplate = deadLetterMongoTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.type = type;
+        this.criteria = criteria;
+        this.pageSize = pageSize;
+        this.claimToken = claimToken;
+        setName(type.getSimpleName() + "ClaimReader");
+    }
+
+    /**
+     * 스텝 실행별 선점 토큰 (호스트명:StepExecution id)
+     */
+    public static String claimToken(StepExecution stepExecution) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + stepExecution.getId();
+    }
+
+    /**
+     * 선점 만료 시간 (기본값: 10분)
+     */
+    public void setLeaseTimeout(Duration leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * 조회할 필드 (processor 가 필요로 하는 필드만 projection), 비어 있으면 전체 필드
+     */
+    public void setFields(String... fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * 선점할 _id 범위 [minId, maxId), null 이면 해당 방향으로 제한 없음
+     */
+    public void setRange(Object minId, Object maxId) {
+        this.minId = toId(minId);
+        this.maxId = toId(maxId);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String savedLastId = executionContext.getString(getExecutionContextKey(LAST_ID_KEY), null);
+        if (savedLastId != null) {
+            lastId = toId(savedLastId);
+            log.info("Resuming {} claims after _id={}", type.getSimpleName(), savedLastId);
+        }
+        log.info("Claiming {} documents with token={}", type.getSimpleName(), claimToken);
+    }
+
+    @Override
+    public List<T> read() {
+        List<T> page = deadLetterMongoTemplate.claim(
+                type, criteria, idCriteria(), pageSize, claimToken, leaseTimeout, fields);
+
+        if (page.isEmpty()) {
+            log.info("No more {} documents to claim", type.getSimpleName());
+            return null;
+        }
+
+        lastId = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(type)
+                .getIdentifierAccessor(page.get(page.size() - 1))
+                .getRequiredIdentifier();
+        log.info("Claimed {} {} documents", page.size(), type.getSimpleName());
+        return page;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (lastId != null) {
+            executionContext.putString(getExecutionContextKey(LAST_ID_KEY), lastId.toString());
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        try {
+            deadLetterMongoTemplate.releaseClaims(type, claimToken);
+        } catch (Exception e) {
+            log.warn("Failed to release {} claims (token={}). They will expire after {}.",
+                    type.getSimpleName(), claimToken, leaseTimeout, e);
+        }
+    }
+
+    // [minId, maxId) 범위와 keyset 위치(lastId)를 하나의 _id 조건으로 합침
+    private Criteria idCriteria() {
+        if (minId == null && maxId == null && lastId == null) {
+            return null;
+        }
+
+        Criteria idCriteria = Criteria.where(ID_FIELD);
+        if (lastId != null) {
+            idCriteria.gt(lastId);
+        } else if (minId != null) {
+            idCriteria.gte(minId);
+        }
+        if (maxId != null) {
+            idCriteria.lt(maxId);
+        }
+        return idCriteria;
+    }
+
+    private static Object toId(Object id) {
+        if (id instanceof String value && ObjectId.isValid(value)) {
+            return new ObjectId(value);
+        }
+        return id;
+    }
+}
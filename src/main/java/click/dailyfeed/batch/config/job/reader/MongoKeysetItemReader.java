@@ -0,0 +1,196 @@
+package click.dailyfeed.batch.config.job.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * _id keyset 기반 MongoDB streaming reader
+ * - 하나의 서버 커서(cursorBatchSize 단위 getMore)로 조건에 맞는 문서를 끝까지 순회합니다.
+ * - pageSize 건씩 묶어 List 로 반환하므로 기존 List 기반 processor/writer 를 그대로 사용할 수 있습니다.
+ * - 마지막으로 읽은 _id 를 ExecutionContext 에 저장하므로 재시작 시 그 다음 문서부터 이어서 읽습니다.
+ *
+ * 매 페이지마다 정렬 쿼리를 다시 실행하지 않고, writer 가 is_completed 를 바꾸지 않은 문서(변환 실패 등)도
+ * 같은 실행 안에서 다시 읽지 않습니다.
+ *
+ * setRange 로 [minId, maxId) 범위를 지정하면 해당 범위만 읽습니다. (ObjectIdRangePartitioner 파티션별 reader)
+ */
+@Slf4j
+public class MongoKeysetItemReader<T> extends ItemStreamSupport implements ItemStreamReader<List<T>> {
+    private static final String LAST_ID_KEY = "last.id";
+    private static final String ID_FIELD = "_id";
+
+    private final MongoTemplate mongoTemplate;
+    private final Class<T> type;
+    private final Criteria criteria;
+    private final int pageSize;
+
+    private Sort.Direction direction = Sort.Direction.DESC;
+    private String[] fields = new String[0];
+    private int cursorBatchSize = 0;
+    private Object minId;
+    private Object maxId;
+
+    private Stream<T> stream;
+    private Iterator<T> iterator;
+    private Object lastId;
+
+    public MongoKeysetItemReader(MongoTemplate mongoTemplate, Class<T> type, Criteria criteria, int pageSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.type = type;
+        this.criteria = criteria;
+        this.pageSize = pageSize;
+        setName(type.getSimpleName() + "KeysetReader");
+    }
+
+    /**
+     * _id 정렬 방향 (기본값: DESC, 최신순)
+     */
+    public void setDirection(Sort.Direction direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * 조회할 필드 (processor 가 필요로 하는 필드만 projection), 비어 있으면 전체 필드
+     */
+    public void setFields(String... fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * 서버 커서의 getMore 배치 크기, 0 이면 드라이버 기본값
+     */
+    public void setCursorBatchSize(int cursorBatchSize) {
+        this.cursorBatchSize = cursorBatchSize;
+    }
+
+    /**
+     * 읽을 _id 범위 [minId, maxId), null 이면 해당 방향으로 제한 없음
+     * ObjectId hex 문자열은 ObjectId 로 변환합니다.
+     */
+    public void setRange(Object minId, Object maxId) {
+        this.minId = toId(minId);
+        this.maxId = toId(maxId);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        String savedLastId = executionContext.getString(getExecutionContextKey(LAST_ID_KEY), null);
+        if (savedLastId != null) {
+            lastId = toId(savedLastId);
+            log.info("Resuming {} after _id={}", type.getSimpleName(), savedLastId);
+        }
+
+        Query query = new Query(criteria);
+        Criteria idCriteria = idCriteria();
+        if (idCriteria != null) {
+            query.addCriteria(idCriteria);
+        }
+        query.with(Sort.by(direction, ID_FIELD));
+        for (String field : fields) {
+            query.fields().include(field);
+        }
+        if (cursorBatchSize > 0) {
+            query.cursorBatchSize(cursorBatchSize);
+        }
+
+        stream = mongoTemplate.stream(query, type);
+        iterator = stream.iterator();
+    }
+
+    @Override
+    public List<T> read() {
+        List<T> page = readUpTo(pageSize);
+
+        if (page.isEmpty()) {
+            log.info("No more {} documents to process", type.getSimpleName());
+            return null;
+        }
+
+        log.info("Fetched {} {} documents", page.size(), type.getSimpleName());
+        return page;
+    }
+
+    /**
+     * 최대 maxItems 건을 읽습니다. 더 읽을 문서가 없으면 빈 리스트를 반환합니다.
+     * (여러 reader 의 결과를 합쳐 한 페이지를 만드는 경우에 사용)
+     */
+    public List<T> readUpTo(int maxItems) {
+        List<T> page = new ArrayList<>(Math.max(0, maxItems));
+        while (page.size() < maxItems && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+
+        if (!page.isEmpty()) {
+            lastId = idOf(page.get(page.size() - 1));
+        }
+        return page;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (lastId != null) {
+            executionContext.putString(getExecutionContextKey(LAST_ID_KEY), lastId.toString());
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+            iterator = null;
+        }
+    }
+
+    // 범위 [minId, maxId) 와 재시작 위치(lastId)를 하나의 _id 조건으로 합침
+    private Criteria idCriteria() {
+        if (minId == null && maxId == null && lastId == null) {
+            return null;
+        }
+
+        Criteria idCriteria = Criteria.where(ID_FIELD);
+        if (lastId != null && direction.isAscending()) {
+            idCriteria.gt(lastId);
+        } else if (minId != null) {
+            idCriteria.gte(minId);
+        }
+
+        if (lastId != null && !direction.isAscending()) {
+            idCriteria.lt(lastId);
+        } else if (maxId != null) {
+            idCriteria.lt(maxId);
+        }
+        return idCriteria;
+    }
+
+    private static Object toId(Object id) {
+        if (id instanceof String value && ObjectId.isValid(value)) {
+            return new ObjectId(value);
+        }
+        return id;
+    }
+
+    private Object idOf(T document) {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        return mappingContext.getRequiredPersistentEntity(type)
+                .getIdentifierAccessor(document)
+                .getRequiredIdentifier();
+    }
+}
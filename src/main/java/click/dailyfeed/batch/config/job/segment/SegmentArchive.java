@@ -0,0 +1,110 @@
+package click.dailyfeed.batch.config.job.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * MongoDB 문서 / Redis 메시지를 보관 디렉토리(<archiveRoot>/<source>/<yyyyMMdd-HHmmss>)에 gzip NDJSON segment 로 이어서 기록하는 공통 처리
+ * - 디렉토리는 스텝 ExecutionContext 에 저장되므로 재시작하면 같은 디렉토리의 manifest 에 이어서 기록합니다.
+ * - segment(fsync) → sidecar → manifest 순서로 기록하므로 manifest 에 있는 segment 는 항상 온전합니다.
+ */
+public class SegmentArchive {
+    public static final String DIRECTORY_KEY = "archive.directory";
+
+    private static final DateTimeFormatter DIRECTORY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // 원본 타입(ObjectId, Date 등)을 보존하도록 Extended JSON 으로 기록
+    private static final JsonWriterSettings JSON_WRITER_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED)
+            .build();
+
+    private final ObjectMapper objectMapper;
+    private final Path archiveRoot;
+    private final String source;
+
+    /**
+     * @param source 보관 대상 컬렉션 또는 Redis 리스트 이름 (하위 디렉토리, segment 파일 prefix, manifest source)
+     */
+    public SegmentArchive(ObjectMapper objectMapper, Path archiveRoot, String source) {
+        this.objectMapper = objectMapper;
+        this.archiveRoot = archiveRoot;
+        this.source = source;
+    }
+
+    /**
+     * 이번 스텝 실행의 보관 디렉토리 (처음 호출할 때 정하고 ExecutionContext 에 저장)
+     */
+    public Path directory(ExecutionContext executionContext) throws IOException {
+        String saved = executionContext.getString(DIRECTORY_KEY, null);
+        Path directory = saved != null
+                ? Path.of(saved)
+                : archiveRoot.resolve(source).resolve(LocalDateTime.now().format(DIRECTORY_FORMATTER));
+        Files.createDirectories(directory);
+        executionContext.putString(DIRECTORY_KEY, directory.toString());
+        return directory;
+    }
+
+    /**
+     * 보관 디렉토리에 지금까지 기록된 manifest (아직 없으면 빈 manifest)
+     */
+    public SegmentManifest manifest(ExecutionContext executionContext) throws IOException {
+        Path directory = directory(executionContext);
+        return Files.exists(directory.resolve(SegmentManifest.FILE_NAME))
+                ? SegmentManifest.readFrom(directory, objectMapper)
+                : new SegmentManifest(source);
+    }
+
+    /**
+     * documents 를 Extended JSON 한 줄씩 다음 순번의 segment 로 기록하고 manifest 에 추가합니다.
+     *
+     * @param sidecar segment 기록 후 manifest 갱신 전에 함께 기록할 파일 (없으면 null)
+     */
+    public Appended append(ExecutionContext executionContext, List<Document> documents, SidecarWriter sidecar) throws IOException {
+        return appendLines(
+                executionContext,
+                documents.stream().map(document -> document.toJson(JSON_WRITER_SETTINGS)).toList(),
+                sidecar);
+    }
+
+    /**
+     * 이미 직렬화된 lines 를 그대로 다음 순번의 segment 로 기록하고 manifest 에 추가합니다.
+     *
+     * @param sidecar segment 기록 후 manifest 갱신 전에 함께 기록할 파일 (없으면 null)
+     */
+    public Appended appendLines(ExecutionContext executionContext, List<String> lines, SidecarWriter sidecar) throws IOException {
+        Path directory = directory(executionContext);
+        SegmentManifest manifest = manifest(executionContext);
+
+        String fileName = SegmentFiles.segmentFileName(source, manifest.getSegments().size() + 1);
+        SegmentManifest.Segment segment = SegmentFiles.write(directory.resolve(fileName), lines);
+        if (sidecar != null) {
+            sidecar.write(directory, fileName);
+        }
+
+        manifest.add(segment);
+        manifest.writeTo(directory, objectMapper);
+        return new Appended(directory, manifest, segment);
+    }
+
+    @FunctionalInterface
+    public interface SidecarWriter {
+        void write(Path directory, String segmentFileName) throws IOException;
+    }
+
+    /**
+     * @param manifest 이번 segment 까지 기록된 manifest
+     * @param segment  이번에 기록한 segment
+     */
+    public record Appended(Path directory, SegmentManifest manifest, SegmentManifest.Segment segment) {
+    }
+}
@@ -0,0 +1,101 @@
+package click.dailyfeed.batch.config.job.segment;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip 압축 NDJSON segment 파일 입출력 유틸
+ * - 쓰기: 한 줄에 JSON 하나, 압축된 파일 바이트 기준 SHA-256 계산, fsync 후 반환
+ * - 검증: manifest 에 기록된 SHA-256 과 파일 내용 비교
+ */
+public final class SegmentFiles {
+    public static final String EXTENSION = ".ndjson.gz";
+
+    private SegmentFiles() {
+    }
+
+    public static String segmentFileName(String prefix, int sequence) {
+        return String.format("%s-%06d%s", prefix, sequence, EXTENSION);
+    }
+
+    /**
+     * segment 파일을 기록합니다. 반환 시점에 파일은 디스크에 동기화(fsync)되어 있습니다.
+     *
+     * @param file  기록할 segment 파일
+     * @param lines 한 줄씩 기록할 JSON 문자열
+     * @return manifest 에 추가할 segment 정보
+     */
+    public static SegmentManifest.Segment write(Path file, List<String> lines) throws IOException {
+        MessageDigest digest = sha256();
+
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile())) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new DigestOutputStream(new NonClosingOutputStream(fileOut), digest)),
+                    StandardCharsets.UTF_8))) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+            fileOut.getChannel().force(true);
+        }
+
+        return new SegmentManifest.Segment(
+                file.getFileName().toString(),
+                lines.size(),
+                Files.size(file),
+                HexFormat.of().formatHex(digest.digest())
+        );
+    }
+
+    /**
+     * segment 파일의 SHA-256 이 manifest 와 일치하는지 확인합니다.
+     */
+    public static boolean verify(Path directory, SegmentManifest.Segment segment) throws IOException {
+        Path file = directory.resolve(segment.getFile());
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file, StandardOpenOption.READ), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(segment.getSha256());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    // gzip 스트림을 닫아도 fsync 전까지 파일 스트림이 닫히지 않도록 함
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package click.dailyfeed.batch.config.job.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * segment 파일 하나의 sidecar 인덱스 (<segment>.index.json)
+ * segment 의 시간 범위와 member_id 별 건수/시간 범위를 기록하므로, 특정 회원·기간의 보관 데이터를 찾을 때
+ * segment 를 풀지 않고 sidecar 만 읽어 필요한 segment 를 고를 수 있습니다.
+ */
+@Getter
+@NoArgsConstructor
+public class SegmentIndex {
+    public static final String EXTENSION = ".index.json";
+
+    private String segment;
+    private Date minCreatedAt;
+    private Date maxCreatedAt;
+    private Map<Long, MemberRange> members = new LinkedHashMap<>();
+
+    public SegmentIndex(String segment) {
+        this.segment = segment;
+    }
+
+    public static String indexFileName(String segmentFileName) {
+        return segmentFileName.substring(0, segmentFileName.length() - SegmentFiles.EXTENSION.length()) + EXTENSION;
+    }
+
+    public void add(Long memberId, Date createdAt) {
+        if (minCreatedAt == null || createdAt.before(minCreatedAt)) {
+            minCreatedAt = createdAt;
+        }
+        if (maxCreatedAt == null || createdAt.after(maxCreatedAt)) {
+            maxCreatedAt = createdAt;
+        }
+        if (memberId != null) {
+            members.computeIfAbsent(memberId, id -> new MemberRange(0, createdAt, createdAt)).add(createdAt);
+        }
+    }
+
+    public void writeTo(Path directory, ObjectMapper objectMapper) throws IOException {
+        objectMapper.writeValue(directory.resolve(indexFileName(segment)).toFile(), this);
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MemberRange {
+        private long count;
+        private Date first;
+        private Date last;
+
+        void add(Date createdAt) {
+            count++;
+            if (createdAt.before(first)) {
+                first = createdAt;
+            }
+            if (createdAt.after(last)) {
+                last = createdAt;
+            }
+        }
+    }
+}
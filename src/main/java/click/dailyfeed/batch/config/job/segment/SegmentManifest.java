@@ -0,0 +1,65 @@
+package click.dailyfeed.batch.config.job.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NDJSON(gzip) segment 파일 목록과 checksum 을 기록하는 manifest
+ * segment 가 하나 완성될 때마다 갱신되므로, 중간에 중단되더라도 manifest 에 기록된 segment 는 온전합니다.
+ */
+@Getter
+@NoArgsConstructor
+public class SegmentManifest {
+    public static final String FILE_NAME = "manifest.json";
+
+    private String source;
+    private LocalDateTime createdAt;
+    private List<Segment> segments = new ArrayList<>();
+
+    public SegmentManifest(String source) {
+        this.source = source;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public void add(Segment segment) {
+        segments.add(segment);
+    }
+
+    public long totalLines() {
+        return segments.stream().mapToLong(Segment::getLines).sum();
+    }
+
+    /**
+     * manifest 를 임시 파일에 기록한 뒤 교체하여 항상 완전한 manifest 만 남도록 합니다.
+     */
+    public void writeTo(Path directory, ObjectMapper objectMapper) throws IOException {
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), this);
+        Files.move(temp, directory.resolve(FILE_NAME),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SegmentManifest readFrom(Path directory, ObjectMapper objectMapper) throws IOException {
+        return objectMapper.readValue(directory.resolve(FILE_NAME).toFile(), SegmentManifest.class);
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Segment {
+        private String file;
+        private long lines;
+        private long bytes;
+        private String sha256;
+    }
+}
@@ -0,0 +1,15 @@
+package click.dailyfeed.batch.config.job.support;
+
+/**
+ * member_activities 보관 위치 (jobParameters['archiveTarget'] 또는 batch.member-activity-archive.target)
+ * - COLLECTION: cold 컬렉션(member_activities_cold)에 복사 (기본값, {member_id, created_at} 인덱스로 조회 가능)
+ * - SEGMENT: gzip NDJSON segment 파일 + segment 별 member_id/시간 sidecar 인덱스
+ */
+public enum ArchiveTarget {
+    COLLECTION,
+    SEGMENT;
+
+    public static ArchiveTarget from(String value) {
+        return ArchiveTarget.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,57 @@
+package click.dailyfeed.batch.config.job.support;
+
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * dead letter 복구 시 카테고리별 lane 가중치
+ * batch.mongo-restore.category-weights.<Category>=<weight> 로 설정하며,
+ * 기본값은 사용자에게 직접 보이는 게시글/댓글(4)을 좋아요(1)보다 우선합니다.
+ */
+@Component
+@Profile("!test")
+public class CategoryLaneWeights {
+    private static final Map<MemberActivityType.Category, Integer> DEFAULT_WEIGHTS = Map.of(
+            MemberActivityType.Category.POST, 4,
+            MemberActivityType.Category.COMMENT, 4,
+            MemberActivityType.Category.POST_LIKE, 1,
+            MemberActivityType.Category.COMMENT_LIKE, 1
+    );
+
+    private final Map<MemberActivityType.Category, Integer> weights;
+
+    public CategoryLaneWeights(Environment environment) {
+        Map<String, Integer> configured = Binder.get(environment)
+                .bind("batch.mongo-restore.category-weights", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Collections.emptyMap());
+
+        Map<MemberActivityType.Category, Integer> resolved = new EnumMap<>(MemberActivityType.Category.class);
+        for (MemberActivityType.Category category : MemberActivityType.Category.values()) {
+            resolved.put(category, configured.getOrDefault(category.name(), DEFAULT_WEIGHTS.getOrDefault(category, 1)));
+        }
+
+        // 가중치 내림차순 = lane 우선순위 순서
+        Map<MemberActivityType.Category, Integer> ordered = new LinkedHashMap<>();
+        resolved.entrySet().stream()
+                .sorted(Map.Entry.<MemberActivityType.Category, Integer>comparingByValue(Comparator.reverseOrder()))
+                .forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        this.weights = Collections.unmodifiableMap(ordered);
+    }
+
+    /**
+     * 카테고리별 가중치 (가중치 내림차순)
+     */
+    public Map<MemberActivityType.Category, Integer> weights() {
+        return weights;
+    }
+}
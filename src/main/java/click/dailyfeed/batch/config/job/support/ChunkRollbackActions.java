@@ -0,0 +1,44 @@
+package click.dailyfeed.batch.config.job.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * chunk 트랜잭션이 커밋되지 않고 끝났을 때 실행할 보상 작업 등록
+ *
+ * Redis 에서 LPOP 한 메시지처럼 트랜잭션으로 되돌릴 수 없는 읽기는 reader 에서 등록합니다.
+ * chunk 의 읽기/변환/저장은 모두 같은 트랜잭션 안에서 실행되므로, 변환·저장 실패뿐 아니라 커밋 시점의 실패에도 보상 작업이 실행됩니다.
+ */
+@Slf4j
+public final class ChunkRollbackActions {
+
+    private ChunkRollbackActions() {
+    }
+
+    /**
+     * 현재 chunk 트랜잭션이 롤백되거나 커밋 결과를 알 수 없이 끝나면(STATUS_UNKNOWN) action 을 실행합니다.
+     * 커밋 결과를 알 수 없는 경우도 실행하므로 action 은 다시 처리되어도 안전한(멱등) 작업이어야 합니다.
+     *
+     * @throws IllegalStateException 트랜잭션 밖에서 호출한 경우 (되돌릴 시점을 알 수 없음)
+     */
+    public static void register(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Rollback action must be registered inside a chunk transaction");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    log.error("CRITICAL: Failed to run rollback action (transaction status={}). Data may be lost!", status, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package click.dailyfeed.batch.config.job.support;
+
+/**
+ * MongoDB 복구 스텝의 chunk 트랜잭션 방식
+ * - MONGO: MongoTransactionManager, chunk 의 MongoDB 쓰기(저장 + 완료 처리)를 한 세션에서 원자적으로 커밋 (replica set 필요)
+ * - JDBC: JPA transactionManager, MongoDB 쓰기는 각각 즉시 반영 (standalone MongoDB 등 트랜잭션을 쓸 수 없는 환경용)
+ */
+public enum ChunkTransactionMode {
+    MONGO,
+    JDBC;
+
+    public static ChunkTransactionMode from(String value) {
+        return ChunkTransactionMode.valueOf(value.trim().toUpperCase());
+    }
+}
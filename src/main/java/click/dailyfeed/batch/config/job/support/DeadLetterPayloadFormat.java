@@ -0,0 +1,27 @@
+package click.dailyfeed.batch.config.job.support;
+
+import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
+import org.bson.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * listener_dead_letters 에 payload 를 저장하는 형식 (batch.dead-letter.payload-format)
+ * - STRING: JSON 문자열로 payload 필드에 저장 (기본값)
+ * - BSON: BSON 서브 문서로 payload_document 필드에 저장, activityListenerMergeRestoreJob 으로 서버 안에서 복구 가능
+ */
+public enum DeadLetterPayloadFormat {
+    STRING,
+    BSON;
+
+    public static DeadLetterPayloadFormat from(String value) {
+        return DeadLetterPayloadFormat.valueOf(value.trim().toUpperCase());
+    }
+
+    public ListenerDeadLetterDocument newListenerDeadLetter(String messageKey, String jsonPayload, LocalDateTime publishedAt) {
+        if (this == BSON) {
+            return ListenerDeadLetterDocument.newDeadLetter(messageKey, Document.parse(jsonPayload), publishedAt);
+        }
+        return ListenerDeadLetterDocument.newDeadLetter(messageKey, jsonPayload, publishedAt);
+    }
+}
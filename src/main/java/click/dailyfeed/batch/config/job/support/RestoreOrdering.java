@@ -0,0 +1,27 @@
+package click.dailyfeed.batch.config.job.support;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * dead letter 복구 순서
+ * - OLDEST: 오래된 문서부터 (_id 오름차순), 유입이 계속되어도 오래된 문서가 밀리지 않음
+ * - NEWEST: 최신 문서부터 (_id 내림차순)
+ */
+public enum RestoreOrdering {
+    OLDEST(Sort.Direction.ASC),
+    NEWEST(Sort.Direction.DESC);
+
+    private final Sort.Direction direction;
+
+    RestoreOrdering(Sort.Direction direction) {
+        this.direction = direction;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public static RestoreOrdering from(String value) {
+        return RestoreOrdering.valueOf(value.trim().toUpperCase());
+    }
+}
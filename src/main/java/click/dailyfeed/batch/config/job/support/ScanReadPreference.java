@@ -0,0 +1,25 @@
+package click.dailyfeed.batch.config.job.support;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * 복구 reader 의 keyset 스캔을 어느 노드에서 읽을지 (jobParameters['scanReadPreference'] 또는 batch.mongo-restore.scan-read-preference)
+ * - PRIMARY: mongoTemplate (기본값)
+ * - SECONDARY: secondaryMongoTemplate (secondaryPreferred + maxStaleness)
+ *
+ * 스캔만 라우팅하며 저장/완료 처리/선점/중복 확인은 항상 primary 를 사용합니다.
+ * secondary 는 최대 maxStaleness 만큼 지연될 수 있으므로, 직전 실행이 완료 처리한 문서를 다시 읽을 수 있습니다.
+ * (writer 의 upsert/완료 처리는 멱등이므로 결과는 같고, 복구 원장이 재처리를 걸러냄)
+ */
+public enum ScanReadPreference {
+    PRIMARY,
+    SECONDARY;
+
+    public static ScanReadPreference from(String value) {
+        return ScanReadPreference.valueOf(value.trim().toUpperCase());
+    }
+
+    public MongoTemplate select(MongoTemplate primaryMongoTemplate, MongoTemplate secondaryMongoTemplate) {
+        return this == SECONDARY ? secondaryMongoTemplate : primaryMongoTemplate;
+    }
+}
@@ -0,0 +1,63 @@
+package click.dailyfeed.batch.config.job.support;
+
+import java.util.*;
+
+/**
+ * 가중치에 따라 전체 건수를 키별 할당량으로 나누는 유틸 (최대 잉여 방식)
+ * 가중치가 양수인 키는 total 이 키 개수 이상이면 최소 1건을 보장받으므로 특정 키가 굶지(starve) 않습니다.
+ */
+public final class WeightedQuota {
+
+    private WeightedQuota() {
+    }
+
+    /**
+     * @param weights 키별 가중치 (순서 유지, 0 이하는 할당 제외)
+     * @param total   나눌 전체 건수
+     * @return 키별 할당량 (입력 순서 유지, 합계 = total)
+     */
+    public static <K> Map<K, Integer> allocate(Map<K, Integer> weights, int total) {
+        Map<K, Integer> quotas = new LinkedHashMap<>();
+        weights.keySet().forEach(key -> quotas.put(key, 0));
+
+        List<K> keys = weights.entrySet().stream()
+                .filter(entry -> entry.getValue() != null && entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        if (keys.isEmpty() || total <= 0) {
+            return quotas;
+        }
+
+        int remaining = total;
+
+        // 1. 최소 1건 보장
+        if (total >= keys.size()) {
+            for (K key : keys) {
+                quotas.put(key, 1);
+            }
+            remaining -= keys.size();
+        }
+
+        // 2. 남은 건수를 가중치 비율로 분배하고 소수점 이하는 큰 순서대로 1건씩 배정
+        long weightSum = keys.stream().mapToLong(weights::get).sum();
+        Map<K, Double> fractions = new LinkedHashMap<>();
+        int assigned = 0;
+        for (K key : keys) {
+            double exact = (double) remaining * weights.get(key) / weightSum;
+            int whole = (int) Math.floor(exact);
+            quotas.merge(key, whole, Integer::sum);
+            fractions.put(key, exact - whole);
+            assigned += whole;
+        }
+
+        List<K> byFraction = new ArrayList<>(keys);
+        byFraction.sort(Comparator.comparingDouble((K key) -> fractions.get(key)).reversed());
+        for (int i = 0; i < remaining - assigned; i++) {
+            K key = byFraction.get(i % byFraction.size());
+            quotas.merge(key, 1, Integer::sum);
+        }
+
+        return quotas;
+    }
+}
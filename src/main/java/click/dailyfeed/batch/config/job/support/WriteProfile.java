@@ -0,0 +1,44 @@
+package click.dailyfeed.batch.config.job.support;
+
+import com.mongodb.WriteConcern;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+/**
+ * 복구 잡이 member_activities 에 저장할 때의 내구성 프로파일 (jobParameters['writeProfile'] 또는 batch.mongo-restore.write-profile)
+ * - FAST_DRAIN: w:1, journal=false, UNORDERED (멱등하고 재실행 가능한 대량 백로그 재적재용)
+ * - BALANCED: w:1, journal=true, UNORDERED (기본값)
+ * - DURABLE: w:majority, journal=true, ORDERED
+ *
+ * dead letter 완료 처리(is_completed)는 프로파일과 무관하게 항상 majority 로 씁니다. (DeadLetterMongoTemplate)
+ * majority 쓰기는 같은 primary 의 앞선 oplog 까지 과반 복제된 뒤 응답하므로, 완료 처리가 확정되면 그 전에 w:1 로 저장한 활동도 함께 확정됩니다.
+ * 완료 처리 전에 primary 가 바뀌어 w:1 쓰기가 유실되면 원본도 미완료 상태로 남아 다음 실행에서 다시 복구됩니다.
+ *
+ * MongoDB 트랜잭션 안의 쓰기는 개별 write concern 이 무시되고 커밋의 write concern(majority)을 따르므로,
+ * write concern 은 트랜잭션 밖에서 반영되는 쓰기(insert-only 저장, transaction-mode=jdbc)에 적용됩니다. bulk 순서는 항상 적용됩니다.
+ */
+public enum WriteProfile {
+    FAST_DRAIN(WriteConcern.W1.withJournal(false), BulkOperations.BulkMode.UNORDERED),
+    BALANCED(WriteConcern.W1.withJournal(true), BulkOperations.BulkMode.UNORDERED),
+    DURABLE(WriteConcern.MAJORITY.withJournal(true), BulkOperations.BulkMode.ORDERED);
+
+    private final WriteConcern writeConcern;
+    private final BulkOperations.BulkMode bulkMode;
+
+    WriteProfile(WriteConcern writeConcern, BulkOperations.BulkMode bulkMode) {
+        this.writeConcern = writeConcern;
+        this.bulkMode = bulkMode;
+    }
+
+    public WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    public BulkOperations.BulkMode getBulkMode() {
+        return bulkMode;
+    }
+
+    // fast-drain / fast_drain 모두 허용
+    public static WriteProfile from(String value) {
+        return WriteProfile.valueOf(value.trim().replace('-', '_').toUpperCase());
+    }
+}
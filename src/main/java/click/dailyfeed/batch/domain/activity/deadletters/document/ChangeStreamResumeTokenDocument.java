@@ -0,0 +1,36 @@
+package click.dailyfeed.batch.domain.activity.deadletters.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.bson.BsonDocument;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * change stream 의 마지막 처리 위치(resume token)
+ * _id 는 감시 대상 컬렉션 이름이며, 재시작 시 이 토큰 이후의 변경부터 다시 구독합니다.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "change_stream_resume_tokens")
+public class ChangeStreamResumeTokenDocument {
+    @Id
+    private String id;
+    @Field("resume_token")
+    private String resumeToken; // BsonDocument json
+    @Field("updated_at")
+    private LocalDateTime updatedAt;
+
+    public static ChangeStreamResumeTokenDocument of(String collectionName, BsonDocument resumeToken) {
+        return new ChangeStreamResumeTokenDocument(collectionName, resumeToken.toJson(), LocalDateTime.now());
+    }
+
+    public BsonDocument toBsonResumeToken() {
+        return BsonDocument.parse(resumeToken);
+    }
+}
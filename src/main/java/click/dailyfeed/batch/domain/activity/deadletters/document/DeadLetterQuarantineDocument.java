@@ -0,0 +1,51 @@
+package click.dailyfeed.batch.domain.activity.deadletters.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * 재시도 한도를 넘긴(poison) dead letter 격리 보관
+ * 원본 문서를 그대로 보관하므로 payload 수정 후 원래 컬렉션으로 되돌릴 수 있습니다.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "dead_letter_quarantine")
+@CompoundIndexes({
+        // 원본 컬렉션별 격리 문서 조회
+        @CompoundIndex(
+                name = "idx_source_quarantined",
+                def = "{'source_collection': 1, 'quarantined_at': -1}"
+        )
+})
+public class DeadLetterQuarantineDocument {
+    @Id
+    private ObjectId id;
+    @Field("source_collection")
+    private String sourceCollection;
+    @Field("source_id")
+    private Object sourceId;
+    @Field("original")
+    private org.bson.Document original; // 원본 문서 전체
+    @Field("last_error")
+    private String lastError;
+    @Field("retry_count")
+    private Integer retryCount;
+    @Field("quarantined_at")
+    private LocalDateTime quarantinedAt;
+
+    public static DeadLetterQuarantineDocument of(
+            String sourceCollection, Object sourceId, org.bson.Document original, String lastError, int retryCount) {
+        return new DeadLetterQuarantineDocument(
+                null, sourceCollection, sourceId, original, lastError, retryCount, LocalDateTime.now());
+    }
+}
@@ -8,6 +8,8 @@ import org.bson.types.ObjectId;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -17,16 +19,56 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "listener_dead_letters")
+@CompoundIndexes({
+        // 1. 미완료 문서 최신순 조회 (완료 문서는 인덱싱하지 않음)
+        @CompoundIndex(
+                name = "idx_incomplete_created",
+                def = "{'is_completed': 1, 'created_at': -1}",
+                partialFilter = "{'is_completed': false}"
+        ),
+
+        // 2. 미완료 문서 _id keyset 조회
+        @CompoundIndex(
+                name = "idx_incomplete_id",
+                def = "{'is_completed': 1, '_id': -1}",
+                partialFilter = "{'is_completed': false}"
+        ),
+
+        // 3. messageKey 중복 확인
+        @CompoundIndex(
+                name = "idx_message_key",
+                def = "{'redis_key': 1}"
+        ),
+
+        // 4. 선점 토큰으로 선점 해제/조회
+        @CompoundIndex(
+                name = "idx_claim_token",
+                def = "{'claim_token': 1}",
+                partialFilter = "{'claim_token': {$exists: true}}"
+        )
+})
 public class ListenerDeadLetterDocument {
     @Id
     private ObjectId id;
     @Field("redis_key")
     private String messageKey;
     private String payload; // jackson serialize
+    @Field("payload_document")
+    private org.bson.Document payloadDocument; // payload 를 BSON 으로 저장한 경우 (payload 는 비어 있음)
     @Field("is_completed")
     private Boolean isCompleted = Boolean.FALSE;
     @Field("is_editing")
     private Boolean isEditing = Boolean.FALSE;
+    @Field("claim_token")
+    private String claimToken; // 선점한 배치 스텝의 토큰 (is_editing=true 일 때)
+    @Field("claimed_at")
+    private LocalDateTime claimedAt;
+    @Field("retry_count")
+    private Integer retryCount; // 변환 실패 횟수
+    @Field("next_attempt_at")
+    private LocalDateTime nextAttemptAt; // 재시도 가능 시각 (지수 백오프)
+    @Field("last_error")
+    private String lastError;
 
     @Field("published_at")
     private LocalDateTime publishedAt; // 메시지 내의 created_at
@@ -56,6 +98,29 @@ public class ListenerDeadLetterDocument {
                 .build();
     }
 
+    /**
+     * payload 를 JSON 문자열 대신 BSON 서브 문서로 저장합니다.
+     * 집계 파이프라인($merge)이 payload 필드를 직접 참조할 수 있어 서버 안에서 복구할 수 있습니다.
+     */
+    public static ListenerDeadLetterDocument newDeadLetter(String messageKey, org.bson.Document payloadDocument, LocalDateTime publishedAt) {
+        ListenerDeadLetterDocument document = ListenerDeadLetterDocument.newInstanceBuilder()
+                .messageKey(messageKey)
+                .publishedAt(publishedAt)
+                .build();
+        document.payloadDocument = payloadDocument;
+        return document;
+    }
+
+    /**
+     * 저장 형식과 관계없이 payload 를 JSON 문자열로 반환합니다.
+     */
+    public String payloadJson() {
+        if (payload != null || payloadDocument == null) {
+            return payload;
+        }
+        return payloadDocument.toJson();
+    }
+
     public void markAsCompleted() {
         this.isCompleted = Boolean.TRUE;
     }
@@ -0,0 +1,7 @@
+package click.dailyfeed.batch.domain.activity.deadletters.repository.mongo;
+
+import click.dailyfeed.batch.domain.activity.deadletters.document.ChangeStreamResumeTokenDocument;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ChangeStreamResumeTokenRepository extends MongoRepository<ChangeStreamResumeTokenDocument, String> {
+}
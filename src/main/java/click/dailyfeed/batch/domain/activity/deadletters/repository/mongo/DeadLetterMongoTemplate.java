@@ -0,0 +1,342 @@
+package click.dailyfeed.batch.domain.activity.deadletters.repository.mongo;
+
+import click.dailyfeed.batch.domain.activity.deadletters.document.DeadLetterQuarantineDocument;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.SessionSynchronization;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * dead letter 컬렉션 공통 갱신 연산
+ * listener_dead_letters, kafka_listener_dead_letters, kafka_publisher_dead_letters, feign_dead_letters 등
+ * is_completed 플래그를 가진 모든 dead letter 문서 타입에 사용합니다.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class DeadLetterMongoTemplate {
+    public static final String IS_EDITING_FIELD = "is_editing";
+    public static final String CLAIM_TOKEN_FIELD = "claim_token";
+    public static final String CLAIMED_AT_FIELD = "claimed_at";
+    public static final String RETRY_COUNT_FIELD = "retry_count";
+    public static final String NEXT_ATTEMPT_AT_FIELD = "next_attempt_at";
+    public static final String LAST_ERROR_FIELD = "last_error";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    // 선점(claim)은 chunk 트랜잭션과 무관하게 즉시 커밋되어야 다른 노드가 볼 수 있으므로 트랜잭션에 참여하지 않는 템플릿 사용
+    private final MongoTemplate claimMongoTemplate;
+
+    // 완료 처리는 잡의 write profile 과 무관하게 항상 majority (트랜잭션 안에서는 커밋의 write concern 을 따름)
+    private final MongoTemplate completionMongoTemplate;
+
+    // 변환 실패 재시도 정책 (최대 시도 횟수를 넘기면 격리)
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public DeadLetterMongoTemplate(
+            MongoTemplate mongoTemplate,
+            @Value("${batch.dead-letter-retry.max-attempts:5}") int maxAttempts,
+            @Value("${batch.dead-letter-retry.initial-backoff-seconds:60}") long initialBackoffSeconds,
+            @Value("${batch.dead-letter-retry.max-backoff-seconds:21600}") long maxBackoffSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.claimMongoTemplate = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        this.claimMongoTemplate.setSessionSynchronization(SessionSynchronization.NEVER);
+        this.completionMongoTemplate = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        this.completionMongoTemplate.setWriteConcern(WriteConcern.MAJORITY);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+    }
+
+    /**
+     * 복구 대상 조건: 미완료(is_completed=false) 이면서 재시도 대기 중이 아닌(next_attempt_at 이 없거나 지난) 문서
+     * 격리된 문서는 원래 컬렉션에서 삭제되므로 별도 조건 없이 제외됩니다.
+     */
+    public static Criteria restorableCriteria() {
+        return Criteria.where("is_completed").is(Boolean.FALSE)
+                .orOperator(
+                        Criteria.where(NEXT_ATTEMPT_AT_FIELD).exists(false),
+                        Criteria.where(NEXT_ATTEMPT_AT_FIELD).lte(LocalDateTime.now())
+                );
+    }
+
+    /**
+     * 주어진 _id 의 dead letter 들을 한 번의 updateMulti 로 완료 처리합니다.
+     * (문서 전체를 replace 하는 save 와 달리 is_completed, updated_at 만 갱신)
+     * majority 로 기록하므로 응답 시점에는 앞서 w:1 로 저장한 복구 결과도 과반 복제되어 있습니다.
+     *
+     * @param documentType dead letter 문서 타입
+     * @param ids          완료 처리할 _id 목록
+     * @return 갱신된 문서 수
+     */
+    public long markCompleted(Class<?> documentType, Collection<?> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        Query query = new Query(Criteria.where("_id").in(ids));
+        Update update = new Update()
+                .set("is_completed", Boolean.TRUE)
+                .set("updated_at", LocalDateTime.now());
+
+        UpdateResult result = completionMongoTemplate.updateMulti(query, update, documentType);
+
+        log.debug("Marked {} {} documents as completed (requested={})",
+                result.getModifiedCount(), documentType.getSimpleName(), ids.size());
+        return result.getModifiedCount();
+    }
+
+    /**
+     * 선점한 dead letter 들을 완료 처리하면서 선점 정보(is_editing, claim_token, claimed_at)도 함께 해제합니다.
+     */
+    public long markCompletedAndReleaseClaims(Class<?> documentType, Collection<?> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        Query query = new Query(Criteria.where("_id").in(ids));
+        Update update = new Update()
+                .set("is_completed", Boolean.TRUE)
+                .set(IS_EDITING_FIELD, Boolean.FALSE)
+                .unset(CLAIM_TOKEN_FIELD)
+                .unset(CLAIMED_AT_FIELD)
+                .set("updated_at", LocalDateTime.now());
+
+        UpdateResult result = completionMongoTemplate.updateMulti(query, update, documentType);
+
+        log.debug("Marked {} claimed {} documents as completed (requested={})",
+                result.getModifiedCount(), documentType.getSimpleName(), ids.size());
+        return result.getModifiedCount();
+    }
+
+    /**
+     * 미선점(is_editing=false) 또는 선점이 만료된 문서를 최대 limit 건 선점하고, 실제로 선점에 성공한 문서만 반환합니다.
+     * 1. 후보 _id 조회 (_id 오름차순)
+     * 2. 후보 중 여전히 선점 가능한 문서만 updateMulti 로 claim_token, claimed_at, is_editing=true 설정
+     * 3. claim_token 이 일치하는 문서만 조회 (다른 노드와 경합에서 진 문서는 제외됨)
+     *
+     * @param documentType dead letter 문서 타입
+     * @param criteria     기본 조회 조건 (예: is_completed=false)
+     * @param idCriteria   _id 범위 조건 (keyset 위치 / 파티션 범위), 없으면 null
+     * @param limit        선점할 최대 건수
+     * @param claimToken   선점 토큰
+     * @param leaseTimeout 선점 만료 시간 (만료된 선점은 다른 노드가 다시 선점할 수 있음)
+     * @param fields       조회할 필드 (비어 있으면 전체)
+     */
+    public <T> List<T> claim(
+            Class<T> documentType,
+            Criteria criteria,
+            Criteria idCriteria,
+            int limit,
+            String claimToken,
+            Duration leaseTimeout,
+            String... fields) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Query candidateQuery = claimableQuery(criteria, idCriteria, now.minus(leaseTimeout))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        candidateQuery.fields().include("_id");
+
+        List<Object> candidateIds = claimMongoTemplate.find(candidateQuery, documentType).stream()
+                .map(document -> idOf(documentType, document))
+                .toList();
+        if (candidateIds.isEmpty()) {
+            return List.of();
+        }
+
+        Query claimQuery = claimableQuery(criteria, Criteria.where("_id").in(candidateIds), now.minus(leaseTimeout));
+        Update claimUpdate = new Update()
+                .set(IS_EDITING_FIELD, Boolean.TRUE)
+                .set(CLAIM_TOKEN_FIELD, claimToken)
+                .set(CLAIMED_AT_FIELD, now);
+        UpdateResult claimResult = claimMongoTemplate.updateMulti(claimQuery, claimUpdate, documentType);
+
+        Query claimedQuery = new Query(Criteria.where("_id").in(candidateIds).and(CLAIM_TOKEN_FIELD).is(claimToken))
+                .with(Sort.by(Sort.Direction.ASC, "_id"));
+        for (String field : fields) {
+            claimedQuery.fields().include(field);
+        }
+        List<T> claimed = claimMongoTemplate.find(claimedQuery, documentType);
+
+        log.debug("Claimed {} of {} candidate {} documents (token={}, modified={})",
+                claimed.size(), candidateIds.size(), documentType.getSimpleName(), claimToken, claimResult.getModifiedCount());
+        return claimed;
+    }
+
+    /**
+     * 토큰으로 선점했지만 아직 완료되지 않은 문서의 선점을 해제합니다. (변환 실패, 스텝 실패/종료 시)
+     */
+    public long releaseClaims(Class<?> documentType, String claimToken) {
+        Query query = new Query(Criteria.where(CLAIM_TOKEN_FIELD).is(claimToken).and("is_completed").is(Boolean.FALSE));
+        Update update = new Update()
+                .set(IS_EDITING_FIELD, Boolean.FALSE)
+                .unset(CLAIM_TOKEN_FIELD)
+                .unset(CLAIMED_AT_FIELD);
+
+        UpdateResult result = mongoTemplate.updateMulti(query, update, documentType);
+        if (result.getModifiedCount() > 0) {
+            log.info("Released {} claimed {} documents (token={})",
+                    result.getModifiedCount(), documentType.getSimpleName(), claimToken);
+        }
+        return result.getModifiedCount();
+    }
+
+    /**
+     * 만료된 선점을 한 번의 updateMulti 로 해제합니다. (노드 비정상 종료 등으로 남은 선점 정리)
+     * - claimed_at 이 leaseTimeout 보다 오래된 선점
+     * - claimed_at 없이 is_editing=true 로 남아 있고 created_at 이 staleAfter 보다 오래된 문서 (선점 토큰 도입 이전 방식)
+     *
+     * @return 선점이 해제된 문서 수
+     */
+    public long reclaimStaleClaims(Class<?> documentType, Duration leaseTimeout, Duration staleAfter) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("is_completed").is(Boolean.FALSE)
+                .and(IS_EDITING_FIELD).is(Boolean.TRUE)
+                .orOperator(
+                        Criteria.where(CLAIMED_AT_FIELD).lt(now.minus(leaseTimeout)),
+                        Criteria.where(CLAIMED_AT_FIELD).exists(false).and("created_at").lt(now.minus(staleAfter))
+                ));
+        Update update = new Update()
+                .set(IS_EDITING_FIELD, Boolean.FALSE)
+                .unset(CLAIM_TOKEN_FIELD)
+                .unset(CLAIMED_AT_FIELD);
+
+        UpdateResult result = claimMongoTemplate.updateMulti(query, update, documentType);
+        log.info("Reclaimed {} stale {} claims (lease={}, staleAfter={})",
+                result.getModifiedCount(), documentType.getSimpleName(), leaseTimeout, staleAfter);
+        return result.getModifiedCount();
+    }
+
+    /**
+     * 변환(역직렬화, 카테고리 매핑)에 실패한 dead letter 의 재시도 정보를 기록합니다.
+     * - retry_count 를 1 증가시키고, 지수 백오프(initialBackoff * 2^(n-1), 최대 maxBackoff)로 next_attempt_at 을 미룹니다.
+     * - retry_count 가 maxAttempts 에 도달하면 원본 문서를 dead_letter_quarantine 으로 옮기고 원래 컬렉션에서 삭제합니다.
+     * chunk 트랜잭션에 참여하므로 chunk 가 롤백되면 재시도 기록도 함께 롤백됩니다.
+     *
+     * @param documentType dead letter 문서 타입
+     * @param errorsById   실패한 문서의 _id 와 실패 사유
+     * @return 격리된 문서 수
+     */
+    public int recordFailures(Class<?> documentType, Map<?, String> errorsById) {
+        if (errorsById == null || errorsById.isEmpty()) {
+            return 0;
+        }
+
+        // 원본 문서로 조회하므로 문자열 ObjectId 는 직접 변환
+        Map<Object, String> errors = new HashMap<>();
+        errorsById.forEach((id, error) -> errors.put(toId(id), error));
+
+        // 격리 시 원본 전체를 보관해야 하므로 매핑 없이 원본 문서로 조회 (실패 건은 소량)
+        String collectionName = mongoTemplate.getCollectionName(documentType);
+        List<Document> failedDocuments = mongoTemplate.find(
+                new Query(Criteria.where("_id").in(errors.keySet())), Document.class, collectionName);
+
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations retryOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, documentType);
+        List<DeadLetterQuarantineDocument> quarantined = new ArrayList<>();
+        List<Object> quarantinedIds = new ArrayList<>();
+        int retried = 0;
+
+        for (Document failed : failedDocuments) {
+            Object id = failed.get("_id");
+            String error = truncate(errors.get(id));
+            Object currentCount = failed.get(RETRY_COUNT_FIELD);
+            int retryCount = (currentCount instanceof Number number ? number.intValue() : 0) + 1;
+
+            if (retryCount >= maxAttempts) {
+                quarantined.add(DeadLetterQuarantineDocument.of(collectionName, id, failed, error, retryCount));
+                quarantinedIds.add(id);
+                continue;
+            }
+
+            retryOperations.updateOne(
+                    new Query(Criteria.where("_id").is(id)),
+                    new Update()
+                            .set(RETRY_COUNT_FIELD, retryCount)
+                            .set(NEXT_ATTEMPT_AT_FIELD, now.plus(backoff(retryCount)))
+                            .set(LAST_ERROR_FIELD, error)
+                            .set("updated_at", now));
+            retried++;
+        }
+
+        if (retried > 0) {
+            retryOperations.execute();
+        }
+        if (!quarantined.isEmpty()) {
+            mongoTemplate.insertAll(quarantined);
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(quarantinedIds)), collectionName);
+            log.warn("Quarantined {} {} documents after {} failed attempts: {}",
+                    quarantined.size(), documentType.getSimpleName(), maxAttempts, quarantinedIds);
+        }
+
+        log.info("Recorded {} failed {} documents (retry scheduled={}, quarantined={})",
+                failedDocuments.size(), documentType.getSimpleName(), retried, quarantined.size());
+        return quarantined.size();
+    }
+
+    // n 번째 실패 후 대기 시간: initialBackoff * 2^(n-1), 최대 maxBackoff
+    private Duration backoff(int retryCount) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(retryCount - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static Object toId(Object id) {
+        if (id instanceof String value && ObjectId.isValid(value)) {
+            return new ObjectId(value);
+        }
+        return id;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return "unknown";
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    // criteria AND (is_editing != true OR claimed_at < expiredBefore) [AND idCriteria]
+    // criteria 에 이미 $or 가 있을 수 있으므로 (restorableCriteria) $and 로 묶음
+    private Query claimableQuery(Criteria criteria, Criteria idCriteria, LocalDateTime expiredBefore) {
+        List<Criteria> conditions = new ArrayList<>();
+        conditions.add(criteria);
+        conditions.add(new Criteria().orOperator(
+                Criteria.where(IS_EDITING_FIELD).ne(Boolean.TRUE),
+                Criteria.where(CLAIMED_AT_FIELD).lt(expiredBefore)
+        ));
+        if (idCriteria != null) {
+            conditions.add(idCriteria);
+        }
+        return new Query(new Criteria().andOperator(conditions));
+    }
+
+    private Object idOf(Class<?> documentType, Object document) {
+        return mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(documentType)
+                .getIdentifierAccessor(document)
+                .getRequiredIdentifier();
+    }
+}
@@ -5,11 +5,15 @@ import org.bson.types.ObjectId;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ListenerDeadLetterRepository extends MongoRepository<ListenerDeadLetterDocument, ObjectId> {
     List<ListenerDeadLetterDocument> findByMessageKey(String messageKey);
 
+    // messageKey 리스트로 존재하는 문서들 조회
+    List<ListenerDeadLetterDocument> findByMessageKeyIn(Collection<String> messageKeys);
+
     // isCompleted=false인 데이터를 최신순으로 조회
     List<ListenerDeadLetterDocument> findByIsCompletedOrderByCreatedAtDesc(Boolean isCompleted, Pageable pageable);
 }
@@ -0,0 +1,333 @@
+package click.dailyfeed.batch.domain.activity.deadletters.service;
+
+import click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner;
+import click.dailyfeed.batch.domain.activity.deadletters.document.ChangeStreamResumeTokenDocument;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.ChangeStreamResumeTokenRepository;
+import click.dailyfeed.deadletter.domain.deadletter.document.FeignDeadLetterDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaListenerDeadLetterDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaPublisherDeadLetterDocument;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * dead letter 컬렉션 change stream 기반 준실시간 복구
+ * - kafka_listener / kafka_publisher / feign dead letter 컬렉션의 insert(is_completed=false) 이벤트를 구독합니다.
+ * - 이벤트를 debounce 하여 모아 두었다가 해당 컬렉션의 복구 잡을 실행합니다. (잡의 processor/writer 를 그대로 사용)
+ *   모아 둔 이벤트 문서의 _id 범위를 jobParameters minId / maxId 로 넘기므로, 잡은 컬렉션 전체가 아니라 그 범위만 keyset 으로 읽습니다.
+ *   (_id 가 ObjectId 가 아니거나 놓친 이벤트가 있을 수 있는 경우에만 범위 없이 전체를 읽음)
+ * - 잡이 성공하면 마지막 이벤트의 resume token 을 change_stream_resume_tokens 에 저장하고,
+ *   재시작 시 그 지점부터 이어서 구독합니다.
+ * - 잡이 실패하면 retry-backoff-ms 부터 두 배씩(최대 max-retry-backoff-ms) 기다렸다가 다시 실행하고,
+ *   max-attempts 번 연속 실패하면 모아 둔 이벤트를 포기합니다. (문서는 is_completed=false 로 남으므로 정기 복구 잡이 처리)
+ *
+ * change stream 은 replica set(또는 sharded cluster)에서만 동작하므로 기본값은 비활성화입니다.
+ * (batch.change-stream.enabled=true)
+ */
+@Slf4j
+@Service
+@Profile("!test")
+@ConditionalOnProperty(prefix = "batch.change-stream", name = "enabled", havingValue = "true")
+public class DeadLetterChangeStreamRestoreService implements SmartLifecycle {
+    // resume token 이 oplog 범위를 벗어난 경우
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeStreamResumeTokenRepository changeStreamResumeTokenRepository;
+    private final JobLauncher jobLauncher;
+    private final JobExplorer jobExplorer;
+    private final List<Watcher> watchers;
+
+    @Value("${batch.change-stream.debounce-ms:2000}")
+    private long debounceMillis;
+
+    @Value("${batch.change-stream.max-wait-ms:10000}")
+    private long maxWaitMillis;
+
+    @Value("${batch.change-stream.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${batch.change-stream.retry-backoff-ms:5000}")
+    private long retryBackoffMillis;
+
+    @Value("${batch.change-stream.max-retry-backoff-ms:300000}")
+    private long maxRetryBackoffMillis;
+
+    @Value("${batch.change-stream.max-attempts:5}")
+    private int maxAttempts;
+
+    private ExecutorService executor;
+    private volatile boolean running = false;
+
+    public DeadLetterChangeStreamRestoreService(
+            MongoTemplate mongoTemplate,
+            ChangeStreamResumeTokenRepository changeStreamResumeTokenRepository,
+            JobLauncher jobLauncher,
+            JobExplorer jobExplorer,
+            @Qualifier("listenerDeadletterRestoreJob") Job listenerDeadletterRestoreJob,
+            @Qualifier("publishDeadletterRestoreJob") Job publishDeadletterRestoreJob,
+            @Qualifier("feignDeadletterRestoreJob") Job feignDeadletterRestoreJob) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeStreamResumeTokenRepository = changeStreamResumeTokenRepository;
+        this.jobLauncher = jobLauncher;
+        this.jobExplorer = jobExplorer;
+        this.watchers = List.of(
+                new Watcher(mongoTemplate.getCollectionName(KafkaListenerDeadLetterDocument.class), listenerDeadletterRestoreJob),
+                new Watcher(mongoTemplate.getCollectionName(KafkaPublisherDeadLetterDocument.class), publishDeadletterRestoreJob),
+                new Watcher(mongoTemplate.getCollectionName(FeignDeadLetterDocument.class), feignDeadletterRestoreJob)
+        );
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(watchers.size(), runnable ->
+                new Thread(runnable, "dead-letter-change-stream-" + threadCount.incrementAndGet()));
+        watchers.forEach(executor::submit);
+        log.info("Dead letter change stream restore started: collections={}",
+                watchers.stream().map(watcher -> watcher.collectionName).toList());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Dead letter change stream restore stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 컬렉션 하나를 구독하고 이벤트를 모아 복구 잡을 실행하는 루프
+     */
+    private class Watcher implements Runnable {
+        private final String collectionName;
+        private final Job restoreJob;
+
+        private int pendingEvents = 0;
+        private long firstPendingAt = 0;
+        private long lastEventAt = 0;
+        private BsonDocument pendingResumeToken;
+
+        // 모아 둔 이벤트 문서의 _id 범위 (rangeKnown=false 이면 범위 없이 전체를 읽음)
+        private ObjectId pendingMinId;
+        private ObjectId pendingMaxId;
+        private boolean rangeKnown = true;
+
+        // 연속 실패 횟수와 다음 실행 가능 시각 (지수 backoff)
+        private int failedAttempts = 0;
+        private long nextAttemptAt = 0;
+
+        private Watcher(String collectionName, Job restoreJob) {
+            this.collectionName = collectionName;
+            this.restoreJob = restoreJob;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = openCursor()) {
+                    while (running) {
+                        ChangeStreamDocument<Document> event = cursor.tryNext();
+                        long now = System.currentTimeMillis();
+
+                        if (event != null) {
+                            if (pendingEvents == 0) {
+                                firstPendingAt = now;
+                            }
+                            pendingEvents++;
+                            lastEventAt = now;
+                            pendingResumeToken = event.getResumeToken();
+                            addToRange(event.getDocumentKey());
+                        }
+
+                        if (shouldLaunch(now)) {
+                            launchRestoreJob();
+                        }
+                    }
+                } catch (MongoCommandException e) {
+                    if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                        // 저장된 위치가 oplog 에서 사라졌으므로 현재 시점부터 다시 구독하고, 놓친 문서는 복구 잡으로 처리
+                        log.warn("Resume token for {} is no longer in the oplog. Restarting from now.", collectionName);
+                        changeStreamResumeTokenRepository.deleteById(collectionName);
+                        pendingEvents = Math.max(pendingEvents, 1);
+                        rangeKnown = false;
+                        firstPendingAt = lastEventAt = System.currentTimeMillis();
+                    } else {
+                        log.error("Change stream command failed: collection={}, error={}", collectionName, e.getMessage(), e);
+                        sleepQuietly(retryBackoffMillis);
+                    }
+                } catch (MongoException e) {
+                    log.error("Change stream failed: collection={}, error={}", collectionName, e.getMessage(), e);
+                    sleepQuietly(retryBackoffMillis);
+                } catch (Exception e) {
+                    if (running) {
+                        log.error("Unexpected error in change stream watcher: collection={}", collectionName, e);
+                        sleepQuietly(retryBackoffMillis);
+                    }
+                }
+            }
+        }
+
+        private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openCursor() {
+            ChangeStreamIterable<Document> changeStream = mongoTemplate.getCollection(collectionName)
+                    .watch(List.of(Aggregates.match(Filters.and(
+                            Filters.eq("operationType", "insert"),
+                            Filters.eq("fullDocument.is_completed", Boolean.FALSE)
+                    ))))
+                    .maxAwaitTime(Math.max(debounceMillis / 2, 100), TimeUnit.MILLISECONDS);
+
+            changeStreamResumeTokenRepository.findById(collectionName).ifPresent(token -> {
+                log.info("Resuming change stream on {} from token saved at {}", collectionName, token.getUpdatedAt());
+                changeStream.resumeAfter(token.toBsonResumeToken());
+            });
+
+            return changeStream.cursor();
+        }
+
+        private void addToRange(BsonDocument documentKey) {
+            BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+            if (id == null || !id.isObjectId()) {
+                rangeKnown = false;
+                return;
+            }
+            ObjectId objectId = id.asObjectId().getValue();
+            if (pendingMinId == null || objectId.compareTo(pendingMinId) < 0) {
+                pendingMinId = objectId;
+            }
+            if (pendingMaxId == null || objectId.compareTo(pendingMaxId) > 0) {
+                pendingMaxId = objectId;
+            }
+        }
+
+        // debounce 시간 동안 새 이벤트가 없거나, 최대 대기 시간/최대 건수에 도달하면 실행 (실패 후에는 backoff 가 지난 뒤)
+        private boolean shouldLaunch(long now) {
+            if (pendingEvents == 0 || now < nextAttemptAt) {
+                return false;
+            }
+            return pendingEvents >= maxBatchSize
+                    || now - lastEventAt >= debounceMillis
+                    || now - firstPendingAt >= maxWaitMillis;
+        }
+
+        private void launchRestoreJob() {
+            try {
+                // 스케줄 실행 등으로 같은 잡이 이미 실행 중이면 다음 기회에 실행
+                if (!jobExplorer.findRunningJobExecutions(restoreJob.getName()).isEmpty()) {
+                    log.debug("{} is already running. Postponing change stream triggered run.", restoreJob.getName());
+                    lastEventAt = System.currentTimeMillis();
+                    return;
+                }
+
+                JobParametersBuilder builder = new JobParametersBuilder()
+                        .addString("trigger", "changeStream");
+                if (rangeKnown && pendingMinId != null) {
+                    // ObjectId 의 생성 시각(초) 기준 [첫 이벤트 문서의 초, 마지막 이벤트 문서의 초 + 1)
+                    builder.addString("minId", ObjectIdRangePartitioner
+                                    .minObjectIdAt(Integer.toUnsignedLong(pendingMinId.getTimestamp())).toHexString())
+                            .addString("maxId", ObjectIdRangePartitioner
+                                    .minObjectIdAt(Integer.toUnsignedLong(pendingMaxId.getTimestamp()) + 1).toHexString());
+                }
+                JobParameters jobParameters = restoreJob.getJobParametersIncrementer().getNext(builder.toJobParameters());
+
+                log.info("Launching {} for {} new dead letters in {} (minId={}, maxId={}, attempt={})",
+                        restoreJob.getName(), pendingEvents, collectionName,
+                        jobParameters.getString("minId"), jobParameters.getString("maxId"), failedAttempts + 1);
+                JobExecution jobExecution = jobLauncher.run(restoreJob, jobParameters);
+
+                if (jobExecution.getStatus() != BatchStatus.COMPLETED) {
+                    onFailedAttempt("finished with status " + jobExecution.getStatus());
+                    return;
+                }
+
+                completePending();
+
+            } catch (Exception e) {
+                log.error("Failed to launch {}: {}", restoreJob.getName(), e.getMessage(), e);
+                onFailedAttempt(e.getMessage());
+            }
+        }
+
+        private void onFailedAttempt(String reason) {
+            failedAttempts++;
+            if (failedAttempts >= maxAttempts) {
+                // 문서는 is_completed=false 로 남아 있으므로 정기 복구 잡에 맡기고, 같은 이벤트로 다시 실행하지 않도록 resume token 을 넘김
+                log.error("{} {} ({} attempts). Giving up {} change stream events in {}; the scheduled restore job will pick them up.",
+                        restoreJob.getName(), reason, failedAttempts, pendingEvents, collectionName);
+                completePending();
+                return;
+            }
+
+            long backoff = Math.min(retryBackoffMillis << Math.min(failedAttempts - 1, 20), maxRetryBackoffMillis);
+            nextAttemptAt = System.currentTimeMillis() + backoff;
+            log.warn("{} {} (attempt {}/{}). Retrying in {} ms.",
+                    restoreJob.getName(), reason, failedAttempts, maxAttempts, backoff);
+        }
+
+        private void completePending() {
+            if (pendingResumeToken != null) {
+                changeStreamResumeTokenRepository.save(
+                        ChangeStreamResumeTokenDocument.of(collectionName, pendingResumeToken));
+            }
+            pendingEvents = 0;
+            pendingResumeToken = null;
+            pendingMinId = null;
+            pendingMaxId = null;
+            rangeKnown = true;
+            failedAttempts = 0;
+            nextAttemptAt = 0;
+        }
+
+        private void sleepQuietly(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package click.dailyfeed.batch.domain.activity.deadletters.service;
+
+import click.dailyfeed.batch.config.job.support.WeightedQuota;
+import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MemberActivityType 별 Redis DLQ 를 Lua 스크립트 한 번으로 꺼내는 서비스
+ * - 타입별 가중치로 할당량을 나누어 LPOP 하고, 남은 용량은 메시지가 남아 있는 타입에 재분배합니다.
+ * - 결과는 [타입0 건수, 타입0 메시지..., 타입1 건수, ...] 형태로 반환되어 타입별로 묶입니다.
+ *
+ * 타입별 key 는 batch.redis-dlq.type-key-pattern 의 {type} 을 MemberActivityType 이름으로 치환해 만듭니다.
+ * MemberActivityEventDLQRedisService 가 사용하는 key 와 같아야 하므로 기본값이 없으며,
+ * batch.redis-dlq.pop-mode=lua 인데 설정하지 않으면 애플리케이션이 시작되지 않습니다. (jobParameters['popMode']=lua 이면 스텝 시작 시 실패)
+ * Redis Cluster 에서는 모든 key 가 같은 hash slot 에 있어야 하므로 hash tag 를 포함한 패턴을 사용하세요. (예: {MEMBER_ACTIVITY_DLQ}:{type})
+ * LPOP count 인자를 사용하므로 Redis 6.2 이상이 필요합니다.
+ */
+@Slf4j
+@Service
+@Profile("!test")
+public class MemberActivityDLQMultiPopService {
+
+    public static final String POP_MODE_LUA = "lua";
+
+    private static final String TYPE_PLACEHOLDER = "{type}";
+
+    // 결과: 타입별 건수(Long)와 메시지(String)가 섞인 multi-bulk 응답
+    @SuppressWarnings("unchecked")
+    private static final RedisScript<List<Object>> MULTI_POP_SCRIPT = new DefaultRedisScript<>(
+            "local total = tonumber(ARGV[1]) " +
+            "local popped = {} " +
+            "local taken = 0 " +
+            "for i = 1, #KEYS do " +
+            "  local items = {} " +
+            "  local quota = tonumber(ARGV[i + 1]) " +
+            "  if quota > 0 then " +
+            "    local r = redis.call('LPOP', KEYS[i], quota) " +
+            "    if r then items = r end " +
+            "  end " +
+            "  popped[i] = items " +
+            "  taken = taken + #items " +
+            "end " +
+            "for i = 1, #KEYS do " +
+            "  if taken >= total then break end " +
+            "  local r = redis.call('LPOP', KEYS[i], total - taken) " +
+            "  if r then " +
+            "    for _, v in ipairs(r) do table.insert(popped[i], v) end " +
+            "    taken = taken + #r " +
+            "  end " +
+            "end " +
+            "local result = {} " +
+            "for i = 1, #KEYS do " +
+            "  table.insert(result, #popped[i]) " +
+            "  for _, v in ipairs(popped[i]) do table.insert(result, v) end " +
+            "end " +
+            "return result",
+            (Class<List<Object>>) (Class<?>) List.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPattern;
+    private final Map<MemberActivityType, Integer> weights;
+
+    // 재분배 순서를 호출마다 회전시켜 앞쪽 타입만 잔여 용량을 가져가지 않도록 함
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    public MemberActivityDLQMultiPopService(
+            StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            Environment environment,
+            @Value("${batch.redis-dlq.type-key-pattern:}") String keyPattern,
+            @Value("${batch.redis-dlq.pop-mode:per-type}") String popMode) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPattern = keyPattern;
+        if (POP_MODE_LUA.equalsIgnoreCase(popMode.trim())) {
+            requireKeyPattern();
+        }
+
+        // batch.redis-dlq.type-weights.<MemberActivityType>=<weight> (기본값 1)
+        Map<String, Integer> configured = Binder.get(environment)
+                .bind("batch.redis-dlq.type-weights", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Collections.emptyMap());
+
+        Map<MemberActivityType, Integer> resolved = new EnumMap<>(MemberActivityType.class);
+        for (MemberActivityType type : MemberActivityType.values()) {
+            resolved.put(type, configured.getOrDefault(type.name(), 1));
+        }
+        this.weights = Collections.unmodifiableMap(resolved);
+    }
+
+    /**
+     * 모든 MemberActivityType 의 DLQ 에서 최대 total 건을 한 번의 round trip 으로 꺼냅니다.
+     *
+     * @param total 꺼낼 최대 건수
+     * @return 타입별 메시지 (메시지가 없는 타입은 포함하지 않음)
+     */
+    public Map<MemberActivityType, List<MemberActivityTransportDto.MemberActivityMessage>> lPopTopNAllTypes(int total) {
+        requireKeyPattern();
+        List<MemberActivityType> types = rotatedTypes();
+
+        Map<MemberActivityType, Integer> orderedWeights = new LinkedHashMap<>();
+        types.forEach(type -> orderedWeights.put(type, weights.get(type)));
+        Map<MemberActivityType, Integer> quotas = WeightedQuota.allocate(orderedWeights, total);
+
+        List<String> keys = types.stream().map(this::keyOf).toList();
+        Object[] args = new Object[types.size() + 1];
+        args[0] = String.valueOf(total);
+        for (int i = 0; i < types.size(); i++) {
+            args[i + 1] = String.valueOf(quotas.get(types.get(i)));
+        }
+
+        List<Object> result = stringRedisTemplate.execute(MULTI_POP_SCRIPT, keys, args);
+
+        Map<MemberActivityType, List<MemberActivityTransportDto.MemberActivityMessage>> grouped =
+                new EnumMap<>(MemberActivityType.class);
+        if (result == null) {
+            return grouped;
+        }
+
+        int cursor = 0;
+        for (MemberActivityType type : types) {
+            int count = ((Number) result.get(cursor++)).intValue();
+            if (count == 0) {
+                continue;
+            }
+
+            List<MemberActivityTransportDto.MemberActivityMessage> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String raw = String.valueOf(result.get(cursor++));
+                try {
+                    messages.add(objectMapper.readValue(raw, MemberActivityTransportDto.MemberActivityMessage.class));
+                } catch (Exception e) {
+                    // 역직렬화 실패 메시지는 다시 넣어도 같은 결과이므로 로그만 남기고 건너뜀 (기존 lPopTopN 과 동일)
+                    log.error("Failed to deserialize DLQ message for activityType={}: {}", type, e.getMessage());
+                }
+            }
+            grouped.put(type, messages);
+        }
+
+        log.debug("Popped {} messages across {} activity types in one round trip",
+                grouped.values().stream().mapToInt(List::size).sum(), grouped.size());
+        return grouped;
+    }
+
+    /**
+     * 타입별 DLQ key 패턴이 설정되어 있는지 확인합니다.
+     *
+     * @throws IllegalStateException batch.redis-dlq.type-key-pattern 이 없거나 {type} 을 포함하지 않는 경우
+     */
+    public void requireKeyPattern() {
+        if (keyPattern == null || !keyPattern.contains(TYPE_PLACEHOLDER)) {
+            throw new IllegalStateException("batch.redis-dlq.type-key-pattern must be set to the DLQ key of "
+                    + "MemberActivityEventDLQRedisService with a " + TYPE_PLACEHOLDER + " placeholder to use pop-mode=lua (was '" + keyPattern + "')");
+        }
+    }
+
+    private List<MemberActivityType> rotatedTypes() {
+        List<MemberActivityType> types = new ArrayList<>(Arrays.asList(MemberActivityType.values()));
+        Collections.rotate(types, -Math.floorMod(rotation.getAndIncrement(), types.size()));
+        return types;
+    }
+
+    private String keyOf(MemberActivityType type) {
+        return keyPattern.replace(TYPE_PLACEHOLDER, type.name());
+    }
+}
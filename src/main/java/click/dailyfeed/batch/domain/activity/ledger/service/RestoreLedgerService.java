@@ -0,0 +1,153 @@
+package click.dailyfeed.batch.domain.activity.ledger.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 복구 완료된 messageKey 를 Redis 에 기록하는 멱등성 원장(ledger)
+ * - 기록: SET NX + TTL (pipeline 으로 한 번에 전송)
+ * - 조회: MGET 한 번으로 chunk 전체의 복구 여부 확인
+ *
+ * MongoDB 를 조회하기 전에 중복 replay 를 걸러내기 위한 보조 수단이므로
+ * Redis 장애 시에는 빈 결과를 반환하고 기존 MongoDB 중복 체크로 진행합니다 (fail-open).
+ *
+ * 기록은 chunk 트랜잭션이 커밋된 뒤에 실행합니다.
+ * 커밋 전에 기록하면 롤백된 chunk 의 messageKey 가 원장에 남아, 재실행 시 저장되지 않은 항목을 복구된 것으로 건너뛰게 됩니다.
+ */
+@Slf4j
+@Service
+@Profile("!test")
+public class RestoreLedgerService {
+    public static final String SCOPE_MEMBER_ACTIVITIES = "member_activities";
+    public static final String SCOPE_LISTENER_DEAD_LETTERS = "listener_dead_letters";
+
+    private static final String KEY_PREFIX = "restore-ledger:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final Duration ttl;
+
+    public RestoreLedgerService(
+            StringRedisTemplate stringRedisTemplate,
+            @Value("${batch.restore-ledger.enabled:false}") boolean enabled,
+            @Value("${batch.restore-ledger.ttl-hours:72}") long ttlHours) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.ttl = Duration.ofHours(ttlHours);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 이미 복구된 것으로 기록된 messageKey 목록을 조회합니다. (MGET 1회)
+     *
+     * @param scope       복구 대상 컬렉션 (ex. member_activities)
+     * @param messageKeys 확인할 messageKey 목록
+     * @return 원장에 기록된 messageKey 집합
+     */
+    public Set<String> findRestored(String scope, Collection<String> messageKeys) {
+        List<String> keys = messageKeys.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        if (!enabled || keys.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        try {
+            List<String> values = stringRedisTemplate.opsForValue()
+                    .multiGet(keys.stream().map(key -> ledgerKey(scope, key)).toList());
+
+            if (values == null) {
+                return Collections.emptySet();
+            }
+
+            Set<String> restored = new HashSet<>();
+            for (int i = 0; i < keys.size(); i++) {
+                if (values.get(i) != null) {
+                    restored.add(keys.get(i));
+                }
+            }
+
+            log.debug("Restore ledger hit {}/{} messageKeys (scope={})", restored.size(), keys.size(), scope);
+            return restored;
+        } catch (Exception e) {
+            log.warn("Failed to read restore ledger. Falling back to MongoDB duplicate check (scope={}): {}",
+                    scope, e.getMessage());
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * 복구 완료된 messageKey 를 원장에 기록합니다. (SET NX + TTL, pipeline 1회)
+     * 트랜잭션 안에서 호출되면 커밋 후(afterCommit)에 기록하며, 롤백되면 기록하지 않습니다.
+     *
+     * @param scope       복구 대상 컬렉션 (ex. member_activities)
+     * @param messageKeys 기록할 messageKey 목록
+     */
+    public void markRestored(String scope, Collection<String> messageKeys) {
+        List<String> keys = messageKeys.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(scope, keys);
+                }
+            });
+            return;
+        }
+
+        record(scope, keys);
+    }
+
+    private void record(String scope, List<String> keys) {
+        byte[] restoredAt = LocalDateTime.now().toString().getBytes(StandardCharsets.UTF_8);
+        Expiration expiration = Expiration.from(ttl);
+
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.stringCommands().set(
+                            ledgerKey(scope, key).getBytes(StandardCharsets.UTF_8),
+                            restoredAt,
+                            expiration,
+                            RedisStringCommands.SetOption.SET_IF_ABSENT
+                    );
+                }
+                return null;
+            });
+            log.debug("Recorded {} messageKeys to restore ledger (scope={})", keys.size(), scope);
+        } catch (Exception e) {
+            // 원장 기록 실패는 MongoDB 중복 체크로 보완되므로 복구 자체는 실패시키지 않음
+            log.warn("Failed to record restore ledger (scope={}): {}", scope, e.getMessage());
+        }
+    }
+
+    private String ledgerKey(String scope, String messageKey) {
+        return KEY_PREFIX + scope + ":" + messageKey;
+    }
+}
@@ -0,0 +1,62 @@
+package click.dailyfeed.batch.domain.activity.member.document;
+
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * 게시글/댓글별 활동 타입 건수 롤업 (member_activities 를 집계하지 않고 _id 조회 한 번으로 건수 확인)
+ * _id: {target_type}:{target_id}:{member_activity_type} (예: post:10:POST_LIKE)
+ * 복구 잡이 MemberActivityMongoTemplate 으로 member_activities 에 새로 저장한 활동만 $inc 로 반영합니다.
+ * 다음 활동은 반영되지 않으므로, memberActivityCounterRebuildJob 으로 member_activities 전체를 집계한 뒤부터 전체 건수로 볼 수 있습니다.
+ * - 다른 서비스가 member_activities 에 직접 저장한 활동
+ * - activityListenerMergeRestoreJob 이 $merge 로 복구한 활동 (서버 안에서 저장되므로 카운터를 갱신하지 않음)
+ * (재집계 이후 위 방식으로 저장된 활동은 다음 재집계까지 빠져 있으며, 재집계는 member_activities 에 쓰는 잡이 없을 때만 카운터를 교체합니다)
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "member_activity_counters")
+public class MemberActivityCounterDocument {
+    public static final String TARGET_POST = "post";
+    public static final String TARGET_COMMENT = "comment";
+
+    @Id
+    private String id;
+    @Field("target_type")
+    private String targetType;
+    @Field("target_id")
+    private Long targetId;
+    @Field("member_activity_type")
+    private MemberActivityType memberActivityType;
+    @Field("count")
+    private Long count;
+    @Field("updated_at")
+    private LocalDateTime updatedAt;
+
+    public static String counterId(String targetType, Long targetId, MemberActivityType memberActivityType) {
+        return targetType + ":" + targetId + ":" + memberActivityType.name();
+    }
+
+    /**
+     * 활동이 집계될 카운터 _id (comment_id 가 있으면 댓글, 없으면 게시글 기준, 대상이 없는 회원 활동은 null)
+     */
+    public static String counterIdOf(MemberActivityDocument activity) {
+        if (activity.getMemberActivityType() == null) {
+            return null;
+        }
+        if (activity.getCommentId() != null) {
+            return counterId(TARGET_COMMENT, activity.getCommentId(), activity.getMemberActivityType());
+        }
+        if (activity.getPostId() != null) {
+            return counterId(TARGET_POST, activity.getPostId(), activity.getMemberActivityType());
+        }
+        return null;
+    }
+}
@@ -68,7 +68,9 @@ public class MemberActivityDocument {
     @Field("member_activity_type")
     private MemberActivityType memberActivityType;
 
+    // messageKey 가 있는 문서만 인덱싱 (MemberActivityMongoTemplate.MESSAGE_KEY_UNIQUE_INDEX, insert-only 복구의 중복 방지)
     @Field("message_key")
+    @Indexed(name = "uk_message_key", unique = true, sparse = true)
     private String messageKey;
 
     @CreatedDate
@@ -1,9 +1,11 @@
 package click.dailyfeed.batch.domain.activity.member.mapper;
 
 import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.code.domain.activity.dto.MemberActivityDto;
 import click.dailyfeed.code.domain.activity.exception.UndefinedMemberActivityEventTypeException;
 import click.dailyfeed.code.domain.activity.transport.MemberActivityTransportDto;
 import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -13,8 +15,21 @@ import java.io.File;
 @Component
 @RequiredArgsConstructor
 public class MemberActivityMapper {
+    public static final String FEIGN_MESSAGE_KEY_PREFIX = "feign:";
+
     private final ObjectMapper objectMapper;
 
+    /**
+     * Feign dead letter 는 messageKey 가 없으므로 dead letter 의 _id 로 결정적인 messageKey 를 만듭니다.
+     * 같은 dead letter 는 몇 번을 복구해도 같은 키가 되므로 messageKey 기준 upsert 로 중복 저장되지 않습니다.
+     */
+    public static String feignMessageKey(Object feignDeadLetterId) {
+        if (feignDeadLetterId == null) {
+            throw new IllegalArgumentException("Feign dead letter id is null");
+        }
+        return FEIGN_MESSAGE_KEY_PREFIX + feignDeadLetterId;
+    }
+
     public MemberActivityTransportDto.MemberActivityMessage fromLogFilePayload(File jsonLog) throws Exception {
         return objectMapper.readValue(jsonLog, MemberActivityTransportDto.MemberActivityMessage.class);
     }
@@ -65,4 +80,63 @@ public class MemberActivityMapper {
 
         throw new UndefinedMemberActivityEventTypeException();
     }
+
+    /**
+     * dead letter(kafka listener / kafka publisher / feign)의 카테고리별 payload 를 MemberActivityDocument 로 변환합니다.
+     *
+     * @throws JsonProcessingException  payload 역직렬화 실패
+     * @throws IllegalArgumentException 알 수 없는 카테고리
+     */
+    public MemberActivityDocument fromDeadLetterPayload(
+            MemberActivityType.Category category, String payload, String messageKey) throws JsonProcessingException {
+        if (category == null) {
+            throw new IllegalArgumentException("Unknown category: null");
+        }
+
+        switch (category) {
+            case POST:
+                MemberActivityDto.PostActivityRequest postRequest =
+                        objectMapper.readValue(payload, MemberActivityDto.PostActivityRequest.class);
+                return MemberActivityDocument.ofNewPostActivity(
+                        postRequest.getMemberId(),
+                        postRequest.getPostId(),
+                        postRequest.getActivityType(),
+                        messageKey
+                );
+
+            case COMMENT:
+                MemberActivityDto.CommentActivityRequest commentRequest =
+                        objectMapper.readValue(payload, MemberActivityDto.CommentActivityRequest.class);
+                return MemberActivityDocument.ofNewCommentActivity(
+                        commentRequest.getMemberId(),
+                        commentRequest.getPostId(),
+                        commentRequest.getCommentId(),
+                        commentRequest.getActivityType(),
+                        messageKey
+                );
+
+            case POST_LIKE:
+                MemberActivityDto.PostLikeActivityRequest postLikeRequest =
+                        objectMapper.readValue(payload, MemberActivityDto.PostLikeActivityRequest.class);
+                return MemberActivityDocument.ofNewPostLikeActivity(
+                        postLikeRequest.getMemberId(),
+                        postLikeRequest.getPostId(),
+                        postLikeRequest.getActivityType(),
+                        messageKey
+                );
+
+            case COMMENT_LIKE:
+                MemberActivityDto.CommentLikeActivityRequest commentLikeRequest =
+                        objectMapper.readValue(payload, MemberActivityDto.CommentLikeActivityRequest.class);
+                return MemberActivityDocument.ofNewCommentLikeActivity(
+                        commentLikeRequest.getMemberId(),
+                        commentLikeRequest.getCommentId(),
+                        commentLikeRequest.getActivityType(),
+                        messageKey
+                );
+
+            default:
+                throw new IllegalArgumentException("Unknown category: " + category);
+        }
+    }
 }
@@ -0,0 +1,163 @@
+package click.dailyfeed.batch.domain.activity.member.repository.mongo;
+
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.SessionSynchronization;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * member_activities 저장 위치(컬렉션) 결정
+ * - SINGLE: member_activities 하나에 저장 (기본값)
+ * - MONTHLY: created_at 의 월별 컬렉션(member_activities_yyyyMM)에 저장
+ *   인덱스 유지 비용과 working set 이 최근 월 컬렉션 크기에만 비례합니다.
+ *   batch.member-activity.storage 로 선택하며, memberActivityBucketMigrationJob 으로 기존 문서를 복사한 뒤 전환합니다.
+ *
+ * 월별 컬렉션은 처음 사용할 때 MemberActivityDocument 에 선언된 인덱스를 모두 설치합니다.
+ * uk_message_key 는 컬렉션 단위이므로 월별 저장에서는 같은 월 안에서만 중복을 막습니다.
+ * 다른 월에 이미 저장된 message_key 는 MemberActivityMongoTemplate 이 저장 전에 otherBuckets 를 조회하여 걸러냅니다.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class MemberActivityBucketResolver {
+    private static final DateTimeFormatter BUCKET_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final MongoTemplate mongoTemplate;
+    // 인덱스 생성과 컬렉션 목록 조회는 트랜잭션 안에서 실행할 수 없으므로 트랜잭션에 참여하지 않는 템플릿 사용
+    private final MongoTemplate indexMongoTemplate;
+    private final Storage storage;
+    private final String baseCollectionName;
+    private final Set<String> preparedBuckets = ConcurrentHashMap.newKeySet();
+
+    public MemberActivityBucketResolver(
+            MongoTemplate mongoTemplate,
+            @Value("${batch.member-activity.storage:single}") String storage) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexMongoTemplate = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        this.indexMongoTemplate.setSessionSynchronization(SessionSynchronization.NEVER);
+        this.storage = Storage.from(storage);
+        this.baseCollectionName = mongoTemplate.getCollectionName(MemberActivityDocument.class);
+        log.info("member_activities storage: {}", this.storage);
+    }
+
+    public String getBaseCollectionName() {
+        return baseCollectionName;
+    }
+
+    public boolean isBucketed() {
+        return storage == Storage.MONTHLY;
+    }
+
+    /**
+     * created_at 이 createdAt 인 문서를 저장할 컬렉션
+     * MONTHLY 이면 해당 월 컬렉션을 반환하며, 처음 사용하는 컬렉션이면 인덱스를 설치합니다.
+     */
+    public String collectionFor(LocalDateTime createdAt) {
+        if (!isBucketed()) {
+            return baseCollectionName;
+        }
+        String bucket = bucketFor(createdAt);
+        prepareBucket(bucket);
+        return bucket;
+    }
+
+    /**
+     * 저장 방식과 관계없이 createdAt 이 속한 월 컬렉션 이름 (이관 잡용)
+     */
+    public String bucketFor(LocalDateTime createdAt) {
+        return baseCollectionName + "_" + YearMonth.from(createdAt).format(BUCKET_SUFFIX);
+    }
+
+    /**
+     * [from, to) 기간의 문서를 조회할 때 읽어야 하는 컬렉션 (최신 월 먼저)
+     * MONTHLY 이면 기간에 걸친 월 컬렉션 중 실제로 존재하는 것만 반환합니다.
+     */
+    public List<String> collectionsFor(LocalDateTime from, LocalDateTime to) {
+        if (!isBucketed()) {
+            return List.of(baseCollectionName);
+        }
+
+        Set<String> existing = indexMongoTemplate.getCollectionNames();
+        return bucketsBetween(baseCollectionName, from, to).stream()
+                .filter(existing::contains)
+                .toList();
+    }
+
+    // [from, to) 기간에 걸친 월 컬렉션 이름 (최신 월 먼저, 존재 여부와 무관)
+    static List<String> bucketsBetween(String baseCollectionName, LocalDateTime from, LocalDateTime to) {
+        List<String> buckets = new ArrayList<>();
+        YearMonth first = YearMonth.from(from);
+        // to 는 포함하지 않으므로 to 가 월 초(00:00)이면 이전 월까지
+        for (YearMonth month = YearMonth.from(to.minusNanos(1)); !month.isBefore(first); month = month.minusMonths(1)) {
+            buckets.add(baseCollectionName + "_" + month.format(BUCKET_SUFFIX));
+        }
+        return buckets;
+    }
+
+    /**
+     * 현재 저장 방식에서 member_activities 전체를 이루는 컬렉션 (건수 재집계용)
+     * SINGLE 이면 원본 컬렉션만, MONTHLY 이면 존재하는 월 컬렉션 전체를 최신 월부터 반환합니다.
+     * (이관 후에도 원본이 남아 있으므로 두 방식의 컬렉션을 함께 읽으면 같은 활동이 두 번 집계됨)
+     */
+    public List<String> allCollections() {
+        if (!isBucketed()) {
+            return List.of(baseCollectionName);
+        }
+        String bucketPattern = Pattern.quote(baseCollectionName) + "_\\d{6}";
+        return indexMongoTemplate.getCollectionNames().stream()
+                .filter(name -> name.matches(bucketPattern))
+                .sorted(Comparator.reverseOrder())
+                .toList();
+    }
+
+    /**
+     * 월별 저장에서 bucket 을 제외한 월 컬렉션 (최신 월부터, 단일 저장이면 빈 리스트)
+     */
+    public List<String> otherBuckets(String bucket) {
+        if (!isBucketed()) {
+            return List.of();
+        }
+        return allCollections().stream()
+                .filter(name -> !name.equals(bucket))
+                .toList();
+    }
+
+    /**
+     * 월 컬렉션에 MemberActivityDocument 의 인덱스(uk_message_key 포함)를 설치합니다. (인스턴스마다 컬렉션별 한 번)
+     */
+    public void prepareBucket(String bucket) {
+        if (preparedBuckets.contains(bucket)) {
+            return;
+        }
+        IndexOperations indexOperations = indexMongoTemplate.indexOps(bucket);
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(MemberActivityDocument.class)
+                .forEach(indexOperations::ensureIndex);
+        preparedBuckets.add(bucket);
+        log.info("Prepared member_activities bucket {}", bucket);
+    }
+
+    public enum Storage {
+        SINGLE,
+        MONTHLY;
+
+        public static Storage from(String value) {
+            return Storage.valueOf(value.trim().toUpperCase());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package click.dailyfeed.batch.domain.activity.member.repository.mongo;
+
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityCounterDocument;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MemberActivityCounterRepository extends MongoRepository<MemberActivityCounterDocument, String> {
+
+    // 카운터 _id(MemberActivityCounterDocument.counterId) 목록으로 건수 조회
+    List<MemberActivityCounterDocument> findByIdIn(Collection<String> ids);
+}
@@ -1,25 +1,162 @@
 package click.dailyfeed.batch.domain.activity.member.repository.mongo;
 
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityCounterDocument;
 import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.result.UpdateResult;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.SessionSynchronization;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
 
 @Slf4j
-@RequiredArgsConstructor
 @Component
 @Profile("!test")
 public class MemberActivityMongoTemplate {
 
+    public static final String MESSAGE_KEY_UNIQUE_INDEX = "uk_message_key";
+
+    private static final int DUPLICATE_KEY_ERROR_CODE = 11000;
+    private static final int DUPLICATE_SAMPLE_SIZE = 10;
+
     private final MongoTemplate mongoTemplate;
+    private final MemberActivityBucketResolver bucketResolver;
+
+    // insert-only 저장은 chunk 트랜잭션에 참여하지 않는 템플릿 사용
+    // (트랜잭션 안에서는 E11000 한 건으로 트랜잭션 전체가 중단되므로, 중복을 항목별 결과로 받을 수 없음)
+    private final MongoTemplate insertMongoTemplate;
+
+    // write concern 별 bulk 저장 템플릿 (chunk 트랜잭션에는 그대로 참여)
+    private final Map<WriteConcern, MongoTemplate> bulkMongoTemplates = new ConcurrentHashMap<>();
+    // write concern 별 insert-only 경로의 카운터 갱신 템플릿 (insert 와 마찬가지로 트랜잭션에 참여하지 않음)
+    private final Map<WriteConcern, MongoTemplate> directMongoTemplates = new ConcurrentHashMap<>();
+
+    // 새로 저장한 활동을 member_activity_counters 에 반영할지 (batch.member-activity.rollup.enabled)
+    private final boolean rollupEnabled;
+
+    // uk_message_key 를 설치한 컬렉션
+    private final Set<String> uniqueIndexedCollections = ConcurrentHashMap.newKeySet();
+
+    public MemberActivityMongoTemplate(
+            MongoTemplate mongoTemplate,
+            MemberActivityBucketResolver bucketResolver,
+            @Value("${batch.member-activity.rollup.enabled:true}") boolean rollupEnabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketResolver = bucketResolver;
+        this.rollupEnabled = rollupEnabled;
+        this.insertMongoTemplate = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        this.insertMongoTemplate.setSessionSynchronization(SessionSynchronization.NEVER);
+    }
+
+    /**
+     * 새로 저장한 활동을 member_activity_counters 에 반영하는지 (batch.member-activity.rollup.enabled)
+     */
+    public boolean isRollupEnabled() {
+        return rollupEnabled;
+    }
+
+    /**
+     * 지금 저장하는 문서가 들어갈 컬렉션 (created_at 은 저장 시각이므로 월별 저장이면 이번 달 컬렉션)
+     */
+    public String currentCollectionName() {
+        return bucketResolver.collectionFor(LocalDateTime.now());
+    }
+
+    /**
+     * 월별 저장에서 collectionName 을 제외한 월 컬렉션 (이미 다른 달에 저장된 messageKey 확인용, 단일 저장이면 빈 리스트)
+     */
+    public List<String> otherBucketNames(String collectionName) {
+        return bucketResolver.otherBuckets(collectionName);
+    }
+
+    /**
+     * collectionName 에 message_key 유니크 인덱스를 설치합니다. ($merge 의 on 필드는 유니크 인덱스가 필요)
+     * - messageKey 가 없는 문서는 필드 자체가 저장되지 않으므로 sparse 로 제외합니다. ($merge 는 partial 인덱스를 사용할 수 없음)
+     * - 이미 중복된 message_key 가 있으면 설치할 수 없으므로, 인덱스가 없을 때 먼저 중복을 조회하여 예시 message_key 와 함께 실패합니다.
+     *   (중복 문서를 정리한 뒤 다시 실행)
+     * - 같은 key({message_key: 1})의 유니크가 아닌 인덱스(이전 쿼리 플랜 점검이 만든 idx_message_key 등)가 있으면
+     *   옵션만 다른 인덱스를 함께 둘 수 없으므로(IndexOptionsConflict) 삭제한 뒤 설치합니다.
+     * - 인덱스 생성은 트랜잭션 안에서 실행할 수 없으므로 트랜잭션에 참여하지 않는 템플릿을 사용합니다.
+     *
+     * @throws IllegalStateException collectionName 에 중복된 message_key 가 있는 경우
+     */
+    public String ensureMessageKeyUniqueIndex(String collectionName) {
+        boolean installed = insertMongoTemplate.indexOps(collectionName).getIndexInfo().stream()
+                .anyMatch(indexInfo -> MESSAGE_KEY_UNIQUE_INDEX.equals(indexInfo.getName()));
+        if (!installed) {
+            List<String> duplicates = findDuplicateMessageKeys(collectionName);
+            if (!duplicates.isEmpty()) {
+                throw new IllegalStateException("Cannot create " + MESSAGE_KEY_UNIQUE_INDEX + " on " + collectionName
+                        + ": duplicate message_key values exist (e.g. " + duplicates + "). Remove the duplicates and retry");
+            }
+            dropConflictingMessageKeyIndexes(collectionName);
+        }
+
+        Index index = new Index()
+                .on("message_key", Sort.Direction.ASC)
+                .unique()
+                .sparse()
+                .named(MESSAGE_KEY_UNIQUE_INDEX);
+        String indexName = insertMongoTemplate.indexOps(collectionName).ensureIndex(index);
+        uniqueIndexedCollections.add(collectionName);
+        return indexName;
+    }
+
+    // uk_message_key 와 key 가 같고 옵션/이름만 다른 인덱스 삭제
+    private void dropConflictingMessageKeyIndexes(String collectionName) {
+        IndexOperations indexOperations = insertMongoTemplate.indexOps(collectionName);
+        indexOperations.getIndexInfo().stream()
+                .filter(indexInfo -> !MESSAGE_KEY_UNIQUE_INDEX.equals(indexInfo.getName()))
+                .filter(indexInfo -> indexInfo.getIndexFields().size() == 1
+                        && "message_key".equals(indexInfo.getIndexFields().get(0).getKey()))
+                .forEach(indexInfo -> {
+                    log.warn("Dropping index {} on {}: it conflicts with {}", indexInfo.getName(), collectionName, MESSAGE_KEY_UNIQUE_INDEX);
+                    indexOperations.dropIndex(indexInfo.getName());
+                });
+    }
+
+    // 같은 message_key 를 가진 문서가 두 건 이상인 message_key (최대 DUPLICATE_SAMPLE_SIZE 건)
+    private List<String> findDuplicateMessageKeys(String collectionName) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("message_key", new Document("$exists", true))),
+                new Document("$group", new Document("_id", "$message_key").append("count", new Document("$sum", 1))),
+                new Document("$match", new Document("count", new Document("$gt", 1))),
+                new Document("$limit", DUPLICATE_SAMPLE_SIZE));
+        List<String> duplicates = new ArrayList<>();
+        insertMongoTemplate.getCollection(collectionName)
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .forEach(document -> duplicates.add(String.valueOf(document.get("_id"))));
+        return duplicates;
+    }
 
     /**
      * MemberActivityDocument를 저장합니다.
@@ -35,7 +172,7 @@ public class MemberActivityMongoTemplate {
             return upsertByMessageKey(document);
         } else {
             // messageKey가 없는 경우: 단순 insert
-            mongoTemplate.insert(document);
+            mongoTemplate.insert(document, bucketResolver.collectionFor(LocalDateTime.now()));
             log.debug("Inserted MemberActivityDocument without messageKey: memberId={}, activityType={}",
                     document.getMemberId(), document.getMemberActivityType());
             return null;
@@ -52,16 +189,10 @@ public class MemberActivityMongoTemplate {
     private UpdateResult upsertByMessageKey(MemberActivityDocument document) {
         Query query = new Query(Criteria.where("message_key").is(document.getMessageKey()));
 
-        Update update = new Update()
-                .set("member_id", document.getMemberId())
-                .set("post_id", document.getPostId())
-                .set("comment_id", document.getCommentId())
-                .set("member_activity_type", document.getMemberActivityType())
-                .set("message_key", document.getMessageKey())
-                .setOnInsert("created_at", LocalDateTime.now())
-                .set("updated_at", LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        Update update = upsertUpdate(document, now);
 
-        UpdateResult result = mongoTemplate.upsert(query, update, MemberActivityDocument.class);
+        UpdateResult result = mongoTemplate.upsert(query, update, MemberActivityDocument.class, bucketResolver.collectionFor(now));
 
         log.debug("Upserted MemberActivityDocument: messageKey={}, matched={}, modified={}, upsertedId={}",
                 document.getMessageKey(),
@@ -73,13 +204,444 @@ public class MemberActivityMongoTemplate {
     }
 
     /**
-     * 여러 MemberActivityDocument를 일괄 저장합니다.
+     * 여러 MemberActivityDocument를 하나의 UNORDERED bulkWrite 로 일괄 저장합니다.
+     * - messageKey가 있는 경우: messageKey 기준 upsert (upsertMemberActivity 와 같은 필드)
+     * - messageKey가 없는 경우: insert
+     * UNORDERED 이면 일부 항목이 실패해도 나머지는 저장되며, ORDERED 이면 첫 실패 이후 항목은 실행되지 않아 FAILED 로 반환합니다.
+     *
+     * MongoDB 트랜잭션 안에서는 항목 하나만 실패해도 서버가 트랜잭션을 중단하므로, 이후의 카운터 갱신/실패 기록/완료 처리가
+     * 모두 NoSuchTransaction 으로 실패합니다. 이 경우 항목별 결과를 반환하지 않고 BulkOperationException 을 그대로 던져 chunk 전체를 롤백합니다.
+     * 항목별 결과(FAILED)는 트랜잭션 밖(transaction-mode=jdbc)에서 저장한 경우에만 반환됩니다. (트랜잭션 안의 write concern 은 커밋의 write concern 을 따름)
+     * 월별 저장이면 다른 월 컬렉션에 이미 있는 messageKey 는 저장하지 않고 MATCHED 로 반환합니다. (다시 집계되지 않음)
+     *
+     * @param documents    저장할 MemberActivityDocument 리스트
+     * @param writeConcern 트랜잭션 밖에서 저장할 때의 write concern
+     * @param bulkMode     ORDERED / UNORDERED
+     * @return 항목별 저장 결과
+     * @throws BulkOperationException MongoDB 트랜잭션 안에서 실패한 항목이 있는 경우
+     */
+    public BulkSaveResult upsertAll(Iterable<MemberActivityDocument> documents, WriteConcern writeConcern, BulkOperations.BulkMode bulkMode) {
+        List<MemberActivityDocument> items = new ArrayList<>();
+        documents.forEach(items::add);
+        if (items.isEmpty()) {
+            return new BulkSaveResult(List.of());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String collectionName = bucketResolver.collectionFor(now);
+        Set<String> keysInOtherBuckets = findMessageKeysInOtherBuckets(collectionName, items);
+
+        BulkOperations bulkOperations = bulkMongoTemplate(writeConcern)
+                .bulkOps(bulkMode, MemberActivityDocument.class, collectionName);
+        Object timestamp = mongoTemplate.getConverter().convertToMongoType(now);
+        // bulkWrite 의 index → items 의 index (다른 월 컬렉션에 이미 있는 항목은 bulkWrite 에 넣지 않음)
+        List<Integer> itemIndexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MemberActivityDocument document = items.get(i);
+            if (isIn(keysInOtherBuckets, document)) {
+                continue;
+            }
+            if (hasMessageKey(document)) {
+                bulkOperations.upsert(
+                        new Query(Criteria.where("message_key").is(document.getMessageKey())),
+                        upsertUpdate(document, now));
+            } else {
+                bulkOperations.insert(insertRow(document, timestamp));
+            }
+            itemIndexes.add(i);
+        }
+
+        // items 의 index 기준 결과
+        Map<Integer, String> errorsByIndex = new HashMap<>();
+        Set<Integer> upsertedIndexes = new HashSet<>();
+        if (!itemIndexes.isEmpty()) {
+            try {
+                BulkWriteResult result = bulkOperations.execute();
+                result.getUpserts().forEach(upsert -> upsertedIndexes.add(itemIndexes.get(upsert.getIndex())));
+            } catch (BulkOperationException e) {
+                if (inMongoTransaction()) {
+                    // 트랜잭션이 이미 중단되었으므로 원장/실패 기록/완료 처리 전에 chunk 실패로 처리
+                    log.warn("Bulk upsert of member activities failed inside a MongoDB transaction: {} of {} items. Rolling back the chunk",
+                            e.getErrors().size(), items.size());
+                    throw e;
+                }
+                e.getResult().getUpserts().forEach(upsert -> upsertedIndexes.add(itemIndexes.get(upsert.getIndex())));
+                e.getErrors().forEach(error -> errorsByIndex.put(itemIndexes.get(error.getIndex()), error.getCode() + ": " + error.getMessage()));
+                if (bulkMode == BulkOperations.BulkMode.ORDERED) {
+                    // ORDERED 는 첫 실패에서 중단되므로 이후 항목은 실행되지 않음
+                    int firstErrorIndex = e.getErrors().stream().mapToInt(BulkWriteError::getIndex).min().orElse(itemIndexes.size());
+                    for (int i = firstErrorIndex + 1; i < itemIndexes.size(); i++) {
+                        errorsByIndex.put(itemIndexes.get(i), "not executed after ordered bulk write failure");
+                    }
+                }
+                log.warn("Bulk upsert of member activities partially failed: {} of {} items", e.getErrors().size(), items.size());
+            }
+        }
+
+        List<ItemOutcome> outcomes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MemberActivityDocument document = items.get(i);
+            if (isIn(keysInOtherBuckets, document)) {
+                outcomes.add(new ItemOutcome(document, Outcome.MATCHED, null));
+            } else if (errorsByIndex.containsKey(i)) {
+                outcomes.add(new ItemOutcome(document, Outcome.FAILED, errorsByIndex.get(i)));
+            } else if (!hasMessageKey(document)) {
+                outcomes.add(new ItemOutcome(document, Outcome.INSERTED, null));
+            } else if (upsertedIndexes.contains(i)) {
+                outcomes.add(new ItemOutcome(document, Outcome.UPSERTED, null));
+            } else {
+                outcomes.add(new ItemOutcome(document, Outcome.MATCHED, null));
+            }
+        }
+
+        BulkSaveResult bulkSaveResult = new BulkSaveResult(outcomes);
+        // 저장과 같은 chunk 트랜잭션에서 카운터 반영 (롤백되면 함께 롤백)
+        incrementCounters(bulkMongoTemplate(writeConcern), bulkSaveResult, now);
+        log.debug("Bulk upserted {} member activities: inserted={}, upserted={}, matched={}, failed={}",
+                items.size(),
+                bulkSaveResult.count(Outcome.INSERTED),
+                bulkSaveResult.count(Outcome.UPSERTED),
+                bulkSaveResult.count(Outcome.MATCHED),
+                bulkSaveResult.count(Outcome.FAILED));
+        return bulkSaveResult;
+    }
+
+    /**
+     * 여러 MemberActivityDocument를 하나의 UNORDERED insertMany 로 저장합니다. (insert-only, 사전 중복 조회 없음)
+     * - uk_message_key 유니크 인덱스가 중복을 막으므로, E11000(duplicate key) 으로 실패한 항목은 이미 복구된 것(DUPLICATE)으로 봅니다.
+     * - 그 외 오류로 실패한 항목만 FAILED 이며, UNORDERED 이므로 나머지 항목은 저장됩니다.
+     * - messageKey 가 있는 항목은 chunk 트랜잭션과 무관하게 즉시 반영됩니다. chunk 가 롤백되어 재실행되면 이미 저장된 항목은 DUPLICATE 가 되므로 중복 저장되지 않습니다.
+     *   (여러 writer 가 동시에 같은 messageKey 를 저장해도 한 건만 저장됨)
+     * - messageKey 가 없는 항목은 유니크 인덱스로 중복을 막을 수 없으므로 chunk 트랜잭션 안에서 먼저 insert 합니다. (롤백되면 함께 롤백)
+     *   실패하면 messageKey 가 있는 항목을 저장하기 전에 예외를 던져 chunk 전체를 실패 처리합니다.
+     * - 인덱스 없이 insert 하면 중복을 막을 수 없으므로 컬렉션마다 처음 호출될 때 인덱스를 설치합니다.
+     * - auditing 이 적용되지 않으므로 created_at / updated_at 은 upsert 와 같은 시각으로 직접 채웁니다.
+     * - ORDERED 이면 실패한 항목 다음부터 다시 insertMany 하므로, 중복이 있어도 나머지 항목은 순서대로 저장됩니다.
+     * - 월별 저장이면 다른 월 컬렉션에 이미 있는 messageKey 는 insert 하지 않고 DUPLICATE 로 반환합니다.
+     *
+     * @param documents    저장할 MemberActivityDocument 리스트
+     * @param writeConcern insertMany 의 write concern
+     * @param bulkMode     ORDERED / UNORDERED
+     * @return 항목별 저장 결과 (INSERTED / DUPLICATE / FAILED)
+     */
+    public BulkSaveResult insertIgnoringDuplicates(Iterable<MemberActivityDocument> documents, WriteConcern writeConcern, BulkOperations.BulkMode bulkMode) {
+        List<MemberActivityDocument> items = new ArrayList<>();
+        documents.forEach(items::add);
+        if (items.isEmpty()) {
+            return new BulkSaveResult(List.of());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        String collectionName = bucketResolver.collectionFor(now);
+        if (!uniqueIndexedCollections.contains(collectionName)) {
+            ensureMessageKeyUniqueIndex(collectionName);
+        }
+
+        Set<String> keysInOtherBuckets = findMessageKeysInOtherBuckets(collectionName, items);
+
+        Object timestamp = mongoTemplate.getConverter().convertToMongoType(now);
+        List<Document> keylessRows = new ArrayList<>();
+        List<Document> rows = new ArrayList<>(items.size());
+        // rows 의 index → items 의 index (다른 월 컬렉션에 이미 있는 항목은 insert 하지 않음)
+        List<Integer> itemIndexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MemberActivityDocument document = items.get(i);
+            if (!hasMessageKey(document)) {
+                keylessRows.add(insertRow(document, timestamp));
+            } else if (!isIn(keysInOtherBuckets, document)) {
+                rows.add(insertRow(document, timestamp));
+                itemIndexes.add(i);
+            }
+        }
+
+        // messageKey 가 없는 항목은 chunk 트랜잭션 안에서 insert (재실행 시 중복 저장되지 않도록 롤백에 포함)
+        if (!keylessRows.isEmpty()) {
+            BulkOperations keylessOperations = bulkMongoTemplate(writeConcern).bulkOps(bulkMode, collectionName);
+            keylessOperations.insert(keylessRows);
+            keylessOperations.execute();
+        }
+
+        MongoCollection<Document> collection = insertMongoTemplate
+                .getCollection(collectionName)
+                .withWriteConcern(writeConcern);
+        boolean ordered = bulkMode == BulkOperations.BulkMode.ORDERED;
+
+        // rows 의 index 기준 실패 항목
+        Map<Integer, BulkWriteError> errorsByIndex = insertManyCollectingErrors(rows.size(), ordered, offset -> {
+            try {
+                collection.insertMany(rows.subList(offset, rows.size()), new InsertManyOptions().ordered(ordered));
+                return List.of();
+            } catch (MongoBulkWriteException e) {
+                if (e.getWriteErrors().isEmpty()) {
+                    // write concern 오류는 항목별로 구분할 수 없으므로 chunk 실패로 처리
+                    throw e;
+                }
+                return e.getWriteErrors();
+            }
+        });
+
+        Map<Integer, BulkWriteError> errorsByItemIndex = new HashMap<>();
+        errorsByIndex.forEach((rowIndex, error) -> errorsByItemIndex.put(itemIndexes.get(rowIndex), error));
+        List<ItemOutcome> outcomes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            MemberActivityDocument document = items.get(i);
+            outcomes.add(isIn(keysInOtherBuckets, document)
+                    ? new ItemOutcome(document, Outcome.DUPLICATE, null)
+                    : insertOutcome(document, errorsByItemIndex.get(i)));
+        }
+
+        BulkSaveResult bulkSaveResult = new BulkSaveResult(outcomes);
+        // 카운터도 insert 와 같은 방식으로 반영
+        // - messageKey 없음: chunk 트랜잭션 안에서 (롤백되면 함께 롤백)
+        // - messageKey 있음: 트랜잭션 밖에서 바로 (chunk 가 롤백되어 재실행되면 이미 저장된 항목은 DUPLICATE 이므로 다시 세지 않음)
+        incrementCounters(bulkMongoTemplate(writeConcern), new BulkSaveResult(outcomes.stream()
+                .filter(item -> !hasMessageKey(item.document()))
+                .toList()), now);
+        incrementCounters(directMongoTemplate(writeConcern), new BulkSaveResult(outcomes.stream()
+                .filter(item -> hasMessageKey(item.document()))
+                .toList()), now);
+        log.debug("Inserted {} member activities: inserted={}, duplicate={}, failed={}",
+                items.size(),
+                bulkSaveResult.count(Outcome.INSERTED),
+                bulkSaveResult.count(Outcome.DUPLICATE),
+                bulkSaveResult.count(Outcome.FAILED));
+        return bulkSaveResult;
+    }
+
+    /**
+     * 회원의 [from, to) 기간 활동을 최신순으로 최대 limit 건 조회합니다. (idx_member_created)
+     * 월별 저장이면 기간에 걸친 월 컬렉션만 최신 월부터 읽고, limit 을 채우면 이전 월은 읽지 않습니다.
+     */
+    public List<MemberActivityDocument> findMemberActivities(Long memberId, LocalDateTime from, LocalDateTime to, int limit) {
+        List<MemberActivityDocument> activities = new ArrayList<>();
+        for (String collectionName : bucketResolver.collectionsFor(from, to)) {
+            Query query = new Query(Criteria.where("member_id").is(memberId)
+                    .and("created_at").gte(from).lt(to))
+                    .with(Sort.by(Sort.Direction.DESC, "created_at"))
+                    .limit(limit - activities.size());
+            activities.addAll(mongoTemplate.find(query, MemberActivityDocument.class, collectionName));
+            if (activities.size() >= limit) {
+                break;
+            }
+        }
+        return activities;
+    }
+
+    /**
+     * 이번 bulk 에서 새로 생성된(INSERTED / UPSERTED) 활동만 (대상, 활동 타입)별로 메모리에서 합산한 뒤,
+     * member_activity_counters 에 카운터마다 $inc upsert 하나씩, 한 번의 UNORDERED bulkWrite 로 반영합니다.
+     * 같은 messageKey 가 다시 복구되면 MATCHED / DUPLICATE 가 되어 세지 않으므로 재실행해도 중복 집계되지 않습니다.
+     * (insert-only 경로에서 insert 후 카운터 반영 전에 프로세스가 중단되면 그 항목은 집계되지 않으며, memberActivityCounterRebuildJob 으로 다시 만들 수 있습니다)
+     */
+    private void incrementCounters(MongoTemplate template, BulkSaveResult result, LocalDateTime now) {
+        if (!rollupEnabled) {
+            return;
+        }
+
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        Map<String, MemberActivityDocument> samples = new HashMap<>();
+        for (ItemOutcome item : result.outcomes()) {
+            if (item.outcome() != Outcome.INSERTED && item.outcome() != Outcome.UPSERTED) {
+                continue;
+            }
+            String counterId = MemberActivityCounterDocument.counterIdOf(item.document());
+            if (counterId != null) {
+                deltas.merge(counterId, 1L, Long::sum);
+                samples.putIfAbsent(counterId, item.document());
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        BulkOperations counterOperations = template.bulkOps(BulkOperations.BulkMode.UNORDERED, MemberActivityCounterDocument.class);
+        deltas.forEach((counterId, delta) -> {
+            MemberActivityDocument sample = samples.get(counterId);
+            boolean comment = sample.getCommentId() != null;
+            counterOperations.upsert(
+                    new Query(Criteria.where("_id").is(counterId)),
+                    new Update()
+                            .inc("count", delta)
+                            .set("updated_at", now)
+                            .setOnInsert("target_type", comment
+                                    ? MemberActivityCounterDocument.TARGET_COMMENT
+                                    : MemberActivityCounterDocument.TARGET_POST)
+                            .setOnInsert("target_id", comment ? sample.getCommentId() : sample.getPostId())
+                            .setOnInsert("member_activity_type", sample.getMemberActivityType()));
+        });
+        counterOperations.execute();
+        log.debug("Incremented {} member activity counters", deltas.size());
+    }
+
+    /**
+     * 월별 저장이면 collectionName 이 아닌 월 컬렉션에 이미 저장된 messageKey 를 조회합니다. (월 컬렉션마다 uk_message_key 조회 한 번)
+     * uk_message_key 는 컬렉션 단위이므로, 이전 달에 복구된 메시지가 다시 들어오면 이번 달 컬렉션에 중복 저장되고 카운터도 다시 집계되는 것을 막습니다.
+     * 월이 바뀌는 순간 두 writer 가 같은 messageKey 를 서로 다른 월 컬렉션에 동시에 저장하는 경우는 막지 못합니다.
+     */
+    private Set<String> findMessageKeysInOtherBuckets(String collectionName, List<MemberActivityDocument> items) {
+        Set<String> found = new HashSet<>();
+        List<String> otherBuckets = bucketResolver.otherBuckets(collectionName);
+        if (otherBuckets.isEmpty()) {
+            return found;
+        }
+        List<String> messageKeys = items.stream()
+                .filter(MemberActivityMongoTemplate::hasMessageKey)
+                .map(MemberActivityDocument::getMessageKey)
+                .distinct()
+                .toList();
+        for (String bucket : otherBuckets) {
+            List<String> remaining = messageKeys.stream().filter(key -> !found.contains(key)).toList();
+            if (remaining.isEmpty()) {
+                break;
+            }
+            Query query = new Query(Criteria.where("message_key").in(remaining));
+            query.fields().include("message_key").exclude("_id");
+            mongoTemplate.find(query, Document.class, bucket)
+                    .forEach(document -> found.add(document.getString("message_key")));
+        }
+        if (!found.isEmpty()) {
+            log.debug("Skipping {} member activities already saved in other buckets", found.size());
+        }
+        return found;
+    }
+
+    /**
+     * size 건의 insertMany 를 실행하고 index(0 ~ size-1) 기준 실패 항목을 반환합니다.
+     * ORDERED 는 첫 실패에서 중단되므로 마지막으로 실패한 항목 다음부터 다시 insertMany 합니다.
      *
-     * @param documents 저장할 MemberActivityDocument 리스트
+     * @param insertFrom offset 부터 끝까지 insertMany 하고 실패 항목(index 는 offset 기준)을 반환, 모두 저장되면 빈 리스트
      */
-    public void upsertAll(Iterable<MemberActivityDocument> documents) {
-        for (MemberActivityDocument document : documents) {
-            upsertMemberActivity(document);
+    static Map<Integer, BulkWriteError> insertManyCollectingErrors(int size, boolean ordered, IntFunction<List<BulkWriteError>> insertFrom) {
+        Map<Integer, BulkWriteError> errorsByIndex = new HashMap<>();
+        int offset = 0;
+        while (offset < size) {
+            List<BulkWriteError> errors = insertFrom.apply(offset);
+            if (errors.isEmpty()) {
+                break;
+            }
+            int lastErrorIndex = offset;
+            for (BulkWriteError error : errors) {
+                errorsByIndex.put(offset + error.getIndex(), error);
+                lastErrorIndex = Math.max(lastErrorIndex, offset + error.getIndex());
+            }
+            if (!ordered) {
+                break;
+            }
+            offset = lastErrorIndex + 1;
+        }
+        return errorsByIndex;
+    }
+
+    // insert 결과: 오류 없음 INSERTED, E11000(uk_message_key) DUPLICATE, 그 외 FAILED
+    static ItemOutcome insertOutcome(MemberActivityDocument document, BulkWriteError error) {
+        if (error == null) {
+            return new ItemOutcome(document, Outcome.INSERTED, null);
+        }
+        if (error.getCode() == DUPLICATE_KEY_ERROR_CODE && hasMessageKey(document)) {
+            return new ItemOutcome(document, Outcome.DUPLICATE, null);
+        }
+        return new ItemOutcome(document, Outcome.FAILED, error.getCode() + ": " + error.getMessage());
+    }
+
+    private static boolean isIn(Set<String> messageKeys, MemberActivityDocument document) {
+        return hasMessageKey(document) && messageKeys.contains(document.getMessageKey());
+    }
+
+    // chunk 가 MongoTransactionManager 트랜잭션 안에서 실행 중인지 (transaction-mode=jdbc 이면 MongoDB 쓰기는 트랜잭션 밖에서 즉시 반영)
+    private boolean inMongoTransaction() {
+        return TransactionSynchronizationManager.hasResource(mongoTemplate.getMongoDatabaseFactory());
+    }
+
+    private MongoTemplate directMongoTemplate(WriteConcern writeConcern) {
+        return directMongoTemplates.computeIfAbsent(writeConcern, concern -> {
+            MongoTemplate template = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+            template.setWriteConcern(concern);
+            template.setSessionSynchronization(SessionSynchronization.NEVER);
+            return template;
+        });
+    }
+
+    private MongoTemplate bulkMongoTemplate(WriteConcern writeConcern) {
+        return bulkMongoTemplates.computeIfAbsent(writeConcern, concern -> {
+            MongoTemplate template = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+            template.setWriteConcern(concern);
+            return template;
+        });
+    }
+
+    // 직접 생성한 템플릿과 insertMany 에는 auditing 이 적용되지 않으므로 created_at / updated_at 을 직접 채운 문서로 변환
+    private Document insertRow(MemberActivityDocument document, Object timestamp) {
+        Document row = new Document();
+        mongoTemplate.getConverter().write(document, row);
+        row.put("created_at", timestamp);
+        row.put("updated_at", timestamp);
+        return row;
+    }
+
+    private static boolean hasMessageKey(MemberActivityDocument document) {
+        return document.getMessageKey() != null && !document.getMessageKey().isEmpty();
+    }
+
+    private static Update upsertUpdate(MemberActivityDocument document, LocalDateTime now) {
+        return new Update()
+                .set("member_id", document.getMemberId())
+                .set("post_id", document.getPostId())
+                .set("comment_id", document.getCommentId())
+                .set("member_activity_type", document.getMemberActivityType())
+                .set("message_key", document.getMessageKey())
+                .setOnInsert("created_at", now)
+                .set("updated_at", now);
+    }
+
+    /**
+     * INSERTED: insert 로 생성, UPSERTED: 새로 생성, MATCHED: 같은 messageKey 문서가 이미 있어 갱신,
+     * DUPLICATE: 같은 messageKey 문서가 이미 있어 insert 하지 않음(이미 복구됨), FAILED: 저장 실패
+     */
+    public enum Outcome {
+        INSERTED,
+        UPSERTED,
+        MATCHED,
+        DUPLICATE,
+        FAILED
+    }
+
+    public record ItemOutcome(MemberActivityDocument document, Outcome outcome, String error) {
+    }
+
+    public record BulkSaveResult(List<ItemOutcome> outcomes) {
+
+        public long count(Outcome outcome) {
+            return outcomes.stream().filter(item -> item.outcome() == outcome).count();
+        }
+
+        public boolean hasFailures() {
+            return outcomes.stream().anyMatch(item -> item.outcome() == Outcome.FAILED);
+        }
+
+        /**
+         * 저장에 실패한 messageKey → 실패 사유
+         */
+        public Map<String, String> failedMessageKeys() {
+            Map<String, String> failed = new LinkedHashMap<>();
+            outcomes.stream()
+                    .filter(item -> item.outcome() == Outcome.FAILED && hasMessageKey(item.document()))
+                    .forEach(item -> failed.put(item.document().getMessageKey(), item.error()));
+            return failed;
+        }
+
+        /**
+         * 원본을 특정할 수 없는(messageKey 없는) 실패 건수
+         */
+        public long failedWithoutMessageKey() {
+            return outcomes.stream()
+                    .filter(item -> item.outcome() == Outcome.FAILED && !hasMessageKey(item.document()))
+                    .count();
+        }
+
+        public List<String> succeededMessageKeys() {
+            return outcomes.stream()
+                    .filter(item -> item.outcome() != Outcome.FAILED && hasMessageKey(item.document()))
+                    .map(item -> item.document().getMessageKey())
+                    .toList();
         }
     }
 }
@@ -0,0 +1,266 @@
+package click.dailyfeed.batch.domain.diagnostic.service;
+
+import click.dailyfeed.batch.domain.activity.deadletters.document.ListenerDeadLetterDocument;
+import click.dailyfeed.batch.domain.activity.deadletters.repository.mongo.DeadLetterMongoTemplate;
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate;
+import click.dailyfeed.batch.domain.redisdlq.document.RedisDLQDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.FeignDeadLetterDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaListenerDeadLetterDocument;
+import click.dailyfeed.deadletter.domain.deadletter.document.KafkaPublisherDeadLetterDocument;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 복구 잡이 사용하는 MongoDB 쿼리의 실행 계획 점검
+ * - repository derived query 와 MongoTemplate 쿼리를 같은 조건의 Query 로 재구성해 explain 합니다.
+ * - COLLSCAN(전체 스캔) 또는 SORT(인메모리 정렬) stage 가 있으면 권장 인덱스와 함께 보고합니다.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class MongoQueryPlanVerifier {
+    private static final String PLAN_VERIFY_SAMPLE_KEY = "__query_plan_verify__";
+
+    private final MongoTemplate mongoTemplate;
+    private final MemberActivityMongoTemplate memberActivityMongoTemplate;
+    private final QueryMapper queryMapper;
+
+    public MongoQueryPlanVerifier(MongoTemplate mongoTemplate, MemberActivityMongoTemplate memberActivityMongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.memberActivityMongoTemplate = memberActivityMongoTemplate;
+        this.queryMapper = new QueryMapper(mongoTemplate.getConverter());
+    }
+
+    /**
+     * 점검 대상 쿼리
+     *
+     * @param name             쿼리를 사용하는 repository 메서드 / reader 이름
+     * @param documentType     조회 대상 문서 타입
+     * @param query            실제 쿼리와 같은 조건/정렬/limit 의 Query
+     * @param recommendedIndex 실행 계획이 나쁠 때 생성할 인덱스
+     */
+    public record QueryPlanCheck(String name, Class<?> documentType, Query query, Index recommendedIndex) {
+    }
+
+    /**
+     * explain 결과 요약
+     */
+    public record QueryPlanReport(
+            QueryPlanCheck check,
+            String collectionName,
+            List<String> stages,
+            long nReturned,
+            long totalKeysExamined,
+            long totalDocsExamined,
+            long executionTimeMillis) {
+
+        public boolean collectionScan() {
+            return stages.contains("COLLSCAN");
+        }
+
+        public boolean inMemorySort() {
+            return stages.contains("SORT");
+        }
+
+        public boolean needsIndex() {
+            return collectionScan() || inMemorySort();
+        }
+    }
+
+    /**
+     * 복구 잡에서 사용하는 쿼리 목록
+     */
+    public List<QueryPlanCheck> restoreQueryChecks() {
+        List<QueryPlanCheck> checks = new ArrayList<>();
+
+        // listener_dead_letters
+        checks.add(incompleteByCreatedAtCheck("ListenerDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc", ListenerDeadLetterDocument.class, 30));
+        checks.add(incompleteByIdCheck("listenerDeadLetterReader", ListenerDeadLetterDocument.class, 30));
+        checks.add(messageKeyCheck("ListenerDeadLetterRepository.findByMessageKeyIn", ListenerDeadLetterDocument.class));
+
+        // kafka_listener_dead_letters
+        checks.add(incompleteByCreatedAtCheck("KafkaListenerDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc", KafkaListenerDeadLetterDocument.class, 50));
+        checks.add(incompleteByIdCheck("kafkaListenerDeadLetterReader", KafkaListenerDeadLetterDocument.class, 50));
+        checks.add(messageKeyCheck("KafkaListenerDeadLetterMongoTemplate.upsertAll", KafkaListenerDeadLetterDocument.class));
+
+        // kafka_publisher_dead_letters
+        checks.add(incompleteByCreatedAtCheck("KafkaPublisherDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc", KafkaPublisherDeadLetterDocument.class, 50));
+        checks.add(incompleteByIdCheck("kafkaPublisherDeadLetterReader", KafkaPublisherDeadLetterDocument.class, 50));
+
+        // feign_dead_letters
+        checks.add(incompleteByCreatedAtCheck("FeignDeadLetterRepository.findByIsCompletedOrderByCreatedAtDesc", FeignDeadLetterDocument.class, 50));
+        checks.add(incompleteByIdCheck("feignDeadLetterReader", FeignDeadLetterDocument.class, 50));
+
+        // redis_dead_letters
+        checks.add(new QueryPlanCheck(
+                "RedisDLQRepository.findByIsCompletedFalseAndIsEditingFalse",
+                RedisDLQDocument.class,
+                new Query(Criteria.where("isCompleted").is(Boolean.FALSE).and("isEditing").is(Boolean.FALSE)),
+                incompleteIndex(RedisDLQDocument.class, "idx_incomplete_created", "createdAt", Sort.Direction.DESC)));
+        checks.add(new QueryPlanCheck(
+                "RedisDLQRepository.findByIsCompletedFalseAndCreatedAtBefore",
+                RedisDLQDocument.class,
+                new Query(Criteria.where("isCompleted").is(Boolean.FALSE).and("createdAt").lt(LocalDateTime.now().minusHours(5))),
+                incompleteIndex(RedisDLQDocument.class, "idx_incomplete_created", "createdAt", Sort.Direction.DESC)));
+        checks.add(messageKeyCheck("RedisDLQRepository.findByMessageKey", RedisDLQDocument.class));
+
+        // member_activities (message_key 인덱스는 insert-only 복구와 $merge 가 사용하는 uk_message_key 여야 함)
+        checks.add(memberActivityMessageKeyCheck("MemberActivityMongoRepository.existsByMessageKey"));
+
+        return checks;
+    }
+
+    /**
+     * 쿼리를 문서 매핑(필드명, 타입 변환)이 적용된 형태로 바꿔 explain 합니다.
+     */
+    public QueryPlanReport explain(QueryPlanCheck check, ExplainVerbosity verbosity) {
+        MongoPersistentEntity<?> entity = persistentEntity(check.documentType());
+        String collectionName = mongoTemplate.getCollectionName(check.documentType());
+
+        Document filter = queryMapper.getMappedObject(check.query().getQueryObject(), entity);
+        Document sort = queryMapper.getMappedSort(check.query().getSortObject(), entity);
+
+        FindIterable<Document> find = mongoTemplate.getCollection(collectionName).find(filter).sort(sort);
+        if (check.query().getLimit() > 0) {
+            find.limit(check.query().getLimit());
+        }
+
+        Document explain = find.explain(verbosity);
+
+        List<String> stages = new ArrayList<>();
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        if (queryPlanner != null) {
+            collectStages(queryPlanner.get("winningPlan", Document.class), stages);
+        }
+
+        Document executionStats = explain.get("executionStats", Document.class);
+        return new QueryPlanReport(
+                check,
+                collectionName,
+                stages,
+                longValue(executionStats, "nReturned"),
+                longValue(executionStats, "totalKeysExamined"),
+                longValue(executionStats, "totalDocsExamined"),
+                longValue(executionStats, "executionTimeMillis"));
+    }
+
+    /**
+     * 권장 인덱스를 생성합니다. (같은 이름/정의의 인덱스가 있으면 변경 없음)
+     * member_activities 는 MemberActivityMongoTemplate.ensureMessageKeyUniqueIndex 로 uk_message_key 를 설치합니다.
+     * (같은 key 의 다른 인덱스가 먼저 있으면 uk_message_key 를 만들 수 없어 복구 잡이 실패하므로 같은 경로를 사용)
+     *
+     * @return 생성(또는 확인)된 인덱스 이름
+     */
+    public String createRecommendedIndex(QueryPlanReport report) {
+        if (report.check().documentType() == MemberActivityDocument.class) {
+            return memberActivityMongoTemplate.ensureMessageKeyUniqueIndex(report.collectionName());
+        }
+        return mongoTemplate.indexOps(report.collectionName()).ensureIndex(report.check().recommendedIndex());
+    }
+
+    // is_completed=false 를 created_at 역순으로 조회 (findByIsCompletedOrderByCreatedAtDesc)
+    private QueryPlanCheck incompleteByCreatedAtCheck(String name, Class<?> documentType, int limit) {
+        Query query = new Query(Criteria.where("isCompleted").is(Boolean.FALSE))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .limit(limit);
+        return new QueryPlanCheck(name, documentType, query,
+                incompleteIndex(documentType, "idx_incomplete_created", "createdAt", Sort.Direction.DESC));
+    }
+
+    // 복구 대상(is_completed=false, 재시도 대기 아님)을 _id keyset 으로 조회 (MongoKeysetItemReader)
+    private QueryPlanCheck incompleteByIdCheck(String name, Class<?> documentType, int limit) {
+        Query query = new Query(DeadLetterMongoTemplate.restorableCriteria())
+                .with(Sort.by(Sort.Direction.DESC, "id"))
+                .limit(limit);
+        return new QueryPlanCheck(name, documentType, query,
+                incompleteIndex(documentType, "idx_incomplete_id", "id", Sort.Direction.DESC));
+    }
+
+    // messageKey 로 조회 (중복 확인 / upsert 조건)
+    private QueryPlanCheck messageKeyCheck(String name, Class<?> documentType) {
+        Query query = new Query(Criteria.where("messageKey").in(List.of(PLAN_VERIFY_SAMPLE_KEY)));
+        Index index = new Index()
+                .on(fieldName(documentType, "messageKey"), Sort.Direction.ASC)
+                .named("idx_message_key");
+        return new QueryPlanCheck(name, documentType, query, index);
+    }
+
+    // member_activities 의 messageKey 조회: MemberActivityDocument 의 uk_message_key 와 같은 정의 (unique, sparse)
+    private QueryPlanCheck memberActivityMessageKeyCheck(String name) {
+        Query query = new Query(Criteria.where("messageKey").in(List.of(PLAN_VERIFY_SAMPLE_KEY)));
+        Index index = new Index()
+                .on(fieldName(MemberActivityDocument.class, "messageKey"), Sort.Direction.ASC)
+                .unique()
+                .sparse()
+                .named(MemberActivityMongoTemplate.MESSAGE_KEY_UNIQUE_INDEX);
+        return new QueryPlanCheck(name, MemberActivityDocument.class, query, index);
+    }
+
+    /**
+     * {is_completed: 1, <field>: direction} + partialFilter {is_completed: false}
+     * 미완료 문서만 인덱싱하므로 완료 문서가 쌓여도 인덱스 크기는 미완료 건수에 비례합니다.
+     */
+    private Index incompleteIndex(Class<?> documentType, String name, String property, Sort.Direction direction) {
+        String isCompletedField = fieldName(documentType, "isCompleted");
+        return new Index()
+                .on(isCompletedField, Sort.Direction.ASC)
+                .on(fieldName(documentType, property), direction)
+                .named(name)
+                .partial(PartialIndexFilter.of(new Document(isCompletedField, Boolean.FALSE)));
+    }
+
+    private String fieldName(Class<?> documentType, String property) {
+        return persistentEntity(documentType).getRequiredPersistentProperty(property).getFieldName();
+    }
+
+    private MongoPersistentEntity<?> persistentEntity(Class<?> documentType) {
+        return mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(documentType);
+    }
+
+    // winningPlan 트리(inputStage / inputStages / queryPlan)를 순회하며 stage 이름 수집
+    @SuppressWarnings("unchecked")
+    private void collectStages(Document plan, List<String> stages) {
+        if (plan == null) {
+            return;
+        }
+
+        String stage = plan.getString("stage");
+        if (stage != null) {
+            stages.add(stage);
+        }
+
+        collectStages(plan.get("queryPlan", Document.class), stages);
+        collectStages(plan.get("inputStage", Document.class), stages);
+
+        Object inputStages = plan.get("inputStages");
+        if (inputStages instanceof List<?>) {
+            for (Document inputStage : (List<Document>) inputStages) {
+                collectStages(inputStage, stages);
+            }
+        }
+    }
+
+    private long longValue(Document document, String key) {
+        if (document == null || !(document.get(key) instanceof Number number)) {
+            return -1;
+        }
+        return number.longValue();
+    }
+}
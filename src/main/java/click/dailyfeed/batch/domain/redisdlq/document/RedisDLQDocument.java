@@ -8,16 +8,45 @@ import org.bson.types.ObjectId;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "redis_dead_letters")
+@CompoundIndexes({
+        // 1. 미완료 문서 최신순 조회 (완료 문서는 인덱싱하지 않음)
+        @CompoundIndex(
+                name = "idx_incomplete_created",
+                def = "{'is_completed': 1, 'created_at': -1}",
+                partialFilter = "{'is_completed': false}"
+        ),
+
+        // 2. 미완료 문서 _id keyset 조회
+        @CompoundIndex(
+                name = "idx_incomplete_id",
+                def = "{'is_completed': 1, '_id': -1}",
+                partialFilter = "{'is_completed': false}"
+        ),
+
+        // 3. messageKey 중복 확인
+        @CompoundIndex(
+                name = "idx_message_key",
+                def = "{'message_key': 1}"
+        ),
+
+        // 4. 선점 토큰으로 선점 해제/조회
+        @CompoundIndex(
+                name = "idx_claim_token",
+                def = "{'claim_token': 1}",
+                partialFilter = "{'claim_token': {$exists: true}}"
+        )
+})
 public class RedisDLQDocument {
     @Id
     private ObjectId id;
@@ -28,6 +57,16 @@ public class RedisDLQDocument {
     private Boolean isCompleted = Boolean.FALSE;
     @Field("is_editing")
     private Boolean isEditing = Boolean.FALSE;
+    @Field("claim_token")
+    private String claimToken; // 선점한 배치 스텝의 토큰 (is_editing=true 일 때)
+    @Field("claimed_at")
+    private LocalDateTime claimedAt;
+    @Field("retry_count")
+    private Integer retryCount; // 변환 실패 횟수
+    @Field("next_attempt_at")
+    private LocalDateTime nextAttemptAt; // 재시도 가능 시각 (지수 백오프)
+    @Field("last_error")
+    private String lastError;
 
     @CreatedDate
     @Field("created_at")
@@ -2,17 +2,24 @@ package click.dailyfeed.batch.domain.redisdlq.repository.mongo;
 
 import click.dailyfeed.batch.domain.redisdlq.document.RedisDLQDocument;
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * 대량 조회는 Pageable 로 페이지 크기를 제한합니다. (전체 컬렉션을 메모리에 올리지 않도록)
+ * 배치 복구는 redisDLQRestoreJob 이 MongoClaimItemReader 로 스트리밍합니다.
+ */
 public interface RedisDLQRepository extends MongoRepository<RedisDLQDocument, ObjectId> {
     List<RedisDLQDocument> findByMessageKey(String messageKey);
 
     // isCompleted=false AND isEditing=false 문서 조회
-    List<RedisDLQDocument> findByIsCompletedFalseAndIsEditingFalse();
+    Slice<RedisDLQDocument> findByIsCompletedFalseAndIsEditingFalse(Pageable pageable);
 
     // isCompleted=false AND createdAt < cutoffTime (5시간 이상 경과한 문서 조회)
-    List<RedisDLQDocument> findByIsCompletedFalseAndCreatedAtBefore(Instant cutoffTime);
+    // created_at 은 LocalDateTime 으로 저장되므로 같은 타입으로 비교 (MongoConfig 의 LocalDateTime 변환 적용)
+    Slice<RedisDLQDocument> findByIsCompletedFalseAndCreatedAtBefore(LocalDateTime cutoffTime, Pageable pageable);
 }
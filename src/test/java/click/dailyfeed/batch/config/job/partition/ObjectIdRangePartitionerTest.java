@@ -0,0 +1,155 @@
+package click.dailyfeed.batch.config.job.partition;
+
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Date;
+import java.util.Map;
+
+import static click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner.MAX_ID_KEY;
+import static click.dailyfeed.batch.config.job.partition.ObjectIdRangePartitioner.MIN_ID_KEY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ObjectIdRangePartitioner _id 범위 경계 테스트
+ */
+@DisplayName("ObjectIdRangePartitioner 테스트")
+class ObjectIdRangePartitionerTest {
+
+    private static final long START_SECONDS = 1_700_000_000L;
+
+    private MongoTemplate mongoTemplate;
+    private ObjectIdRangePartitioner partitioner;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        partitioner = new ObjectIdRangePartitioner(mongoTemplate, MemberActivityDocument.class, new Criteria());
+    }
+
+    @Test
+    @DisplayName("생성 시각 범위를 gridSize 등분한 연속된 [minId, maxId) 범위를 만들어야 한다")
+    void shouldSplitIntoContiguousRanges() {
+        // given: 10초 범위 [START, START + 10]
+        givenBoundaries(objectIdAt(START_SECONDS), objectIdAt(START_SECONDS + 10));
+
+        // when
+        Map<String, ExecutionContext> partitions = partitioner.partition(2);
+
+        // then: 11초를 2등분 (6초, 5초), 마지막 범위는 최대 _id 의 다음 초까지
+        assertThat(partitions).containsOnlyKeys("range-0", "range-1");
+        assertRange(partitions.get("range-0"), START_SECONDS, START_SECONDS + 6);
+        assertRange(partitions.get("range-1"), START_SECONDS + 6, START_SECONDS + 11);
+    }
+
+    @Test
+    @DisplayName("파티션 수는 생성 시각 범위(초)를 넘지 않아야 한다")
+    void shouldLimitPartitionsToSecondsSpan() {
+        // given: 같은 초에 생성된 문서만 있음
+        givenBoundaries(objectIdAt(START_SECONDS), objectIdAt(START_SECONDS));
+
+        // when
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        // then
+        assertThat(partitions).containsOnlyKeys("range-0");
+        assertRange(partitions.get("range-0"), START_SECONDS, START_SECONDS + 1);
+    }
+
+    @Test
+    @DisplayName("setRange 로 지정한 범위 밖으로 첫/마지막 파티션 경계가 나가지 않아야 한다")
+    void shouldClampToRange() {
+        // given
+        ObjectId rangeMin = objectIdAt(START_SECONDS);
+        ObjectId rangeMax = objectIdAt(START_SECONDS + 8);
+        partitioner.setRange(rangeMin.toHexString(), rangeMax.toHexString());
+        // 범위 안의 마지막 문서는 rangeMax 와 같은 초에 생성됨
+        givenBoundaries(rangeMin, new ObjectId(new Date((START_SECONDS + 8) * 1000), 0));
+
+        // when
+        Map<String, ExecutionContext> partitions = partitioner.partition(3);
+
+        // then
+        assertThat(partitions.get("range-0").getString(MIN_ID_KEY)).isEqualTo(rangeMin.toHexString());
+        assertThat(partitions.get("range-2").getString(MAX_ID_KEY)).isEqualTo(rangeMax.toHexString());
+    }
+
+    @Test
+    @DisplayName("gridSize 가 1 이면 조회 없이 지정한 범위만 담은 파티션 하나를 만들어야 한다")
+    void shouldCreateSinglePartitionWithRange() {
+        // given
+        partitioner.setRange(objectIdAt(START_SECONDS).toHexString(), "");
+
+        // when
+        Map<String, ExecutionContext> partitions = partitioner.partition(1);
+
+        // then
+        assertThat(partitions).containsOnlyKeys("range-0");
+        assertThat(partitions.get("range-0").getString(MIN_ID_KEY)).isEqualTo(ObjectIdRangePartitioner.minObjectIdAt(START_SECONDS).toHexString());
+        assertThat(partitions.get("range-0").containsKey(MAX_ID_KEY)).isFalse();
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(MemberActivityDocument.class));
+    }
+
+    @Test
+    @DisplayName("대상 문서가 없으면 범위 없는 파티션 하나를 만들어야 한다")
+    void shouldCreateSinglePartitionWhenEmpty() {
+        // given
+        when(mongoTemplate.findOne(any(Query.class), eq(MemberActivityDocument.class))).thenReturn(null);
+
+        // when
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        // then
+        assertThat(partitions).containsOnlyKeys("range-0");
+        assertThat(partitions.get("range-0").isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("minObjectIdAt 은 해당 초의 가장 작은 ObjectId 여야 한다")
+    void shouldCreateMinimumObjectIdForSecond() {
+        // when
+        ObjectId minimum = ObjectIdRangePartitioner.minObjectIdAt(START_SECONDS);
+
+        // then
+        assertThat(minimum.getTimestamp()).isEqualTo((int) START_SECONDS);
+        assertThat(minimum.toHexString()).endsWith("0000000000000000");
+        assertThat(minimum).isLessThanOrEqualTo(objectIdAt(START_SECONDS));
+        assertThat(minimum).isGreaterThan(objectIdAt(START_SECONDS - 1));
+    }
+
+    // 정렬 방향(_id 1: 최소, -1: 최대)에 따라 경계 문서 반환
+    private void givenBoundaries(ObjectId minId, ObjectId maxId) {
+        when(mongoTemplate.findOne(any(Query.class), eq(MemberActivityDocument.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            ObjectId id = query.getSortObject().getInteger("_id") > 0 ? minId : maxId;
+            return MemberActivityDocument.builder().id(id).build();
+        });
+    }
+
+    private static void assertRange(ExecutionContext context, long lowerSeconds, long upperSeconds) {
+        assertThat(context.getString(MIN_ID_KEY)).isEqualTo(ObjectIdRangePartitioner.minObjectIdAt(lowerSeconds).toHexString());
+        assertThat(context.getString(MAX_ID_KEY)).isEqualTo(ObjectIdRangePartitioner.minObjectIdAt(upperSeconds).toHexString());
+    }
+
+    private static ObjectId objectIdAt(long epochSeconds) {
+        return new ObjectId(new Date(epochSeconds * 1000), 1);
+    }
+}
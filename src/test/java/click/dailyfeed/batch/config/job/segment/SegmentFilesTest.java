@@ -0,0 +1,107 @@
+package click.dailyfeed.batch.config.job.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SegmentFiles / SegmentManifest 기록·검증 테스트
+ */
+@DisplayName("SegmentFiles / SegmentManifest 테스트")
+class SegmentFilesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("segment 파일 이름은 prefix 와 6자리 순번으로 만들어야 한다")
+    void shouldFormatSegmentFileName() {
+        assertThat(SegmentFiles.segmentFileName("member_activities", 12))
+                .isEqualTo("member_activities-000012.ndjson.gz");
+    }
+
+    @Test
+    @DisplayName("기록한 segment 는 gzip NDJSON 으로 읽을 수 있고 checksum 이 일치해야 한다")
+    void shouldWriteReadableSegment() throws Exception {
+        // given
+        List<String> lines = List.of("{\"a\":1}", "{\"b\":\"한글\"}");
+        Path file = directory.resolve(SegmentFiles.segmentFileName("test", 1));
+
+        // when
+        SegmentManifest.Segment segment = SegmentFiles.write(file, lines);
+
+        // then
+        assertThat(segment.getFile()).isEqualTo("test-000001.ndjson.gz");
+        assertThat(segment.getLines()).isEqualTo(2);
+        assertThat(segment.getBytes()).isEqualTo(Files.size(file));
+        assertThat(segment.getSha256()).hasSize(64);
+        assertThat(readLines(file)).containsExactlyElementsOf(lines);
+        assertThat(SegmentFiles.verify(directory, segment)).isTrue();
+    }
+
+    @Test
+    @DisplayName("파일 내용이 바뀌었거나 파일이 없으면 검증에 실패해야 한다")
+    void shouldFailVerificationWhenModifiedOrMissing() throws Exception {
+        // given
+        Path file = directory.resolve(SegmentFiles.segmentFileName("test", 1));
+        SegmentManifest.Segment segment = SegmentFiles.write(file, List.of("{\"a\":1}"));
+
+        // when
+        Files.write(file, new byte[]{0}, StandardOpenOption.APPEND);
+
+        // then
+        assertThat(SegmentFiles.verify(directory, segment)).isFalse();
+
+        // when
+        Files.delete(file);
+
+        // then
+        assertThat(SegmentFiles.verify(directory, segment)).isFalse();
+    }
+
+    @Test
+    @DisplayName("manifest 를 기록하고 다시 읽으면 segment 목록과 건수가 같아야 한다")
+    void shouldRoundTripManifest() throws Exception {
+        // given
+        SegmentManifest manifest = new SegmentManifest("member_activities");
+        manifest.add(SegmentFiles.write(directory.resolve(SegmentFiles.segmentFileName("test", 1)), List.of("{}", "{}")));
+        manifest.add(SegmentFiles.write(directory.resolve(SegmentFiles.segmentFileName("test", 2)), List.of("{}")));
+
+        // when
+        manifest.writeTo(directory, objectMapper);
+        SegmentManifest read = SegmentManifest.readFrom(directory, objectMapper);
+
+        // then
+        assertThat(Files.exists(directory.resolve(SegmentManifest.FILE_NAME + ".tmp"))).isFalse();
+        assertThat(read.getSource()).isEqualTo("member_activities");
+        assertThat(read.getCreatedAt()).isEqualTo(manifest.getCreatedAt());
+        assertThat(read.totalLines()).isEqualTo(3);
+        assertThat(read.getSegments()).extracting(SegmentManifest.Segment::getFile)
+                .containsExactly("test-000001.ndjson.gz", "test-000002.ndjson.gz");
+        for (SegmentManifest.Segment segment : read.getSegments()) {
+            assertThat(SegmentFiles.verify(directory, segment)).isTrue();
+        }
+    }
+
+    private static List<String> readLines(Path file) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package click.dailyfeed.batch.config.job.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * WeightedQuota 할당 테스트
+ */
+@DisplayName("WeightedQuota 테스트")
+class WeightedQuotaTest {
+
+    @Test
+    @DisplayName("최소 1건을 보장한 뒤 남은 건수를 가중치 비율로 나눠야 한다")
+    void shouldAllocateByWeightAfterMinimum() {
+        // when
+        Map<String, Integer> quotas = WeightedQuota.allocate(weights("a", 3, "b", 1), 10);
+
+        // then
+        assertThat(quotas).containsExactly(entry("a", 7), entry("b", 3));
+    }
+
+    @Test
+    @DisplayName("할당량의 합계는 항상 total 이어야 한다")
+    void shouldSumToTotal() {
+        // given
+        Map<String, Integer> weights = weights("a", 5, "b", 3, "c", 1);
+
+        for (int total = 3; total <= 50; total++) {
+            // when
+            Map<String, Integer> quotas = WeightedQuota.allocate(weights, total);
+
+            // then
+            assertThat(quotas.values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(total);
+            assertThat(quotas.values()).allMatch(quota -> quota >= 1);
+        }
+    }
+
+    @Test
+    @DisplayName("가중치가 0 이하인 키는 할당받지 않지만 결과에는 0 으로 포함되어야 한다")
+    void shouldExcludeNonPositiveWeights() {
+        // when
+        Map<String, Integer> quotas = WeightedQuota.allocate(weights("a", 1, "b", 0, "c", -1), 4);
+
+        // then
+        assertThat(quotas).containsExactly(entry("a", 4), entry("b", 0), entry("c", 0));
+    }
+
+    @Test
+    @DisplayName("total 이 키 개수보다 적으면 최소 1건을 보장하지 않고 비율로만 나눠야 한다")
+    void shouldNotGuaranteeMinimumWhenTotalIsSmall() {
+        // when
+        Map<String, Integer> quotas = WeightedQuota.allocate(weights("a", 1, "b", 1, "c", 1), 2);
+
+        // then
+        assertThat(quotas).containsExactly(entry("a", 1), entry("b", 1), entry("c", 0));
+    }
+
+    @Test
+    @DisplayName("total 이 0 이하이거나 가중치가 모두 0 이면 모두 0 이어야 한다")
+    void shouldAllocateNothing() {
+        assertThat(WeightedQuota.allocate(weights("a", 1, "b", 2), 0))
+                .containsExactly(entry("a", 0), entry("b", 0));
+        assertThat(WeightedQuota.allocate(weights("a", 0, "b", 0), 10))
+                .containsExactly(entry("a", 0), entry("b", 0));
+    }
+
+    private static Map<String, Integer> weights(Object... keyAndWeights) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (int i = 0; i < keyAndWeights.length; i += 2) {
+            weights.put((String) keyAndWeights[i], (Integer) keyAndWeights[i + 1]);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,46 @@
+package click.dailyfeed.batch.config.job.support;
+
+import com.mongodb.WriteConcern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * WriteProfile 파싱과 프로파일별 write concern / bulk 순서 테스트
+ */
+@DisplayName("WriteProfile 테스트")
+class WriteProfileTest {
+
+    @Test
+    @DisplayName("하이픈/밑줄, 대소문자, 앞뒤 공백과 관계없이 프로파일을 찾아야 한다")
+    void shouldParseProfileNames() {
+        assertThat(WriteProfile.from("fast-drain")).isEqualTo(WriteProfile.FAST_DRAIN);
+        assertThat(WriteProfile.from("FAST_DRAIN")).isEqualTo(WriteProfile.FAST_DRAIN);
+        assertThat(WriteProfile.from(" balanced ")).isEqualTo(WriteProfile.BALANCED);
+        assertThat(WriteProfile.from("Durable")).isEqualTo(WriteProfile.DURABLE);
+    }
+
+    @Test
+    @DisplayName("알 수 없는 프로파일이면 예외가 발생해야 한다")
+    void shouldRejectUnknownProfile() {
+        assertThatThrownBy(() -> WriteProfile.from("fastest"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("프로파일별 write concern 과 bulk 순서가 설정되어야 한다")
+    void shouldExposeWriteSettings() {
+        assertThat(WriteProfile.FAST_DRAIN.getWriteConcern().getJournal()).isFalse();
+        assertThat(WriteProfile.FAST_DRAIN.getBulkMode()).isEqualTo(BulkOperations.BulkMode.UNORDERED);
+
+        assertThat(WriteProfile.BALANCED.getWriteConcern().getW()).isEqualTo(1);
+        assertThat(WriteProfile.BALANCED.getWriteConcern().getJournal()).isTrue();
+        assertThat(WriteProfile.BALANCED.getBulkMode()).isEqualTo(BulkOperations.BulkMode.UNORDERED);
+
+        assertThat(WriteProfile.DURABLE.getWriteConcern().getWObject()).isEqualTo(WriteConcern.MAJORITY.getWObject());
+        assertThat(WriteProfile.DURABLE.getBulkMode()).isEqualTo(BulkOperations.BulkMode.ORDERED);
+    }
+}
@@ -0,0 +1,60 @@
+package click.dailyfeed.batch.domain.activity.member.document;
+
+import click.dailyfeed.code.domain.activity.type.MemberActivityType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MemberActivityCounterDocument 카운터 _id 규칙 테스트
+ */
+@DisplayName("MemberActivityCounterDocument 테스트")
+class MemberActivityCounterDocumentTest {
+
+    private static final MemberActivityType TYPE = MemberActivityType.values()[0];
+
+    @Test
+    @DisplayName("comment_id 가 있으면 게시글이 있어도 댓글 카운터여야 한다")
+    void shouldCountCommentFirst() {
+        // given
+        MemberActivityDocument activity = MemberActivityDocument.builder()
+                .postId(10L)
+                .commentId(20L)
+                .memberActivityType(TYPE)
+                .build();
+
+        // when & then
+        assertThat(MemberActivityCounterDocument.counterIdOf(activity)).isEqualTo("comment:20:" + TYPE.name());
+    }
+
+    @Test
+    @DisplayName("comment_id 가 없으면 게시글 카운터여야 한다")
+    void shouldCountPost() {
+        // given
+        MemberActivityDocument activity = MemberActivityDocument.builder()
+                .postId(10L)
+                .memberActivityType(TYPE)
+                .build();
+
+        // when & then
+        assertThat(MemberActivityCounterDocument.counterIdOf(activity)).isEqualTo("post:10:" + TYPE.name());
+    }
+
+    @Test
+    @DisplayName("대상이 없거나 활동 타입이 없으면 집계하지 않아야 한다")
+    void shouldNotCountWithoutTargetOrType() {
+        // given
+        MemberActivityDocument memberActivity = MemberActivityDocument.builder()
+                .memberId(1L)
+                .memberActivityType(TYPE)
+                .build();
+        MemberActivityDocument typeless = MemberActivityDocument.builder()
+                .postId(10L)
+                .build();
+
+        // when & then
+        assertThat(MemberActivityCounterDocument.counterIdOf(memberActivity)).isNull();
+        assertThat(MemberActivityCounterDocument.counterIdOf(typeless)).isNull();
+    }
+}
@@ -0,0 +1,92 @@
+package click.dailyfeed.batch.domain.activity.member.repository.mongo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * MemberActivityBucketResolver 월 컬렉션 범위 테스트
+ */
+@DisplayName("MemberActivityBucketResolver 테스트")
+class MemberActivityBucketResolverTest {
+
+    private static final String BASE = "member_activities";
+
+    @Test
+    @DisplayName("기간에 걸친 월 컬렉션을 최신 월부터 반환해야 한다")
+    void shouldReturnBucketsNewestFirst() {
+        // when
+        List<String> buckets = MemberActivityBucketResolver.bucketsBetween(BASE,
+                LocalDateTime.of(2025, 11, 15, 0, 0),
+                LocalDateTime.of(2026, 2, 3, 12, 0));
+
+        // then
+        assertThat(buckets).containsExactly(
+                "member_activities_202602",
+                "member_activities_202601",
+                "member_activities_202512",
+                "member_activities_202511");
+    }
+
+    @Test
+    @DisplayName("to 가 월 초 00:00 이면 해당 월은 포함하지 않아야 한다")
+    void shouldExcludeMonthWhenToIsStartOfMonth() {
+        // when
+        List<String> buckets = MemberActivityBucketResolver.bucketsBetween(BASE,
+                LocalDateTime.of(2026, 1, 1, 0, 0),
+                LocalDateTime.of(2026, 3, 1, 0, 0));
+
+        // then
+        assertThat(buckets).containsExactly("member_activities_202602", "member_activities_202601");
+    }
+
+    @Test
+    @DisplayName("from 이 월 말 마지막 순간이면 해당 월을 포함해야 한다")
+    void shouldIncludeMonthWhenFromIsEndOfMonth() {
+        // when
+        List<String> buckets = MemberActivityBucketResolver.bucketsBetween(BASE,
+                LocalDateTime.of(2026, 1, 31, 23, 59, 59),
+                LocalDateTime.of(2026, 2, 1, 0, 0, 1));
+
+        // then
+        assertThat(buckets).containsExactly("member_activities_202602", "member_activities_202601");
+    }
+
+    @Test
+    @DisplayName("같은 월 안의 기간이면 한 개의 월 컬렉션만 반환해야 한다")
+    void shouldReturnSingleBucketWithinMonth() {
+        // when
+        List<String> buckets = MemberActivityBucketResolver.bucketsBetween(BASE,
+                LocalDateTime.of(2026, 2, 1, 0, 0),
+                LocalDateTime.of(2026, 2, 28, 23, 0));
+
+        // then
+        assertThat(buckets).containsExactly("member_activities_202602");
+    }
+
+    @Test
+    @DisplayName("빈 기간이면 월 컬렉션이 없어야 한다")
+    void shouldReturnNoBucketsForEmptyRange() {
+        // when
+        List<String> buckets = MemberActivityBucketResolver.bucketsBetween(BASE,
+                LocalDateTime.of(2026, 2, 1, 0, 0),
+                LocalDateTime.of(2026, 2, 1, 0, 0));
+
+        // then
+        assertThat(buckets).isEmpty();
+    }
+
+    @Test
+    @DisplayName("저장 방식은 대소문자와 공백을 무시하고 알 수 없는 값이면 예외가 발생해야 한다")
+    void shouldParseStorage() {
+        assertThat(MemberActivityBucketResolver.Storage.from(" Monthly ")).isEqualTo(MemberActivityBucketResolver.Storage.MONTHLY);
+        assertThat(MemberActivityBucketResolver.Storage.from("single")).isEqualTo(MemberActivityBucketResolver.Storage.SINGLE);
+        assertThatThrownBy(() -> MemberActivityBucketResolver.Storage.from("weekly"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
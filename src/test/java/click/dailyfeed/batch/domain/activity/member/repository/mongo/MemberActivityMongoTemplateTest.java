@@ -0,0 +1,167 @@
+package click.dailyfeed.batch.domain.activity.member.repository.mongo;
+
+import click.dailyfeed.batch.domain.activity.member.document.MemberActivityDocument;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate.BulkSaveResult;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate.ItemOutcome;
+import click.dailyfeed.batch.domain.activity.member.repository.mongo.MemberActivityMongoTemplate.Outcome;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * MemberActivityMongoTemplate insert-only 저장의 재시도 offset / 항목별 결과와 BulkSaveResult 테스트
+ */
+@DisplayName("MemberActivityMongoTemplate 테스트")
+class MemberActivityMongoTemplateTest {
+
+    @Test
+    @DisplayName("UNORDERED 는 insertMany 를 한 번만 실행하고 실패 항목을 그대로 반환해야 한다")
+    void shouldInsertOnceWhenUnordered() {
+        // given
+        List<Integer> offsets = new ArrayList<>();
+
+        // when
+        Map<Integer, BulkWriteError> errors = MemberActivityMongoTemplate.insertManyCollectingErrors(5, false, offset -> {
+            offsets.add(offset);
+            return List.of(error(11000, 1), error(121, 3));
+        });
+
+        // then
+        assertThat(offsets).containsExactly(0);
+        assertThat(errors).containsOnlyKeys(1, 3);
+        assertThat(errors.get(3).getCode()).isEqualTo(121);
+    }
+
+    @Test
+    @DisplayName("ORDERED 는 실패한 항목 다음부터 다시 insertMany 하고 index 를 전체 기준으로 반환해야 한다")
+    void shouldRetryAfterFailedItemWhenOrdered() {
+        // given
+        List<Integer> offsets = new ArrayList<>();
+
+        // when
+        Map<Integer, BulkWriteError> errors = MemberActivityMongoTemplate.insertManyCollectingErrors(6, true, offset -> {
+            offsets.add(offset);
+            return switch (offset) {
+                case 0 -> List.of(error(11000, 1));   // 전체 index 1 실패
+                case 2 -> List.of(error(11000, 2));   // 전체 index 4 실패
+                default -> List.of();
+            };
+        });
+
+        // then
+        assertThat(offsets).containsExactly(0, 2, 5);
+        assertThat(errors).containsOnlyKeys(1, 4);
+    }
+
+    @Test
+    @DisplayName("ORDERED 에서 마지막 항목이 실패하면 더 이상 insertMany 하지 않아야 한다")
+    void shouldStopWhenLastItemFailsInOrderedMode() {
+        // given
+        List<Integer> offsets = new ArrayList<>();
+
+        // when
+        Map<Integer, BulkWriteError> errors = MemberActivityMongoTemplate.insertManyCollectingErrors(3, true, offset -> {
+            offsets.add(offset);
+            return offset == 0 ? List.of(error(11000, 2)) : List.of();
+        });
+
+        // then
+        assertThat(offsets).containsExactly(0);
+        assertThat(errors).containsOnlyKeys(2);
+    }
+
+    @Test
+    @DisplayName("저장할 항목이 없으면 insertMany 를 실행하지 않아야 한다")
+    void shouldNotInsertWhenEmpty() {
+        // when
+        Map<Integer, BulkWriteError> errors = MemberActivityMongoTemplate.insertManyCollectingErrors(0, true, offset -> {
+            throw new AssertionError("insertMany must not be called");
+        });
+
+        // then
+        assertThat(errors).isEmpty();
+    }
+
+    @Test
+    @DisplayName("insert 결과는 오류 없음 INSERTED, E11000 DUPLICATE, 그 외 FAILED 여야 한다")
+    void shouldMapInsertOutcomes() {
+        // given
+        MemberActivityDocument keyed = activity("key-1");
+
+        // when & then
+        assertThat(MemberActivityMongoTemplate.insertOutcome(keyed, null).outcome()).isEqualTo(Outcome.INSERTED);
+        assertThat(MemberActivityMongoTemplate.insertOutcome(keyed, error(11000, 0)).outcome()).isEqualTo(Outcome.DUPLICATE);
+
+        ItemOutcome failed = MemberActivityMongoTemplate.insertOutcome(keyed, error(121, 0));
+        assertThat(failed.outcome()).isEqualTo(Outcome.FAILED);
+        assertThat(failed.error()).startsWith("121: ");
+    }
+
+    @Test
+    @DisplayName("messageKey 가 없는 항목의 E11000 은 이미 복구된 것으로 볼 수 없으므로 FAILED 여야 한다")
+    void shouldFailDuplicateKeyErrorWithoutMessageKey() {
+        // given
+        MemberActivityDocument keyless = activity(null);
+
+        // when
+        ItemOutcome outcome = MemberActivityMongoTemplate.insertOutcome(keyless, error(11000, 0));
+
+        // then
+        assertThat(outcome.outcome()).isEqualTo(Outcome.FAILED);
+    }
+
+    @Test
+    @DisplayName("BulkSaveResult 는 결과별 건수와 실패/성공 messageKey 를 구분해야 한다")
+    void shouldSummarizeBulkSaveResult() {
+        // given
+        BulkSaveResult result = new BulkSaveResult(List.of(
+                new ItemOutcome(activity("inserted"), Outcome.INSERTED, null),
+                new ItemOutcome(activity("upserted"), Outcome.UPSERTED, null),
+                new ItemOutcome(activity("matched"), Outcome.MATCHED, null),
+                new ItemOutcome(activity("duplicate"), Outcome.DUPLICATE, null),
+                new ItemOutcome(activity("failed"), Outcome.FAILED, "121: validation"),
+                new ItemOutcome(activity(null), Outcome.FAILED, "121: validation"),
+                new ItemOutcome(activity(""), Outcome.INSERTED, null)));
+
+        // then
+        assertThat(result.count(Outcome.INSERTED)).isEqualTo(2);
+        assertThat(result.count(Outcome.FAILED)).isEqualTo(2);
+        assertThat(result.hasFailures()).isTrue();
+        assertThat(result.failedMessageKeys()).containsExactly(entry("failed", "121: validation"));
+        assertThat(result.failedWithoutMessageKey()).isEqualTo(1);
+        assertThat(result.succeededMessageKeys()).containsExactly("inserted", "upserted", "matched", "duplicate");
+    }
+
+    @Test
+    @DisplayName("실패가 없는 BulkSaveResult 는 hasFailures 가 false 여야 한다")
+    void shouldHaveNoFailures() {
+        // given
+        BulkSaveResult result = new BulkSaveResult(List.of(
+                new ItemOutcome(activity("inserted"), Outcome.INSERTED, null)));
+
+        // then
+        assertThat(result.hasFailures()).isFalse();
+        assertThat(result.failedMessageKeys()).isEmpty();
+        assertThat(result.failedWithoutMessageKey()).isZero();
+    }
+
+    private static BulkWriteError error(int code, int index) {
+        return new BulkWriteError(code, "error " + code, new BsonDocument(), index);
+    }
+
+    private static MemberActivityDocument activity(String messageKey) {
+        return MemberActivityDocument.builder()
+                .memberId(1L)
+                .postId(10L)
+                .messageKey(messageKey)
+                .build();
+    }
+}